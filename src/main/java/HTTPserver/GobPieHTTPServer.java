@@ -1,5 +1,6 @@
 package HTTPserver;
 
+import analysis.AnalysisHistory;
 import api.GoblintService;
 import com.sun.net.httpserver.HttpServer;
 import org.apache.logging.log4j.LogManager;
@@ -23,15 +24,16 @@ public class GobPieHTTPServer {
     private String httpServerAddress;
     private final Logger log = LogManager.getLogger(GobPieHTTPServer.class);
 
-    public GobPieHTTPServer(GoblintService goblintService) {
+    public GobPieHTTPServer(GoblintService goblintService, AnalysisHistory history) {
         try {
             InetSocketAddress socket = new InetSocketAddress("0.0.0.0", 0);
             httpServer = HttpServer.create(socket, 42);
 
             httpServerAddress = "http://localhost:" + this.httpServer.getAddress().getPort() + "/";
-            httpServer.createContext("/", new GobPieHttpHandler(httpServerAddress, goblintService));
-            httpServer.createContext("/cfg/", new GobPieHttpHandler(httpServerAddress, goblintService));
-            httpServer.createContext("/node/", new GobPieHttpHandler(httpServerAddress, goblintService));
+            httpServer.createContext("/", new GobPieHttpHandler(httpServerAddress, goblintService, history));
+            httpServer.createContext("/cfg/", new GobPieHttpHandler(httpServerAddress, goblintService, history));
+            httpServer.createContext("/node/", new GobPieHttpHandler(httpServerAddress, goblintService, history));
+            httpServer.createContext("/history/", new GobPieHttpHandler(httpServerAddress, goblintService, history));
 
             httpServer.setExecutor(null);
         } catch (IOException e) {
@@ -1,5 +1,6 @@
 package HTTPserver;
 
+import analysis.AnalysisHistory;
 import api.GoblintService;
 import api.messages.params.NodeParams;
 import api.messages.params.Params;
@@ -39,12 +40,14 @@ public class GobPieHttpHandler implements HttpHandler {
     private static final int HTTP_INTERNAL_ERROR_STATUS = 500;
     private final String httpServerAddress;
     private final GoblintService goblintService;
+    private final AnalysisHistory history;
 
     private final Logger log = LogManager.getLogger(GobPieHttpHandler.class);
 
-    public GobPieHttpHandler(String httpServerAddress, GoblintService goblintService) {
+    public GobPieHttpHandler(String httpServerAddress, GoblintService goblintService, AnalysisHistory history) {
         this.httpServerAddress = httpServerAddress;
         this.goblintService = goblintService;
+        this.history = history;
     }
 
     @Override
@@ -97,6 +100,10 @@ public class GobPieHttpHandler implements HttpHandler {
                         templateEngine = createTemplateEngine("/json-viewer/", ".js", TemplateMode.JAVASCRIPT);
                         yield templateEngine.process("jquery.json-viewer", context);
                     }
+                    case "/history/" -> {
+                        exchange.getResponseHeaders().add("Content-Type", "application/json");
+                        yield history.toJson();
+                    }
                     default -> templateEngine.process("index", context);
                 };
             }
@@ -1,21 +1,25 @@
 import HTTPserver.GobPieHTTPServer;
 import abstractdebugging.AbstractDebuggingServerLauncher;
 import abstractdebugging.ResultsService;
+import analysis.AnalysisGeneration;
 import analysis.GoblintAnalysis;
 import api.GoblintService;
 import api.GoblintServiceLauncher;
 import api.messages.params.Params;
 import goblintserver.GoblintConfWatcher;
 import goblintserver.GoblintServer;
+import goblintserver.UnsavedFilesOverlay;
 import gobpie.GobPieConfReader;
 import gobpie.GobPieConfiguration;
 import gobpie.GobPieException;
+import magpiebridge.AbstractValueHover;
 import magpiebridge.GoblintLanguageExtensionHandler;
 import magpiebridge.GoblintMagpieServer;
 import magpiebridge.GoblintServerConfiguration;
+import magpiebridge.GoblintTextDocumentService;
+import magpiebridge.ShowAnalysisHistoryCommand;
 import magpiebridge.ShowCFGCommand;
 import magpiebridge.core.MagpieServer;
-import magpiebridge.core.ServerAnalysis;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.lsp4j.MessageParams;
@@ -24,6 +28,7 @@ import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import util.FileWatcher;
 
 import java.io.File;
+import java.net.URI;
 import java.nio.file.Path;
 
 public class Main {
@@ -51,7 +56,7 @@ public class Main {
             GoblintConfWatcher goblintConfWatcher = getGoblintConfWatcher(magpieServer, goblintService, gobpieConfiguration);
 
             // Add analysis
-            addAnalysis(magpieServer, gobpieConfiguration, goblintServer, goblintService, goblintConfWatcher);
+            GoblintAnalysis goblintAnalysis = addAnalysis(magpieServer, gobpieConfiguration, goblintServer, goblintService, goblintConfWatcher);
 
             // Launch magpieServer
             magpieServer.configurationDone();
@@ -60,7 +65,7 @@ public class Main {
             if (args.length > 0 && gobpieConfiguration.abstractDebugging()) {
                 // Launch abstract debugging server
                 String socketAddress = args[0];
-                launchAbstractDebuggingServer(socketAddress, goblintService);
+                launchAbstractDebuggingServer(socketAddress, goblintService, gobpieConfiguration, goblintAnalysis.generation());
                 log.info("Abstract debugging server launched on: " + socketAddress);
             } else {
                 log.info("Abstract debugging server disabled.");
@@ -143,22 +148,82 @@ public class Main {
      * Method for creating and adding Goblint analysis to MagpieBridge server.
      * <p>
      * Creates the GoblintAnalysis classes.
+     *
+     * @return the added analysis
      */
-    private static void addAnalysis(MagpieServer magpieServer, GobPieConfiguration gobpieConfiguration,
+    private static GoblintAnalysis addAnalysis(GoblintMagpieServer magpieServer, GobPieConfiguration gobpieConfiguration,
                                     GoblintServer goblintServer, GoblintService goblintService, GoblintConfWatcher goblintConfWatcher) {
         // define language
         String language = "c";
 
+        // analyze unsaved files through an overlay, only if the option is specified in the configuration
+        UnsavedFilesOverlay unsavedFilesOverlay = gobpieConfiguration.analyzeUnsavedFiles()
+                ? createUnsavedFilesOverlay(magpieServer, gobpieConfiguration, goblintConfWatcher, language)
+                : null;
+
+        // let the IDE pull the diagnostics of the files it shows, only if the option is specified in the configuration
+        if (gobpieConfiguration.pullDiagnostics()) {
+            magpieServer.enablePullDiagnostics();
+        }
+
         // add analysis to the MagpieServer
-        ServerAnalysis serverAnalysis = new GoblintAnalysis(magpieServer, goblintServer, goblintService, gobpieConfiguration, goblintConfWatcher);
-        magpieServer.addAnalysis(Either.forLeft(serverAnalysis), language);
+        GoblintAnalysis goblintAnalysis = new GoblintAnalysis(magpieServer, goblintServer, goblintService, gobpieConfiguration, goblintConfWatcher, unsavedFilesOverlay);
+        magpieServer.addAnalysis(Either.forLeft(goblintAnalysis), language);
+        magpieServer.addCommand("showanalysishistory", new ShowAnalysisHistoryCommand(goblintAnalysis.history()));
+
+        // show the abstract values on hover, only if the option is specified in the configuration
+        if (gobpieConfiguration.showAbstractValuesOnHover()) {
+            magpieServer.setHoverProvider(new AbstractValueHover(goblintService, goblintAnalysis.generation()));
+        }
 
         // add HTTP server for showing CFGs, only if the option is specified in the configuration
         if (gobpieConfiguration.showCfg()) {
-            String httpServerAddress = new GobPieHTTPServer(goblintService).start();
+            String httpServerAddress = new GobPieHTTPServer(goblintService, goblintAnalysis.history()).start();
             magpieServer.addHttpServer(httpServerAddress);
             magpieServer.addCommand("showcfg", new ShowCFGCommand(httpServerAddress));
         }
+        return goblintAnalysis;
+    }
+
+
+    /**
+     * Creates the overlay through which the unsaved contents of the editor buffers are analyzed
+     * and connects it to the changes of the documents and the Goblint configuration.
+     */
+    private static UnsavedFilesOverlay createUnsavedFilesOverlay(GoblintMagpieServer magpieServer, GobPieConfiguration gobpieConfiguration,
+                                                                 GoblintConfWatcher goblintConfWatcher, String language) {
+        UnsavedFilesOverlay overlay = new UnsavedFilesOverlay(UnsavedFilesOverlay.DEFAULT_LOCATION, Path.of(gobpieConfiguration.goblintConf()),
+                gobpieConfiguration.analyzeUnsavedFilesDelay(), () -> {
+            // Like saving a file, analyzing the unsaved changes replaces all results
+            magpieServer.cleanUp();
+            magpieServer.doAnalysis(language, true);
+        });
+        // Remove the shadow copies left over from the previous run
+        overlay.clear();
+        goblintConfWatcher.setOverlay(overlay);
+        magpieServer.setUnsavedChangesListener(new GoblintTextDocumentService.UnsavedChangesListener() {
+            @Override
+            public void changed(URI uri, String text) {
+                if ("file".equals(uri.getScheme())) {
+                    overlay.changed(Path.of(uri), text);
+                }
+            }
+
+            @Override
+            public void discarded(URI uri) {
+                if ("file".equals(uri.getScheme())) {
+                    overlay.discard(Path.of(uri));
+                }
+            }
+
+            @Override
+            public void closed(URI uri) {
+                if ("file".equals(uri.getScheme())) {
+                    overlay.close(Path.of(uri));
+                }
+            }
+        });
+        return overlay;
     }
 
 
@@ -167,9 +232,12 @@ public class Main {
      *
      * @throws GobPieException if creating domain socket for server fails
      */
-    private static void launchAbstractDebuggingServer(String socketAddress, GoblintService goblintService) {
-        ResultsService resultsService = new ResultsService(goblintService);
-        AbstractDebuggingServerLauncher launcher = new AbstractDebuggingServerLauncher(resultsService);
+    private static void launchAbstractDebuggingServer(String socketAddress, GoblintService goblintService, GobPieConfiguration gobpieConfiguration,
+                                                      AnalysisGeneration analysisGeneration) {
+        // index the ARG, only if the option is specified in the configuration
+        int indexMaxNodes = gobpieConfiguration.abstractDebuggingIndex() ? gobpieConfiguration.abstractDebuggingIndexMaxNodes() : 0;
+        ResultsService resultsService = new ResultsService(goblintService, analysisGeneration, indexMaxNodes);
+        AbstractDebuggingServerLauncher launcher = new AbstractDebuggingServerLauncher(resultsService, gobpieConfiguration.abstractDebuggingMaxVisitedNodes());
         launcher.launchOnDomainSocket(socketAddress);
     }
 
@@ -0,0 +1,207 @@
+package abstractdebugging;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The Class ARGIndex.
+ * <p>
+ * In-memory index of the whole ARG of an analysis, so that the abstract debugger can walk the ARG without asking Goblint.
+ * The node IDs are interned to consecutive integers, and the edges of each kind are stored as primitive adjacency arrays
+ * in both directions. The nodes themselves are kept for the information shown in the debugger.
+ * <p>
+ * The index is immutable and only valid for the analysis it was built from.
+ *
+ * @since 0.0.5
+ */
+public class ARGIndex {
+
+    /**
+     * The kinds of edges between ARG nodes.
+     */
+    public enum EdgeKind {
+        CFG(NodeInfo::incomingCFGEdges, NodeInfo::outgoingCFGEdges),
+        ENTRY(node -> functionCalls(node.incomingEntryEdges(), false), node -> functionCalls(node.outgoingEntryEdges(), false)),
+        RETURN(NodeInfo::incomingReturnEdges, NodeInfo::outgoingReturnEdges),
+        THREAD(node -> functionCalls(node.incomingEntryEdges(), true), node -> functionCalls(node.outgoingEntryEdges(), true));
+
+        private final Function<NodeInfo, List<? extends EdgeInfo>> incoming;
+        private final Function<NodeInfo, List<? extends EdgeInfo>> outgoing;
+
+        EdgeKind(Function<NodeInfo, List<? extends EdgeInfo>> incoming, Function<NodeInfo, List<? extends EdgeInfo>> outgoing) {
+            this.incoming = incoming;
+            this.outgoing = outgoing;
+        }
+
+        public List<? extends EdgeInfo> incomingEdges(NodeInfo node) {
+            return incoming.apply(node);
+        }
+
+        public List<? extends EdgeInfo> outgoingEdges(NodeInfo node) {
+            return outgoing.apply(node);
+        }
+
+        private static List<FunctionCallEdgeInfo> functionCalls(List<FunctionCallEdgeInfo> edges, boolean createsNewThread) {
+            return edges.stream().filter(e -> e.createsNewThread() == createsNewThread).toList();
+        }
+    }
+
+    private static final int[] NO_NODES = new int[0];
+
+    private final Map<String, Integer> ids;
+    private final NodeInfo[] nodes;
+    // Adjacency arrays by edge kind and node
+    private final int[][][] incoming;
+    private final int[][][] outgoing;
+    private final Map<String, int[]> nodesByCFGNode;
+
+    /**
+     * @param nodes all nodes of the ARG. Every node that an edge of a node leads to must be included.
+     * @throws IllegalArgumentException if an edge leads to a node that is not included.
+     */
+    public ARGIndex(Collection<NodeInfo> nodes) {
+        this.ids = new HashMap<>(nodes.size() * 2);
+        this.nodes = nodes.toArray(NodeInfo[]::new);
+        for (int i = 0; i < this.nodes.length; i++) {
+            ids.put(this.nodes[i].nodeId(), i);
+        }
+
+        EdgeKind[] kinds = EdgeKind.values();
+        this.incoming = new int[kinds.length][][];
+        this.outgoing = new int[kinds.length][][];
+        for (EdgeKind kind : kinds) {
+            incoming[kind.ordinal()] = new int[this.nodes.length][];
+            outgoing[kind.ordinal()] = new int[this.nodes.length][];
+            for (int i = 0; i < this.nodes.length; i++) {
+                incoming[kind.ordinal()][i] = toIds(kind.incomingEdges(this.nodes[i]));
+                outgoing[kind.ordinal()][i] = toIds(kind.outgoingEdges(this.nodes[i]));
+            }
+        }
+
+        Map<String, List<Integer>> byCFGNode = new HashMap<>();
+        for (int i = 0; i < this.nodes.length; i++) {
+            byCFGNode.computeIfAbsent(this.nodes[i].cfgNodeId(), cfgNodeId -> new ArrayList<>()).add(i);
+        }
+        this.nodesByCFGNode = new HashMap<>(byCFGNode.size() * 2);
+        byCFGNode.forEach((cfgNodeId, ofCFGNode) -> nodesByCFGNode.put(cfgNodeId, ofCFGNode.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    private int[] toIds(List<? extends EdgeInfo> edges) {
+        if (edges.isEmpty()) {
+            return NO_NODES;
+        }
+        int[] edgeIds = new int[edges.size()];
+        for (int i = 0; i < edgeIds.length; i++) {
+            Integer id = ids.get(edges.get(i).nodeId());
+            if (id == null) {
+                throw new IllegalArgumentException("Edge to node " + edges.get(i).nodeId() + " that is not in the index");
+            }
+            edgeIds[i] = id;
+        }
+        return edgeIds;
+    }
+
+    /**
+     * Returns the IDs of the nodes that the edges of the given node lead to or come from.
+     */
+    static Stream<String> neighbourIds(NodeInfo node) {
+        return Stream.of(
+                        node.incomingCFGEdges(), node.incomingEntryEdges(), node.incomingReturnEdges(),
+                        node.outgoingCFGEdges(), node.outgoingEntryEdges(), node.outgoingReturnEdges())
+                .flatMap(List::stream)
+                .map(EdgeInfo::nodeId);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the node with the given ID, or null if the node is not in the index.
+     */
+    public NodeInfo node(String nodeId) {
+        Integer id = ids.get(nodeId);
+        return id == null ? null : nodes[id];
+    }
+
+    /**
+     * Returns the ARG nodes of the CFG node with the given ID.
+     */
+    public List<NodeInfo> nodesOfCFGNode(String cfgNodeId) {
+        return toNodes(nodesByCFGNode.getOrDefault(cfgNodeId, NO_NODES));
+    }
+
+    /**
+     * Finds the entry node of the function that contains the given node, i.e. the node reached by following
+     * incoming CFG edges that has no incoming CFG edges.
+     *
+     * @return the entry node, or null if the node is not in the index or no entry node was found.
+     */
+    public NodeInfo entryNode(String nodeId) {
+        Integer start = ids.get(nodeId);
+        if (start == null) {
+            return null;
+        }
+        int[][] predecessors = incoming[EdgeKind.CFG.ordinal()];
+        BitSet seen = new BitSet(nodes.length);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        seen.set(start);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            if (predecessors[node].length == 0) {
+                return nodes[node];
+            }
+            for (int predecessor : predecessors[node]) {
+                if (!seen.get(predecessor)) {
+                    seen.set(predecessor);
+                    queue.add(predecessor);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds all nodes matching the given condition that are reachable from the given node by following outgoing edges of the given kind,
+     * in breadth-first order.
+     *
+     * @return the matching nodes, or null if the node is not in the index.
+     */
+    public List<NodeInfo> findMatchingNodes(String nodeId, EdgeKind kind, Predicate<NodeInfo> condition) {
+        Integer start = ids.get(nodeId);
+        if (start == null) {
+            return null;
+        }
+        int[][] successors = outgoing[kind.ordinal()];
+        List<NodeInfo> found = new ArrayList<>();
+        BitSet seen = new BitSet(nodes.length);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        seen.set(start);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            if (condition.test(nodes[node])) {
+                found.add(nodes[node]);
+            }
+            for (int successor : successors[node]) {
+                if (!seen.get(successor)) {
+                    seen.set(successor);
+                    queue.add(successor);
+                }
+            }
+        }
+        return found;
+    }
+
+    private List<NodeInfo> toNodes(int[] nodeIds) {
+        List<NodeInfo> result = new ArrayList<>(nodeIds.length);
+        for (int id : nodeIds) {
+            result.add(nodes[id]);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,147 @@
+package abstractdebugging;
+
+import analysis.AnalysisGeneration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class ARGNodeCache.
+ * <p>
+ * Caches the ARG nodes looked up from Goblint by their node IDs, and the ARG nodes of CFG nodes by the CFG node IDs.
+ * The ARG only changes when a new analysis completes, so the cached nodes are tagged with the analysis generation
+ * and the whole cache is invalidated when the generation advances.
+ * Nodes looked up in an older generation are not added to the cache, as they may belong to the previous ARG.
+ * The least recently used nodes are evicted once the configured number of nodes is cached.
+ *
+ * @since 0.0.5
+ */
+public class ARGNodeCache {
+
+    /**
+     * The hits and misses of the cache since it was created.
+     *
+     * @param hits          the number of lookups answered from the cache
+     * @param misses        the number of lookups that had to be sent to Goblint
+     * @param invalidations the number of times the cache was invalidated by a new analysis
+     * @param size          the number of nodes and CFG nodes currently cached
+     */
+    public record Statistics(long hits, long misses, long invalidations, int size) {
+    }
+
+    private final AnalysisGeneration generation;
+    private int cacheGeneration = -1;
+    private final Map<String, NodeInfo> nodes;
+    private final Map<String, List<NodeInfo>> nodesByCFGNode;
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+
+    private final Logger log = LogManager.getLogger(ARGNodeCache.class);
+
+    /**
+     * @param generation the generation of the analysis the ARG belongs to
+     * @param maxNodes   the maximum number of ARG nodes and CFG nodes cached each
+     */
+    public ARGNodeCache(AnalysisGeneration generation, int maxNodes) {
+        this.generation = generation;
+        this.nodes = lruMap(maxNodes);
+        this.nodesByCFGNode = lruMap(maxNodes);
+    }
+
+    private static <V> Map<String, V> lruMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the current analysis generation, which the nodes looked up from Goblint from now on belong to.
+     */
+    public synchronized int currentGeneration() {
+        validate();
+        return cacheGeneration;
+    }
+
+    /**
+     * Returns the cached node with the given ID, or null if it is not cached.
+     */
+    public synchronized NodeInfo getNode(String nodeId) {
+        validate();
+        return count(nodes.get(nodeId));
+    }
+
+    /**
+     * Returns the cached ARG nodes of the CFG node with the given ID, or null if they are not cached.
+     */
+    public synchronized List<NodeInfo> getNodesOfCFGNode(String cfgNodeId) {
+        validate();
+        return count(nodesByCFGNode.get(cfgNodeId));
+    }
+
+    /**
+     * Caches the nodes looked up from Goblint.
+     *
+     * @param lookupGeneration the generation returned by {@link #currentGeneration()} before the nodes were looked up
+     */
+    public synchronized void putNodes(int lookupGeneration, List<NodeInfo> lookedUp) {
+        validate();
+        if (lookupGeneration != cacheGeneration) {
+            return;
+        }
+        for (NodeInfo node : lookedUp) {
+            nodes.put(node.nodeId(), node);
+        }
+    }
+
+    /**
+     * Caches the ARG nodes of a CFG node looked up from Goblint.
+     *
+     * @param lookupGeneration the generation returned by {@link #currentGeneration()} before the nodes were looked up
+     */
+    public synchronized void putNodesOfCFGNode(int lookupGeneration, String cfgNodeId, List<NodeInfo> lookedUp) {
+        validate();
+        if (lookupGeneration != cacheGeneration) {
+            return;
+        }
+        nodesByCFGNode.put(cfgNodeId, lookedUp);
+        putNodes(lookupGeneration, lookedUp);
+    }
+
+    public synchronized Statistics statistics() {
+        return new Statistics(hits, misses, invalidations, nodes.size() + nodesByCFGNode.size());
+    }
+
+    private <T> T count(T cached) {
+        if (cached == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return cached;
+    }
+
+    /**
+     * Invalidates the cache if a new analysis has completed since the nodes were cached.
+     */
+    private void validate() {
+        int current = generation.current();
+        if (current == cacheGeneration) {
+            return;
+        }
+        if (cacheGeneration >= 0) {
+            invalidations++;
+            log.debug("ARG node cache invalidated by analysis " + current + ": " + statistics());
+        }
+        cacheGeneration = current;
+        nodes.clear();
+        nodesByCFGNode.clear();
+    }
+
+}
@@ -0,0 +1,227 @@
+package abstractdebugging;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * The Class ARGTraversal.
+ * <p>
+ * Searches the ARG for the abstract debugger. The searches are iterative, so that long functions cannot overflow the stack.
+ * The search for matching nodes is breadth-first and looks up all nodes of a frontier from Goblint together,
+ * so it takes one round trip per frontier instead of one per visited node.
+ * Once the ARG has been indexed, the searches run on the index without any requests.
+ * <p>
+ * The entry nodes found by searching through Goblint are memoized by the IDs of all nodes the searches visited,
+ * as all nodes reachable by incoming CFG edges belong to the same function call. A search that reaches a node visited
+ * by another search uses the result of the other search, also if the other search is still in progress.
+ * The memo is cleared when a new analysis completes.
+ * <p>
+ * The number of nodes a single search may visit is limited, so that a search in a huge ARG fails instead of downloading it.
+ *
+ * @since 0.0.5
+ */
+public class ARGTraversal {
+
+    public static final int DEFAULT_MAX_VISITED_NODES = 1_000_000;
+    private static final int ENTRY_NODE_MEMO_SIZE = 100_000;
+
+    /**
+     * A search for an entry node.
+     */
+    private static class EntryNodeSearch {
+
+        private final int generation;
+        private final CompletableFuture<NodeInfo> result = new CompletableFuture<>();
+        // The search whose result this search uses, if any
+        private EntryNodeSearch waitingFor;
+
+        private EntryNodeSearch(int generation) {
+            this.generation = generation;
+        }
+
+    }
+
+    private final ResultsService resultsService;
+    private final int maxVisitedNodes;
+    private final Map<String, EntryNodeSearch> entryNodeSearches = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, EntryNodeSearch> eldest) {
+            return size() > ENTRY_NODE_MEMO_SIZE;
+        }
+    };
+    private int memoGeneration = -1;
+
+    /**
+     * @param maxVisitedNodes the maximum number of nodes a single search may visit
+     */
+    public ARGTraversal(ResultsService resultsService, int maxVisitedNodes) {
+        this.resultsService = resultsService;
+        this.maxVisitedNodes = maxVisitedNodes;
+    }
+
+    /**
+     * Finds the entry node for the function that contains the given ARG node.
+     * The entry node is the first node of a function call, i.e. the node without incoming CFG edges.
+     * The returned future completes exceptionally with IllegalStateException if no entry node was found
+     * or the search visited more nodes than allowed.
+     */
+    public CompletableFuture<NodeInfo> findEntryNode(NodeInfo node) {
+        NodeInfo indexed = resultsService.completedArgIndex().map(i -> i.entryNode(node.nodeId())).orElse(null);
+        if (indexed != null) {
+            return CompletableFuture.completedFuture(indexed);
+        }
+        EntryNodeSearch search = new EntryNodeSearch(resultsService.currentGeneration());
+        CompletableFuture<NodeInfo> known = visit(node.nodeId(), search);
+        if (known == null) {
+            Set<String> seenNodes = new HashSet<>();
+            seenNodes.add(node.nodeId());
+            findEntryNodeFrom(new ArrayDeque<>(List.of(node)), seenNodes, search)
+                    .whenComplete((entryNode, e) -> {
+                        if (e != null) {
+                            search.result.completeExceptionally(e);
+                        } else {
+                            search.result.complete(entryNode);
+                        }
+                    });
+            known = search.result;
+        }
+        return known.thenApply(entryNode -> {
+            if (entryNode == null) {
+                throw new IllegalStateException("Failed to find entry node for node " + node.nodeId());
+            }
+            return entryNode;
+        });
+    }
+
+    /**
+     * Searches the entry node depth-first, because following any path of incoming CFG edges leads to the entry node,
+     * so that only the nodes on a single path are usually looked up. Each lookup is a round trip to Goblint,
+     * which is as many round trips as a breadth-first search needs for the same path.
+     *
+     * @param stack the nodes to visit next, the next node on top
+     */
+    private CompletableFuture<NodeInfo> findEntryNodeFrom(Deque<NodeInfo> stack, Set<String> seenNodes, EntryNodeSearch search) {
+        while (!stack.isEmpty()) {
+            NodeInfo node = stack.pop();
+            if (node.incomingCFGEdges().isEmpty()) {
+                return CompletableFuture.completedFuture(node);
+            }
+            String nextId = null;
+            for (EdgeInfo edge : node.incomingCFGEdges()) {
+                if (!seenNodes.contains(edge.nodeId())) {
+                    CompletableFuture<NodeInfo> known = visit(edge.nodeId(), search);
+                    if (known != null) {
+                        return known;
+                    }
+                    nextId = edge.nodeId();
+                    break;
+                }
+            }
+            if (nextId == null) {
+                continue;
+            }
+            // Keep the node to return to its other predecessors if the path of this one does not lead to the entry node
+            stack.push(node);
+            seenNodes.add(nextId);
+            if (seenNodes.size() > maxVisitedNodes) {
+                return CompletableFuture.failedFuture(visitLimitExceeded());
+            }
+            CompletableFuture<NodeInfo> lookup = resultsService.lookupNodeAsync(nextId);
+            if (!lookup.isDone() || lookup.isCompletedExceptionally()) {
+                return lookup.thenCompose(next -> {
+                    stack.push(next);
+                    return findEntryNodeFrom(stack, seenNodes, search);
+                });
+            }
+            stack.push(lookup.join());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Memoizes that the given search visits the node with the given ID, unless another search has already visited it.
+     * A search does not use the result of another search that is, directly or through other searches, using its result.
+     *
+     * @return the result of the other search that has visited the node, or null if the given search should visit it.
+     */
+    private synchronized CompletableFuture<NodeInfo> visit(String nodeId, EntryNodeSearch search) {
+        int current = resultsService.currentGeneration();
+        if (current != memoGeneration) {
+            memoGeneration = current;
+            entryNodeSearches.clear();
+        }
+        if (search.generation != current) {
+            // The search belongs to a previous analysis
+            return null;
+        }
+        EntryNodeSearch other = entryNodeSearches.get(nodeId);
+        if (other == null || other.result.isCompletedExceptionally()) {
+            entryNodeSearches.put(nodeId, search);
+            return null;
+        }
+        for (EntryNodeSearch s = other; s != null; s = s.waitingFor) {
+            if (s == search) {
+                return null;
+            }
+        }
+        search.waitingFor = other;
+        return other.result;
+    }
+
+    /**
+     * Finds all nodes matching the given condition that are inside the subgraph accessible
+     * by repeatedly traversing outgoing edges of the given kind starting from the given node.
+     * The nodes are returned in breadth-first order.
+     * The returned future completes exceptionally with IllegalStateException if the search visited more nodes than allowed.
+     */
+    public CompletableFuture<List<NodeInfo>> findMatchingNodes(NodeInfo node, ARGIndex.EdgeKind edgeKind, Predicate<NodeInfo> condition) {
+        List<NodeInfo> indexed = resultsService.completedArgIndex().map(i -> i.findMatchingNodes(node.nodeId(), edgeKind, condition)).orElse(null);
+        if (indexed != null) {
+            return CompletableFuture.completedFuture(indexed);
+        }
+        Set<String> seenNodes = new HashSet<>();
+        seenNodes.add(node.nodeId());
+        return findMatchingNodesFrom(List.of(node), edgeKind, condition, seenNodes, new ArrayList<>());
+    }
+
+    /**
+     * Searches the matching nodes breadth-first, looking up all nodes of the next frontier together.
+     *
+     * @param frontier   the nodes to visit next
+     * @param foundNodes the matching nodes found so far
+     */
+    private CompletableFuture<List<NodeInfo>> findMatchingNodesFrom(List<NodeInfo> frontier, ARGIndex.EdgeKind edgeKind, Predicate<NodeInfo> condition,
+                                                                    Set<String> seenNodes, List<NodeInfo> foundNodes) {
+        while (true) {
+            List<String> nextIds = new ArrayList<>();
+            for (NodeInfo node : frontier) {
+                if (condition.test(node)) {
+                    foundNodes.add(node);
+                }
+                for (EdgeInfo edge : edgeKind.outgoingEdges(node)) {
+                    if (seenNodes.add(edge.nodeId())) {
+                        nextIds.add(edge.nodeId());
+                    }
+                }
+            }
+            if (nextIds.isEmpty()) {
+                return CompletableFuture.completedFuture(foundNodes);
+            }
+            if (seenNodes.size() > maxVisitedNodes) {
+                return CompletableFuture.failedFuture(visitLimitExceeded());
+            }
+            CompletableFuture<List<NodeInfo>> lookup = resultsService.lookupNodesAsync(nextIds);
+            if (!lookup.isDone() || lookup.isCompletedExceptionally()) {
+                return lookup.thenCompose(next -> findMatchingNodesFrom(next, edgeKind, condition, seenNodes, foundNodes));
+            }
+            // Continue in the loop if the nodes were cached, instead of nesting the searches of the next frontiers
+            frontier = lookup.join();
+        }
+    }
+
+    private IllegalStateException visitLimitExceeded() {
+        return new IllegalStateException("Searching the ARG was stopped after visiting " + maxVisitedNodes + " nodes");
+    }
+
+}
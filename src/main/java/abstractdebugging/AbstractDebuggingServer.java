@@ -21,8 +21,10 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
@@ -54,6 +56,21 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
      */
     private static final int FRAME_ID_THREAD_ID_MULTIPLIER = 100_000;
 
+    /**
+     * Maximum number of evaluations of a breakpoint condition that are sent to Goblint at a time.
+     */
+    private static final int MAX_CONCURRENT_EVALUATIONS = 64;
+
+    /**
+     * Maximum number of nodes whose variable scopes are cached until the threads stop again.
+     */
+    private static final int MAX_CACHED_SCOPES = 1_000;
+
+    /**
+     * Maximum number of variable references that are live at a time.
+     */
+    private static final int MAX_VARIABLE_REFERENCES = 100_000;
+
     /**
      * Set of built-in and standard library variables. They are generally hidden in variable views to reduce noise.
      * List taken from <a href="https://github.com/goblint/analyzer/blob/master/src/framework/control.ml#L237-L243">is_std function in Goblint</a>.
@@ -67,6 +84,7 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
     );
 
     private final ResultsService resultsService;
+    private final ARGTraversal argTraversal;
 
     private final EventQueue eventQueue = new EventQueue();
     private IDebugProtocolClient client;
@@ -76,14 +94,27 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
     private int activeBreakpoint = -1;
     private final Map<Integer, ThreadState> threads = new LinkedHashMap<>();
 
-    private final Map<String, Scope[]> nodeScopes = new HashMap<>();
-    private final List<Variable[]> storedVariables = new ArrayList<>();
+    private final Map<String, Scope[]> nodeScopes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Scope[]> eldest) {
+            return size() > MAX_CACHED_SCOPES;
+        }
+    };
+    private final VariableReferenceStore variableReferences = new VariableReferenceStore(MAX_VARIABLE_REFERENCES);
 
     private final Logger log = LogManager.getLogger(AbstractDebuggingServer.class);
 
 
     public AbstractDebuggingServer(ResultsService resultsService) {
+        this(resultsService, ARGTraversal.DEFAULT_MAX_VISITED_NODES);
+    }
+
+    /**
+     * @param maxVisitedNodes the maximum number of ARG nodes a single search of the ARG may visit
+     */
+    public AbstractDebuggingServer(ResultsService resultsService, int maxVisitedNodes) {
         this.resultsService = resultsService;
+        this.argTraversal = new ARGTraversal(resultsService, maxVisitedNodes);
     }
 
     /**
@@ -219,18 +250,31 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
 
     /**
      * Finds target nodes having the given CFG node and matching the conditional expression if provided.
+     * The condition is evaluated on the first node alone, so that an invalid condition fails after a single request,
+     * and then on the remaining nodes concurrently, at most {@link #MAX_CONCURRENT_EVALUATIONS} at a time.
      *
      * @throws IllegalArgumentException if evaluating the condition failed.
      */
     private List<NodeInfo> findTargetNodes(CFGNodeInfo cfgNode, @Nullable ConditionalExpression condition) {
-        var candidateNodes = resultsService.lookupNodes(LookupParams.byCFGNodeId(cfgNode.cfgNodeId()));
-        if (condition == null) {
+        var candidateNodes = resultsService.lookupNodesOfCFGNode(cfgNode.cfgNodeId());
+        if (condition == null || candidateNodes.isEmpty()) {
             return candidateNodes;
-        } else {
-            return candidateNodes.stream()
-                    .filter(n -> condition.evaluateCondition(n, resultsService))
-                    .toList();
         }
+        long start = System.currentTimeMillis();
+        List<Boolean> matches = new ArrayList<>(candidateNodes.size());
+        matches.add(condition.evaluateCondition(candidateNodes.get(0), resultsService));
+        matches.addAll(ResultsService.join(ResultsService.mapInBatches(
+                candidateNodes.subList(1, candidateNodes.size()),
+                MAX_CONCURRENT_EVALUATIONS,
+                node -> condition.evaluateConditionAsync(node, resultsService)
+        )));
+        List<NodeInfo> targetNodes = IntStream.range(0, candidateNodes.size())
+                .filter(matches::get)
+                .mapToObj(candidateNodes::get)
+                .toList();
+        log.info("Evaluated condition of breakpoint at " + cfgNode.location() + " on " + candidateNodes.size() + " nodes in "
+                + (System.currentTimeMillis() - start) + " ms, " + targetNodes.size() + " matched");
+        return targetNodes;
     }
 
     /**
@@ -260,6 +304,8 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
      */
     @Override
     public CompletableFuture<Void> launch(Map<String, Object> args) {
+        // Start downloading the ARG, if it is indexed, while the client configures the breakpoints
+        resultsService.argIndexAsync();
         // Start configuration by notifying that client is initialized.
         client.initialized();
         log.info("Debug adapter initialized, waiting for configuration");
@@ -367,15 +413,19 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
             // Only show CFG edges as step in targets if there is no stepping over function calls and there is branching
             if (currentNode.outgoingEntryEdges().isEmpty() && currentNode.outgoingCFGEdges().size() > 1) {
                 var cfgEdges = currentNode.outgoingCFGEdges();
+                // Look up the target nodes and evaluate the assigned values of all edges concurrently
+                var nodes = resultsService.lookupNodesAsync(cfgEdges.stream().map(EdgeInfo::nodeId).toList());
+                var lvals = ResultsService.allOf(cfgEdges.stream()
+                        .map(edge -> edge.lval() == null
+                                ? CompletableFuture.completedFuture("")
+                                : resultsService.evaluateExpressionAsync(edge.nodeId(), edge.lval()).thenApply(value -> " " + domainValueToString(value)))
+                        .toList());
                 for (int i = 0; i < cfgEdges.size(); i++) {
                     var edge = cfgEdges.get(i);
-                    var node = resultsService.lookupNode(edge.nodeId());
-                    var lval = edge.lval();
-                    lval = lval == null ? "" : " " + domainValueToString(resultsService.evaluateExpression(edge.nodeId(), edge.lval()));
                     forwardTargets.add(target(
                             STEP_OVER_OFFSET + i,
-                            "Step: " + edge.statementDisplayString() + lval,
-                            node.location()
+                            "Step: " + edge.statementDisplayString() + ResultsService.join(lvals).get(i),
+                            ResultsService.join(nodes).get(i).location()
                     ));
                 }
             }
@@ -402,13 +452,13 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
 
             if (currentNode.incomingCFGEdges().size() > 1) {
                 var cfgEdges = currentNode.incomingCFGEdges();
+                var nodes = resultsService.lookupNodes(cfgEdges.stream().map(EdgeInfo::nodeId).toList());
                 for (int i = 0; i < cfgEdges.size(); i++) {
                     var edge = cfgEdges.get(i);
-                    var node = resultsService.lookupNode(edge.nodeId());
                     backwardTargets.add(target(
                             STEP_BACK_OVER_OFFSET + i,
                             "Step back: " + edge.statementDisplayString(),
-                            node.location()
+                            nodes.get(i).location()
                     ));
                 }
             }
@@ -635,7 +685,7 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
                     filter = _id -> true;
                 } else {
                     // If not thread exit then filter possible nodes after function call in parent frame to those that are also possible return targets of current frame.
-                    Set<String> returnNodeIds = findMatchingNodes(currentNode, NodeInfo::outgoingCFGEdges, e -> !e.outgoingReturnEdges().isEmpty()).stream()
+                    Set<String> returnNodeIds = findMatchingNodes(currentNode, ARGIndex.EdgeKind.CFG, e -> !e.outgoingReturnEdges().isEmpty()).stream()
                             .flatMap(n -> n.outgoingReturnEdges().stream())
                             .map(EdgeInfo::nodeId)
                             .collect(Collectors.toSet());
@@ -727,11 +777,16 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
             }
 
             if (!targetNodes.isEmpty()) {
-                setThreads(
-                        targetNodes.stream()
-                                .map(node -> new ThreadState("breakpoint " + node.nodeId(), assembleStackTrace(node)))
-                                .toList()
-                );
+                // Assemble the stack traces of all target nodes concurrently, sharing the frames of common callers
+                Map<String, CompletableFuture<List<StackFrameState>>> callerFrames = new ConcurrentHashMap<>();
+                List<List<StackFrameState>> stackTraces = ResultsService.join(ResultsService.allOf(
+                        targetNodes.stream().map(node -> assembleStackTraceAsync(node, callerFrames)).toList()
+                ));
+                List<ThreadState> newThreads = new ArrayList<>();
+                for (int i = 0; i < targetNodes.size(); i++) {
+                    newThreads.add(new ThreadState("breakpoint " + targetNodes.get(i).nodeId(), stackTraces.get(i)));
+                }
+                setThreads(newThreads);
 
                 onThreadsStopped(stopReason, threads.keySet().stream().findFirst().orElseThrow());
 
@@ -756,17 +811,18 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
      */
     private void stepAllThreadsOverMatchingEdge(int primaryThreadId, EdgeInfo primaryTargetEdge, Function<NodeInfo, List<? extends EdgeInfo>> getCandidateEdges)
             throws IllegalStepException {
-        List<Pair<ThreadState, NodeInfo>> steps = new ArrayList<>();
+        // The target nodes of all threads are looked up concurrently
+        List<Pair<ThreadState, CompletableFuture<NodeInfo>>> steps = new ArrayList<>();
         for (var thread : threads.values()) {
             StackFrameState currentFrame = thread.getCurrentFrame();
 
-            NodeInfo targetNode;
+            CompletableFuture<NodeInfo> targetNode;
             if (currentFrame.getNode() != null) {
                 List<? extends EdgeInfo> candidateEdges = getCandidateEdges.apply(currentFrame.getNode());
                 EdgeInfo targetEdge = findTargetEdge(primaryTargetEdge, candidateEdges, thread.getName());
-                targetNode = targetEdge == null ? null : resultsService.lookupNode(targetEdge.nodeId());
+                targetNode = targetEdge == null ? CompletableFuture.completedFuture(null) : resultsService.lookupNodeAsync(targetEdge.nodeId());
             } else if (currentFrame.getLastReachableNode() != null && currentFrame.getLastReachableNode().cfgNodeId().equals(primaryTargetEdge.cfgNodeId())) {
-                targetNode = currentFrame.getLastReachableNode();
+                targetNode = CompletableFuture.completedFuture(currentFrame.getLastReachableNode());
             } else {
                 continue;
             }
@@ -774,10 +830,10 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
             steps.add(Pair.of(thread, targetNode));
         }
 
-        for (var step : steps) {
-            ThreadState thread = step.getLeft();
-            NodeInfo targetNode = step.getRight();
-            thread.getCurrentFrame().setNode(targetNode);
+        List<NodeInfo> targetNodes = ResultsService.join(ResultsService.allOf(steps.stream().map(Pair::getRight).toList()));
+        for (int i = 0; i < steps.size(); i++) {
+            ThreadState thread = steps.get(i).getLeft();
+            thread.getCurrentFrame().setNode(targetNodes.get(i));
         }
 
         onThreadsStopped("step", primaryThreadId);
@@ -808,10 +864,11 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
             steps.add(Pair.of(thread, targetEdge));
         }
 
-        for (var step : steps) {
-            ThreadState thread = step.getLeft();
-            EdgeInfo targetEdge = step.getRight();
-            NodeInfo targetNode = resultsService.lookupNode(targetEdge.nodeId());
+        List<NodeInfo> targetNodes = resultsService.lookupNodes(steps.stream().map(step -> step.getRight().nodeId()).toList());
+        for (int i = 0; i < steps.size(); i++) {
+            ThreadState thread = steps.get(i).getLeft();
+            EdgeInfo targetEdge = steps.get(i).getRight();
+            NodeInfo targetNode = targetNodes.get(i);
             boolean isNewThread = targetEdge instanceof FunctionCallEdgeInfo fce && fce.createsNewThread();
             thread.pushFrame(new StackFrameState(targetNode, false, thread.getCurrentFrame().getLocalThreadIndex() - (isNewThread ? 1 : 0)));
         }
@@ -882,18 +939,17 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
         }
 
         threads.keySet().removeIf(t -> !frameIndexes.containsKey(t));
+        Map<String, CompletableFuture<List<StackFrameState>>> callerFrames = new ConcurrentHashMap<>();
         for (var threadEntry : threads.entrySet()) {
             int threadId = threadEntry.getKey();
             ThreadState thread = threadEntry.getValue();
 
             int frameIndex = frameIndexes.get(threadId);
             // Remove all frames on top of the target frame
-            thread.getFrames().subList(0, frameIndex).clear();
+            thread.popFrames(frameIndex);
             if (thread.getCurrentFrame().isAmbiguousFrame()) {
                 // If the target frame is ambiguous then rebuild stack
-                List<StackFrameState> newStackTrace = assembleStackTrace(thread.getCurrentFrame().getNode());
-                thread.getFrames().clear();
-                thread.getFrames().addAll(newStackTrace);
+                thread.setFrames(ResultsService.join(assembleStackTraceAsync(thread.getCurrentFrame().getNode(), callerFrames)));
             }
             if (restart) {
                 NodeInfo startNode = thread.getCurrentFrame().getNode() != null ? thread.getCurrentFrame().getNode() : thread.getCurrentFrame().getLastReachableNode();
@@ -1007,17 +1063,19 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
             throw new IllegalStateException("Attempt to request variables for unavailable frame " + args.getFrameId());
         }
 
+        // Scopes whose variable references have been evicted are computed again.
+        nodeScopes.computeIfPresent(frame.getNode().nodeId(), (nodeId, cached) -> Arrays.stream(cached)
+                .allMatch(scope -> variableReferences.contains(scope.getVariablesReference())) ? cached : null);
         Scope[] scopes = nodeScopes.computeIfAbsent(frame.getNode().nodeId(), nodeId -> {
             NodeInfo currentNode = frame.getNode();
 
             JsonObject state = resultsService.lookupState(currentNode.nodeId());
-            JsonElement globalState = resultsService.lookupGlobalState();
-            Map<String, GoblintVarinfo> varinfos = resultsService.getVarinfos().stream()
-                    .filter(v -> (v.function() == null || v.function().equals(currentNode.function())) && !"function".equals(v.role()))
+            Map<String, GoblintVarinfo> varinfos = resultsService.getVisibleVarinfos(currentNode.function()).stream()
                     .collect(Collectors.toMap(GoblintVarinfo::name, v -> v));
 
             List<Variable> localVariables = new ArrayList<>();
             List<Variable> globalVariables = new ArrayList<>();
+            List<GoblintVarinfo> shownGlobals = new ArrayList<>();
 
             if (state.has("threadflag")) {
                 globalVariables.add(domainValueToVariable("<threadflag>", "(analysis threading mode)", state.get("threadflag")));
@@ -1065,6 +1123,9 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
                     value = resultsService.evaluateExpression(currentNode.nodeId(), varinfo.name());
                 }
 
+                if (varinfo.function() == null) {
+                    shownGlobals.add(varinfo);
+                }
                 List<Variable> scope = varinfo.function() == null ? globalVariables : localVariables;
 
                 scope.add(domainValueToVariable(name, varinfo.type(), value));
@@ -1072,7 +1133,15 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
 
             List<Variable> rawVariables = new ArrayList<>();
             rawVariables.add(domainValueToVariable("(local-state)", "local state; result of arg/state request", state));
-            rawVariables.add(domainValueToVariable("(global-state)", "global state; result of global-state request", globalState));
+            // The global state is only requested from Goblint when the client expands it.
+            rawVariables.add(compoundVariable(
+                    "(global-state)",
+                    "global state of visible globals; result of global-state requests",
+                    shownGlobals.isEmpty() ? "{}" : "{" + shownGlobals.stream().map(v -> v.name() + ": …").collect(Collectors.joining(", ")) + "}",
+                    shownGlobals.isEmpty() ? null : () -> lookupGlobalStates(shownGlobals).entrySet().stream()
+                            .map(f -> domainValueToVariable(f.getKey(), null, f.getValue()))
+                            .toArray(Variable[]::new)
+            ));
 
             return new Scope[]{
                     scope("Local", localVariables),
@@ -1086,16 +1155,43 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
         return CompletableFuture.completedFuture(response);
     }
 
+    /**
+     * Finds the global states of the given global variables, keyed by variable name.
+     * Only the states of the given globals are requested from Goblint, at most {@link #MAX_CONCURRENT_EVALUATIONS} at a time.
+     */
+    private JsonObject lookupGlobalStates(List<GoblintVarinfo> globals) {
+        List<JsonElement> states = ResultsService.join(ResultsService.mapInBatches(
+                globals,
+                MAX_CONCURRENT_EVALUATIONS,
+                varinfo -> resultsService.lookupGlobalStateAsync(varinfo.vid())));
+        JsonObject globalState = new JsonObject();
+        for (int i = 0; i < globals.size(); i++) {
+            globalState.add(globals.get(i).name(), states.get(i));
+        }
+        return globalState;
+    }
+
     /**
      * Returns variables for the given variable reference (a variable reference is generally a variable scope or a complex variable).
      */
     @Override
     public CompletableFuture<VariablesResponse> variables(VariablesArguments args) {
+        Variable[] variables = variableReferences.get(args.getVariablesReference());
+        if (variables == null) {
+            return CompletableFuture.failedFuture(userFacingError("Variables are no longer available. Variable references are only valid until the next step."));
+        }
         var response = new VariablesResponse();
-        response.setVariables(getVariables(args.getVariablesReference()));
+        response.setVariables(variables);
         return CompletableFuture.completedFuture(response);
     }
 
+    /**
+     * Returns the statistics of the variable references allocated since the debugger was created.
+     */
+    public VariableReferenceStore.Statistics variableReferenceStatistics() {
+        return variableReferences.statistics();
+    }
+
     /**
      * Evaluates the given expression and returns the result.
      */
@@ -1129,48 +1225,75 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
 
     /**
      * Converts a Goblint domain value into a DAP variable.
+     * The fields of a compound value are converted into variables only when the client requests them.
      * Note: Variables may contain variable references. Variable references are only valid until the next step.
      */
     private Variable domainValueToVariable(String name, @Nullable String type, JsonElement value) {
         if (value.isJsonObject()) {
+            var valueObject = value.getAsJsonObject();
             return compoundVariable(
                     name,
                     type,
-                    false,
-                    value.getAsJsonObject().entrySet().stream()
+                    domainValuePreview(value),
+                    valueObject.size() == 0 ? null : () -> valueObject.entrySet().stream()
                             .map(f -> domainValueToVariable(f.getKey(), null, f.getValue()))
                             .toArray(Variable[]::new)
             );
+        } else if (isCompoundDomainValue(value)) {
+            var valueArray = value.getAsJsonArray();
+            return compoundVariable(
+                    name,
+                    type,
+                    domainValuePreview(value),
+                    () -> IntStream.range(0, valueArray.size())
+                            .mapToObj(i -> domainValueToVariable(Integer.toString(i), null, valueArray.get(i)))
+                            .toArray(Variable[]::new)
+            );
+        }
+        return variable(name, type, domainValueToString(value));
+    }
+
+    /**
+     * Checks if a Goblint domain value is displayed as a compound variable.
+     */
+    private static boolean isCompoundDomainValue(JsonElement value) {
+        if (value.isJsonObject()) {
+            return true;
         } else if (value.isJsonArray()) {
             var valueArray = value.getAsJsonArray();
             // Integer domains are generally represented as an array of 1-4 strings.
             // We want to display that as a non-compound variable for compactness and readability.
             // As a general heuristic, only arrays containing compound values or longer than 4 elements are displayed as compound variables.
-            boolean displayAsCompound;
             if (valueArray.size() > 4) {
-                displayAsCompound = true;
-            } else {
-                displayAsCompound = false;
-                for (JsonElement jsonElement : valueArray) {
-                    if (!jsonElement.isJsonPrimitive()) {
-                        displayAsCompound = true;
-                        break;
-                    }
+                return true;
+            }
+            for (JsonElement jsonElement : valueArray) {
+                if (!jsonElement.isJsonPrimitive()) {
+                    return true;
                 }
             }
+        }
+        return false;
+    }
 
-            if (displayAsCompound) {
-                return compoundVariable(
-                        name,
-                        type,
-                        true,
-                        IntStream.range(0, valueArray.size())
-                                .mapToObj(i -> domainValueToVariable(Integer.toString(i), null, valueArray.get(i)))
-                                .toArray(Variable[]::new)
-                );
+    /**
+     * Constructs the preview string of the DAP variable for a Goblint domain value.
+     * Compound fields are not previewed, except for the first element of an array.
+     */
+    private static String domainValuePreview(JsonElement value) {
+        if (value.isJsonObject()) {
+            var valueObject = value.getAsJsonObject();
+            if (valueObject.size() == 0) {
+                return "{}";
             }
+            return "{" + valueObject.entrySet().stream()
+                    .map(f -> f.getKey() + ": " + (isCompoundDomainValue(f.getValue()) ? "…" : domainValueToString(f.getValue())))
+                    .collect(Collectors.joining(", ")) + "}";
+        } else if (isCompoundDomainValue(value)) {
+            var valueArray = value.getAsJsonArray();
+            return "[" + domainValuePreview(valueArray.get(0)) + (valueArray.size() > 1 ? ", …" : "") + "]";
         }
-        return variable(name, type, domainValueToString(value));
+        return domainValueToString(value);
     }
 
     /**
@@ -1198,41 +1321,29 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
     private Scope scope(String name, List<Variable> variables) {
         Scope scope = new Scope();
         scope.setName(name);
-        scope.setVariablesReference(storeVariables(variables.toArray(Variable[]::new)));
+        Variable[] scopeVariables = variables.toArray(Variable[]::new);
+        scope.setVariablesReference(variableReferences.store(() -> scopeVariables));
         return scope;
     }
 
     /**
      * Convenience function to construct a DAP compound variable.
-     * Note: The given fields are stored as variable references. Variable references are only valid until the next step.
+     * Note: The fields are stored as a variable reference and constructed when they are first requested.
+     * Variable references are only valid until the next step.
+     *
+     * @param fields constructs the fields of the variable, or null if the variable has no fields
      */
-    private Variable compoundVariable(String name, @Nullable String type, boolean isArray, Variable... fields) {
+    private Variable compoundVariable(String name, @Nullable String type, String preview, @Nullable Supplier<Variable[]> fields) {
         Variable variable = new Variable();
         variable.setName(name);
         variable.setType(type);
-        variable.setValue(compoundVariablePreview(isArray, fields));
-        if (fields.length > 0) {
-            variable.setVariablesReference(storeVariables(fields));
+        variable.setValue(preview);
+        if (fields != null) {
+            variable.setVariablesReference(variableReferences.store(fields));
         }
         return variable;
     }
 
-    /**
-     * Constructs a preview string for a compound variable.
-     */
-    private static String compoundVariablePreview(boolean isArray, Variable... fields) {
-        if (fields.length == 0) {
-            return isArray ? "[]" : "{}";
-        }
-        if (isArray) {
-            return "[" + fields[0].getValue() + (fields.length > 1 ? ", …" : "") + "]";
-        } else {
-            return "{" + Arrays.stream(fields)
-                    .map(f -> f.getName() + ": " + (f.getVariablesReference() == 0 ? f.getValue() : "…"))
-                    .collect(Collectors.joining(", ")) + "}";
-        }
-    }
-
     /**
      * Convenience function to construct a DAP variable.
      */
@@ -1283,21 +1394,13 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
         }
     }
 
-    private Variable[] getVariables(int variablesReference) {
-        return storedVariables.get(variablesReference - 1);
-    }
-
-    private int storeVariables(Variable[] variables) {
-        storedVariables.add(variables);
-        return storedVariables.size();
-    }
-
     /**
      * Logic that should run every time after threads have stopped after a step or breakpoint.
      * Notifies client that threads have stopped and clears caches that should be invalidated whenever thread state changes.)
      */
     private void onThreadsStopped(String stopReason, int primaryThreadId) {
-        storedVariables.clear();
+        log.debug("Reclaiming variable references: " + variableReferences.statistics());
+        variableReferences.reclaim();
         nodeScopes.clear();
 
         var event = new StoppedEventArguments();
@@ -1309,24 +1412,65 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
 
     /**
      * Logic to assemble a stack trace with the given start node as the topmost frame.
+     * The frames below the topmost frame are shared with the other stack traces assembled with the same caller frames.
+     *
+     * @param callerFrames the caller frames of the function calls by their entry nodes and local thread indexes
      */
-    private List<StackFrameState> assembleStackTrace(NodeInfo startNode) {
-        int curThreadId = 0;
-        List<StackFrameState> stackFrames = new ArrayList<>();
-        stackFrames.add(new StackFrameState(startNode, false, curThreadId));
-        NodeInfo entryNode;
-        do {
-            entryNode = getEntryNode(stackFrames.get(stackFrames.size() - 1).getNode());
-            boolean ambiguous = entryNode.incomingEntryEdges().size() > 1;
-            for (var edge : entryNode.incomingEntryEdges()) {
-                if (edge.createsNewThread()) {
-                    curThreadId += 1;
-                }
-                var node = resultsService.lookupNode(edge.nodeId());
-                stackFrames.add(new StackFrameState(node, ambiguous, curThreadId));
-            }
-        } while (entryNode.incomingEntryEdges().size() == 1);
-        return stackFrames;
+    private CompletableFuture<List<StackFrameState>> assembleStackTraceAsync(NodeInfo startNode,
+                                                                             Map<String, CompletableFuture<List<StackFrameState>>> callerFrames) {
+        return getCallerFramesAsync(startNode, 0, callerFrames)
+                .thenApply(callers -> {
+                    List<StackFrameState> stackFrames = new ArrayList<>(callers.size() + 1);
+                    stackFrames.add(new StackFrameState(startNode, false, 0));
+                    stackFrames.addAll(callers);
+                    return stackFrames;
+                });
+    }
+
+    /**
+     * Returns the frames of the callers of the function that contains the given node until the caller is not uniquely defined.
+     * The callers only depend on the entry node of the function, so they are looked up once per entry node.
+     * The callers of the same function are looked up concurrently.
+     */
+    private CompletableFuture<List<StackFrameState>> getCallerFramesAsync(NodeInfo node, int curThreadId,
+                                                                          Map<String, CompletableFuture<List<StackFrameState>>> callerFrames) {
+        return getEntryNodeAsync(node)
+                .thenCompose(entryNode -> {
+                    CompletableFuture<List<StackFrameState>> frames = new CompletableFuture<>();
+                    var existing = callerFrames.putIfAbsent(entryNode.nodeId() + "/" + curThreadId, frames);
+                    if (existing != null) {
+                        return existing;
+                    }
+                    var entryEdges = entryNode.incomingEntryEdges();
+                    resultsService.lookupNodesAsync(entryEdges.stream().map(EdgeInfo::nodeId).toList())
+                            .thenCompose(callers -> {
+                                boolean ambiguous = entryEdges.size() > 1;
+                                int threadId = curThreadId;
+                                List<StackFrameState> stackFrames = new ArrayList<>();
+                                for (int i = 0; i < entryEdges.size(); i++) {
+                                    if (entryEdges.get(i).createsNewThread()) {
+                                        threadId += 1;
+                                    }
+                                    stackFrames.add(new StackFrameState(callers.get(i), ambiguous, threadId));
+                                }
+                                if (entryEdges.size() != 1) {
+                                    return CompletableFuture.completedFuture(stackFrames);
+                                }
+                                return getCallerFramesAsync(callers.get(0), threadId, callerFrames)
+                                        .thenApply(outerFrames -> {
+                                            stackFrames.addAll(outerFrames);
+                                            return stackFrames;
+                                        });
+                            })
+                            .whenComplete((stackFrames, e) -> {
+                                if (e != null) {
+                                    frames.completeExceptionally(e);
+                                } else {
+                                    frames.complete(stackFrames);
+                                }
+                            });
+                    return frames;
+                });
     }
 
     /**
@@ -1335,52 +1479,19 @@ public class AbstractDebuggingServer implements IDebugProtocolServer {
      * The first node of a function call in the ARG should be a synthetic node added by the CIL and consequently should always be uniquely defined.
      */
     private NodeInfo getEntryNode(NodeInfo node) {
-        NodeInfo entryNode = _getEntryNode(node, new HashSet<>());
-        if (entryNode == null) {
-            throw new IllegalStateException("Failed to find entry node for node " + node.nodeId());
-        }
-        return entryNode;
+        return ResultsService.join(getEntryNodeAsync(node));
     }
 
-    private NodeInfo _getEntryNode(NodeInfo node, Set<String> seenNodes) {
-        if (node.incomingCFGEdges().isEmpty()) {
-            return node;
-        }
-        if (seenNodes.contains(node.nodeId())) {
-            return null;
-        }
-        seenNodes.add(node.nodeId());
-        for (var edge : node.incomingCFGEdges()) {
-            NodeInfo entryNode = _getEntryNode(resultsService.lookupNode(edge.nodeId()), seenNodes);
-            if (entryNode != null) {
-                return entryNode;
-            }
-        }
-        return null;
+    private CompletableFuture<NodeInfo> getEntryNodeAsync(NodeInfo node) {
+        return argTraversal.findEntryNode(node);
     }
 
     /**
      * Finds all nodes matching the given condition that are inside the subgraph accessible
-     * by repeatedly traversing edges returned by candidateEdges starting from the given node.
+     * by repeatedly traversing outgoing edges of the given kind starting from the given node.
      */
-    private List<NodeInfo> findMatchingNodes(NodeInfo node, Function<NodeInfo, Collection<? extends EdgeInfo>> candidateEdges, Predicate<NodeInfo> condition) {
-        List<NodeInfo> foundNodes = new ArrayList<>();
-        _findMatchingNodes(node, candidateEdges, condition, new HashSet<>(), foundNodes);
-        return foundNodes;
-    }
-
-    private void _findMatchingNodes(NodeInfo node, Function<NodeInfo, Collection<? extends EdgeInfo>> candidateEdges, Predicate<NodeInfo> condition,
-                                    Set<String> seenNodes, List<NodeInfo> foundNodes) {
-        if (seenNodes.contains(node.nodeId())) {
-            return;
-        }
-        seenNodes.add(node.nodeId());
-        if (condition.test(node)) {
-            foundNodes.add(node);
-        }
-        for (var edge : candidateEdges.apply(node)) {
-            _findMatchingNodes(resultsService.lookupNode(edge.nodeId()), candidateEdges, condition, seenNodes, foundNodes);
-        }
+    private List<NodeInfo> findMatchingNodes(NodeInfo node, ARGIndex.EdgeKind edgeKind, Predicate<NodeInfo> condition) {
+        return ResultsService.join(argTraversal.findMatchingNodes(node, edgeKind, condition));
     }
 
     /**
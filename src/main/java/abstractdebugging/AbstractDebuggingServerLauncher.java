@@ -29,6 +29,7 @@ import java.util.concurrent.Executors;
 public class AbstractDebuggingServerLauncher {
 
     private final ResultsService resultsService;
+    private final int maxVisitedNodes;
 
     private final ExecutorService executorService = Executors.newCachedThreadPool(runnable -> {
         Thread thread = new Thread(runnable, "adb-server-worker");
@@ -39,7 +40,15 @@ public class AbstractDebuggingServerLauncher {
     private final Logger log = LogManager.getLogger(AbstractDebuggingServerLauncher.class);
 
     public AbstractDebuggingServerLauncher(ResultsService resultsService) {
+        this(resultsService, ARGTraversal.DEFAULT_MAX_VISITED_NODES);
+    }
+
+    /**
+     * @param maxVisitedNodes the maximum number of ARG nodes a single search of the ARG may visit
+     */
+    public AbstractDebuggingServerLauncher(ResultsService resultsService, int maxVisitedNodes) {
         this.resultsService = resultsService;
+        this.maxVisitedNodes = maxVisitedNodes;
     }
 
     /**
@@ -74,7 +83,7 @@ public class AbstractDebuggingServerLauncher {
                 AFUNIXSocket clientSocket = serverSocket.accept();
                 log.info("Accepted new connection to abstract debugging server.");
 
-                AbstractDebuggingServer abstractDebuggingServer = new AbstractDebuggingServer(resultsService);
+                AbstractDebuggingServer abstractDebuggingServer = new AbstractDebuggingServer(resultsService, maxVisitedNodes);
                 Launcher<IDebugProtocolClient> launcher = new AbstractDebuggingLauncherBuilder()
                         .setEventQueue(abstractDebuggingServer.getEventQueue())
                         .setLocalService(abstractDebuggingServer)
@@ -4,6 +4,8 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * @since 0.0.4
@@ -60,17 +62,36 @@ public record ConditionalExpression(boolean must, String expression) {
     }
 
     /**
-     * Evaluate expression as conditional at given node.
+     * Evaluate expression as conditional at given node. The results are cached by the results service until the next analysis completes.
      *
      * @throws IllegalArgumentException if evaluating the condition failed.
      */
     public boolean evaluateCondition(NodeInfo node, ResultsService resultsService) {
-        try {
-            var result = resultsService.evaluateIntegerExpression(node.nodeId(), "!!(" + expression + ")");
-            return must ? result.mustBeBool(true) : result.mayBeBool(true);
-        } catch (RequestFailedException e) {
-            throw new IllegalArgumentException("Error evaluating condition: " + e.getMessage());
-        }
+        return ResultsService.join(evaluateConditionAsync(node, resultsService));
+    }
+
+    /**
+     * Asynchronous variant of {@link #evaluateCondition}.
+     * The returned future completes exceptionally with IllegalArgumentException if evaluating the condition failed.
+     */
+    public CompletableFuture<Boolean> evaluateConditionAsync(NodeInfo node, ResultsService resultsService) {
+        return resultsService.evaluateConditionAsync(node.nodeId(), this);
+    }
+
+    /**
+     * Evaluates the expression as conditional at the node with the given id in Goblint, without caching.
+     */
+    CompletableFuture<Boolean> evaluateConditionInGoblintAsync(String nodeId, ResultsService resultsService) {
+        return resultsService.evaluateIntegerExpressionAsync(nodeId, "!!(" + expression + ")")
+                .handle((result, e) -> {
+                    if (e == null) {
+                        return must ? result.mustBeBool(true) : result.mayBeBool(true);
+                    }
+                    if ((e instanceof CompletionException ? e.getCause() : e) instanceof RequestFailedException requestFailed) {
+                        throw new IllegalArgumentException("Error evaluating condition: " + requestFailed.getMessage());
+                    }
+                    throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+                });
     }
 
     /**
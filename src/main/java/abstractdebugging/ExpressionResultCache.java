@@ -0,0 +1,164 @@
+package abstractdebugging;
+
+import analysis.AnalysisGeneration;
+import com.google.gson.JsonElement;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * The Class ExpressionResultCache.
+ * <p>
+ * Caches the results of evaluating expressions at ARG nodes, keyed by the node ID, the normalized expression and the evaluation mode.
+ * The results of an analysis do not change, so like {@link ARGNodeCache} the whole cache is invalidated only when the analysis generation advances.
+ * The pending evaluations are cached as well, so that concurrent evaluations of the same expression share a single request.
+ * Evaluations that fail because the expression is invalid are cached, other failures are not.
+ * The least recently used results are evicted once the configured number of results is cached.
+ *
+ * @since 0.0.5
+ */
+public class ExpressionResultCache {
+
+    /**
+     * How the expression is evaluated.
+     */
+    public enum Mode {
+        /**
+         * The abstract value of a C expression.
+         */
+        VALUE,
+        /**
+         * Whether a C expression may evaluate to true.
+         */
+        MAY,
+        /**
+         * Whether a C expression must evaluate to true.
+         */
+        MUST
+    }
+
+    private record Key(String nodeId, String expression, Mode mode) {
+    }
+
+    /**
+     * The hits and misses of the cache since it was created.
+     *
+     * @param hits          the number of evaluations answered from the cache
+     * @param misses        the number of evaluations that had to be sent to Goblint
+     * @param invalidations the number of times the cache was invalidated by a new analysis
+     * @param size          the number of results currently cached
+     */
+    public record Statistics(long hits, long misses, long invalidations, int size) {
+    }
+
+    private final AnalysisGeneration generation;
+    private int cacheGeneration = -1;
+    private final Map<Key, CompletableFuture<JsonElement>> results;
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+
+    private final Logger log = LogManager.getLogger(ExpressionResultCache.class);
+
+    /**
+     * @param generation the generation of the analysis the results belong to
+     * @param maxResults the maximum number of results cached
+     */
+    public ExpressionResultCache(AnalysisGeneration generation, int maxResults) {
+        this.generation = generation;
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<JsonElement>> eldest) {
+                return size() > maxResults;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result of evaluating the expression at the node, or evaluates and caches it if it is not cached.
+     *
+     * @param evaluate evaluates the expression in Goblint. The returned future completes exceptionally with
+     *                 RequestFailedException or IllegalArgumentException if the expression is invalid.
+     */
+    public synchronized CompletableFuture<JsonElement> computeIfAbsent(String nodeId, String expression, Mode mode,
+                                                                       Supplier<CompletableFuture<JsonElement>> evaluate) {
+        validate();
+        Key key = new Key(nodeId, normalize(expression), mode);
+        CompletableFuture<JsonElement> cached = results.get(key);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        int evaluationGeneration = cacheGeneration;
+        CompletableFuture<JsonElement> result = evaluate.get();
+        results.put(key, result);
+        result.whenComplete((value, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (e != null && !(cause instanceof RequestFailedException || cause instanceof IllegalArgumentException)) {
+                remove(evaluationGeneration, key, result);
+            }
+        });
+        return result;
+    }
+
+    private synchronized void remove(int evaluationGeneration, Key key, CompletableFuture<JsonElement> result) {
+        if (evaluationGeneration == cacheGeneration) {
+            results.remove(key, result);
+        }
+    }
+
+    public synchronized Statistics statistics() {
+        return new Statistics(hits, misses, invalidations, results.size());
+    }
+
+    /**
+     * Normalizes the whitespace in a C expression, so that expressions differing only in whitespace share results.
+     * Whitespace inside string and character literals is preserved.
+     */
+    static String normalize(String expression) {
+        StringBuilder normalized = new StringBuilder(expression.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(c);
+            if (quote != 0 && c == '\\' && i + 1 < expression.length()) {
+                normalized.append(expression.charAt(++i));
+            } else if (c == '"' || c == '\'') {
+                quote = quote == 0 ? c : quote == c ? 0 : quote;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Invalidates the cache if a new analysis has completed since the results were cached.
+     */
+    private void validate() {
+        int current = generation.current();
+        if (current == cacheGeneration) {
+            return;
+        }
+        if (cacheGeneration >= 0) {
+            invalidations++;
+            log.debug("Expression result cache invalidated by analysis " + current + ": " + statistics());
+        }
+        cacheGeneration = current;
+        results.clear();
+    }
+
+}
@@ -1,32 +1,196 @@
 package abstractdebugging;
 
+import analysis.AnalysisGeneration;
 import api.GoblintService;
 import api.messages.*;
 import api.messages.params.*;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 /**
- * Synchronous convenience methods for working with GoblintService for abstract debugging.
+ * Convenience methods for working with GoblintService for abstract debugging.
+ * Each method has an asynchronous variant, so that independent requests can be sent to Goblint concurrently,
+ * and a synchronous variant that waits for the result.
  * In the future this can be converted to an interface and mocked for testing purposes.
  *
  * @since 0.0.4
  */
 public class ResultsService {
 
+    private static final int NODE_CACHE_SIZE = 10_000;
+    private static final int EXPRESSION_CACHE_SIZE = 10_000;
+    // Maximum number of arg/lookup requests sent to Goblint at a time while downloading the ARG
+    private static final int MAX_CONCURRENT_DOWNLOADS = 64;
+
     private final GoblintService goblintService;
+    private final ARGNodeCache nodeCache;
+    private final ExpressionResultCache expressionCache;
+    private final int indexMaxNodes;
+    private int indexGeneration = -1;
+    private CompletableFuture<Optional<ARGIndex>> index = CompletableFuture.completedFuture(Optional.empty());
+    private int varinfosGeneration = -1;
+    private CompletableFuture<VarinfoIndex> varinfos;
+    private int globalStatesGeneration = -1;
+    private final Map<Long, CompletableFuture<JsonElement>> globalStates = new HashMap<>();
+
+    private final Logger log = LogManager.getLogger(ResultsService.class);
+
+    /**
+     * @param generation the generation of the analysis whose results are used, for invalidating the cached nodes and expression results
+     */
+    public ResultsService(GoblintService goblintService, AnalysisGeneration generation) {
+        this(goblintService, generation, 0);
+    }
 
-    public ResultsService(GoblintService goblintService) {
+    /**
+     * @param generation    the generation of the analysis whose results are used, for invalidating the cached nodes and expression results
+     * @param indexMaxNodes the maximum number of nodes of an ARG that is downloaded into an {@link ARGIndex}, or 0 to never index the ARG
+     */
+    public ResultsService(GoblintService goblintService, AnalysisGeneration generation, int indexMaxNodes) {
         this.goblintService = goblintService;
+        this.nodeCache = new ARGNodeCache(generation, NODE_CACHE_SIZE);
+        this.expressionCache = new ExpressionResultCache(generation, EXPRESSION_CACHE_SIZE);
+        this.indexMaxNodes = indexMaxNodes;
+    }
+
+    /**
+     * Returns the index of the ARG of the current analysis. The ARG is downloaded from Goblint
+     * the first time the index is requested after an analysis has completed.
+     *
+     * @return the index, or empty if indexing is disabled, no analysis has completed,
+     * the ARG has more nodes than allowed or downloading it failed.
+     */
+    public synchronized CompletableFuture<Optional<ARGIndex>> argIndexAsync() {
+        int generation = nodeCache.currentGeneration();
+        if (indexMaxNodes > 0 && generation > 0 && generation != indexGeneration) {
+            indexGeneration = generation;
+            index = buildIndex(generation);
+        }
+        return generation == indexGeneration ? index : CompletableFuture.completedFuture(Optional.empty());
+    }
+
+    /**
+     * Returns the index of the ARG of the current analysis if it has been downloaded, starting the download if needed.
+     * Lookups use this instead of waiting for {@link #argIndexAsync()}, so that they are answered by Goblint while the ARG is being downloaded.
+     *
+     * @return the index, or empty if the index is not available yet or at all.
+     */
+    public Optional<ARGIndex> completedArgIndex() {
+        CompletableFuture<Optional<ARGIndex>> current = argIndexAsync();
+        return current.isDone() ? current.join() : Optional.empty();
+    }
+
+    /**
+     * Downloads the ARG by looking up the nodes reachable from the entry points, frontier by frontier.
+     * The nodes of a frontier are looked up concurrently, at most {@link #MAX_CONCURRENT_DOWNLOADS} at a time.
+     * The download stops once another analysis has completed, as the ARG of that analysis is indexed instead.
+     *
+     * @param generation the analysis generation whose ARG is downloaded
+     */
+    private CompletableFuture<Optional<ARGIndex>> buildIndex(int generation) {
+        long start = System.currentTimeMillis();
+        Map<String, NodeInfo> nodes = new LinkedHashMap<>();
+        return requestNodes(LookupParams.entryPoint())
+                .thenCompose(entryPoints -> downloadReachable(generation, nodes, entryPoints))
+                .thenApply(complete -> {
+                    if (nodeCache.currentGeneration() != generation) {
+                        log.debug("Stopped indexing the ARG of an outdated analysis.");
+                        return Optional.<ARGIndex>empty();
+                    }
+                    if (!complete) {
+                        log.info("ARG has more than " + indexMaxNodes + " nodes, looking up nodes from Goblint instead of indexing them.");
+                        return Optional.<ARGIndex>empty();
+                    }
+                    ARGIndex argIndex = new ARGIndex(nodes.values());
+                    log.info("Indexed ARG of " + argIndex.size() + " nodes in " + (System.currentTimeMillis() - start) + " ms.");
+                    return Optional.of(argIndex);
+                })
+                .exceptionally(e -> {
+                    log.warn("Indexing the ARG failed, looking up nodes from Goblint instead: " + e.getMessage());
+                    return Optional.empty();
+                });
+    }
+
+    /**
+     * Adds the given frontier of nodes and all nodes reachable from it to the downloaded nodes.
+     *
+     * @param generation the analysis generation whose ARG is downloaded
+     * @return true if all reachable nodes were downloaded,
+     * false if the ARG has more nodes than allowed or another analysis has completed since the download started.
+     */
+    private CompletableFuture<Boolean> downloadReachable(int generation, Map<String, NodeInfo> nodes, List<NodeInfo> frontier) {
+        if (nodeCache.currentGeneration() != generation) {
+            return CompletableFuture.completedFuture(false);
+        }
+        for (NodeInfo node : frontier) {
+            nodes.put(node.nodeId(), node);
+        }
+        List<String> nextIds = frontier.stream()
+                .flatMap(ARGIndex::neighbourIds)
+                .filter(nodeId -> !nodes.containsKey(nodeId))
+                .distinct()
+                .toList();
+        if (nextIds.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        if (nodes.size() + nextIds.size() > indexMaxNodes) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return mapInBatches(nextIds, MAX_CONCURRENT_DOWNLOADS, nodeId -> requestNodes(LookupParams.byNodeId(nodeId)))
+                .thenCompose(next -> downloadReachable(generation, nodes, next.stream().flatMap(List::stream).toList()));
     }
 
     public List<NodeInfo> lookupNodes(LookupParams params) {
+        return join(lookupNodesAsync(params));
+    }
+
+    public CompletableFuture<List<NodeInfo>> lookupNodesAsync(LookupParams params) {
+        int generation = nodeCache.currentGeneration();
+        return requestNodes(params)
+                .thenApply(nodes -> {
+                    nodeCache.putNodes(generation, nodes);
+                    return nodes;
+                });
+    }
+
+    /**
+     * Finds the ARG nodes of a CFG node. The result is cached until the next analysis completes.
+     */
+    public List<NodeInfo> lookupNodesOfCFGNode(String cfgNodeId) {
+        return join(lookupNodesOfCFGNodeAsync(cfgNodeId));
+    }
+
+    public CompletableFuture<List<NodeInfo>> lookupNodesOfCFGNodeAsync(String cfgNodeId) {
+        Optional<ARGIndex> argIndex = completedArgIndex();
+        return argIndex.isPresent()
+                ? CompletableFuture.completedFuture(argIndex.get().nodesOfCFGNode(cfgNodeId))
+                : lookupNodesOfCFGNodeFromGoblint(cfgNodeId);
+    }
+
+    private CompletableFuture<List<NodeInfo>> lookupNodesOfCFGNodeFromGoblint(String cfgNodeId) {
+        List<NodeInfo> cached = nodeCache.getNodesOfCFGNode(cfgNodeId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        int generation = nodeCache.currentGeneration();
+        return requestNodes(LookupParams.byCFGNodeId(cfgNodeId))
+                .thenApply(nodes -> {
+                    nodeCache.putNodesOfCFGNode(generation, cfgNodeId, nodes);
+                    return nodes;
+                });
+    }
+
+    private CompletableFuture<List<NodeInfo>> requestNodes(LookupParams params) {
         return goblintService.arg_lookup(params)
                 .thenApply(result -> result.stream()
                         .map(lookupResult -> {
@@ -44,20 +208,89 @@ public class ResultsService {
                                 return nodeInfo;
                             }
                         })
-                        .toList())
-                .join();
+                        .toList());
     }
 
     /**
+     * Finds an ARG node by its id. The node is cached until the next analysis completes.
+     *
      * @throws RequestFailedException if the node was not found or multiple nodes were found.
      */
     public NodeInfo lookupNode(String nodeId) {
-        var nodes = lookupNodes(LookupParams.byNodeId(nodeId));
-        return switch (nodes.size()) {
-            case 0 -> throw new RequestFailedException("Node with id " + nodeId + " not found");
-            case 1 -> nodes.get(0);
-            default -> throw new RequestFailedException("Multiple nodes with id " + nodeId + " found");
-        };
+        return join(lookupNodeAsync(nodeId));
+    }
+
+    /**
+     * Asynchronous variant of {@link #lookupNode(String)}.
+     * The returned future completes exceptionally with RequestFailedException if the node was not found or multiple nodes were found.
+     */
+    public CompletableFuture<NodeInfo> lookupNodeAsync(String nodeId) {
+        NodeInfo indexed = completedArgIndex().map(i -> i.node(nodeId)).orElse(null);
+        return indexed != null ? CompletableFuture.completedFuture(indexed) : lookupNodeFromGoblint(nodeId);
+    }
+
+    private CompletableFuture<NodeInfo> lookupNodeFromGoblint(String nodeId) {
+        NodeInfo cached = nodeCache.getNode(nodeId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return lookupNodesAsync(LookupParams.byNodeId(nodeId))
+                .thenApply(nodes -> switch (nodes.size()) {
+                    case 0 -> throw new RequestFailedException("Node with id " + nodeId + " not found");
+                    case 1 -> nodes.get(0);
+                    default -> throw new RequestFailedException("Multiple nodes with id " + nodeId + " found");
+                });
+    }
+
+    /**
+     * Finds the ARG nodes with the given ids. The nodes that are not cached are looked up from Goblint concurrently,
+     * so finding all nodes takes a single round trip.
+     *
+     * @return the nodes in the order of the given ids.
+     * @throws RequestFailedException if any of the nodes was not found or multiple nodes were found for an id.
+     */
+    public List<NodeInfo> lookupNodes(List<String> nodeIds) {
+        return join(lookupNodesAsync(nodeIds));
+    }
+
+    /**
+     * Asynchronous variant of {@link #lookupNodes(List)}.
+     */
+    public CompletableFuture<List<NodeInfo>> lookupNodesAsync(List<String> nodeIds) {
+        List<CompletableFuture<NodeInfo>> lookups = nodeIds.stream().map(this::lookupNodeAsync).toList();
+        return allOf(lookups);
+    }
+
+    /**
+     * Returns a future that completes with the results of all given futures once all of them have completed.
+     */
+    static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Applies the given asynchronous function to the items in batches of at most the given size.
+     * The items of a batch are processed concurrently and the next batch is started once the previous one has completed,
+     * so that at most batchSize requests are sent to Goblint at a time. No further batches are started after a request has failed.
+     *
+     * @return a future that completes with the results in the order of the given items.
+     */
+    static <T, R> CompletableFuture<List<R>> mapInBatches(List<T> items, int batchSize, Function<T, CompletableFuture<R>> function) {
+        return mapInBatches(items, 0, batchSize, function, new ArrayList<>(items.size()));
+    }
+
+    private static <T, R> CompletableFuture<List<R>> mapInBatches(List<T> items, int from, int batchSize,
+                                                                   Function<T, CompletableFuture<R>> function, List<R> results) {
+        if (from >= items.size()) {
+            return CompletableFuture.completedFuture(results);
+        }
+        int to = Math.min(from + batchSize, items.size());
+        return allOf(items.subList(from, to).stream().map(function).toList())
+                .thenCompose(batchResults -> {
+                    results.addAll(batchResults);
+                    return mapInBatches(items, to, batchSize, function, results);
+                });
     }
 
     /**
@@ -66,67 +299,182 @@ public class ResultsService {
      * @throws RequestFailedException if a matching node was not found.
      */
     public CFGNodeInfo lookupCFGNode(GoblintLocation location) {
-        try {
-            return goblintService.cfg_lookup(CFGLookupParams.byLocation(location)).join().toCFGNodeInfo();
-        } catch (CompletionException e) {
-            if (isRequestFailedError(e.getCause())) {
-                throw new RequestFailedException(e.getCause().getMessage());
-            }
-            throw e;
-        }
+        return join(lookupCFGNodeAsync(location));
+    }
+
+    public CompletableFuture<CFGNodeInfo> lookupCFGNodeAsync(GoblintLocation location) {
+        return promoteRequestFailure(goblintService.cfg_lookup(CFGLookupParams.byLocation(location)))
+                .thenApply(GoblintCFGLookupResult::toCFGNodeInfo);
+    }
+
+    /**
+     * Returns the generation of the analysis whose results are looked up from now on.
+     */
+    public int currentGeneration() {
+        return nodeCache.currentGeneration();
+    }
+
+    public ARGNodeCache.Statistics nodeCacheStatistics() {
+        return nodeCache.statistics();
     }
 
     public JsonObject lookupState(String nodeId) {
-        return goblintService.arg_state(new ARGStateParams(nodeId)).join();
+        return join(lookupStateAsync(nodeId));
+    }
+
+    public CompletableFuture<JsonObject> lookupStateAsync(String nodeId) {
+        return goblintService.arg_state(new ARGStateParams(nodeId));
     }
 
     public JsonElement lookupGlobalState() {
-        return goblintService.global_state(GlobalStateParams.all()).join();
+        return join(lookupGlobalStateAsync());
+    }
+
+    public CompletableFuture<JsonElement> lookupGlobalStateAsync() {
+        return goblintService.global_state(GlobalStateParams.all());
+    }
+
+    /**
+     * Finds the global state of the global variable with the given vid. The state is cached until the next analysis completes.
+     */
+    public JsonElement lookupGlobalState(long vid) {
+        return join(lookupGlobalStateAsync(vid));
+    }
+
+    public synchronized CompletableFuture<JsonElement> lookupGlobalStateAsync(long vid) {
+        int generation = nodeCache.currentGeneration();
+        if (generation != globalStatesGeneration) {
+            globalStatesGeneration = generation;
+            globalStates.clear();
+        }
+        CompletableFuture<JsonElement> globalState = globalStates.get(vid);
+        if (globalState == null || globalState.isCompletedExceptionally()) {
+            globalState = goblintService.global_state(GlobalStateParams.byVid(vid));
+            globalStates.put(vid, globalState);
+        }
+        return globalState;
     }
 
     /**
      * @throws RequestFailedException if evaluating the expression failed, generally because the expression is syntactically or semantically invalid.
      */
     public EvalIntResult evaluateIntegerExpression(String nodeId, String expression) {
-        try {
-            return goblintService.arg_eval_int(new EvalIntQueryParams(nodeId, expression)).join();
-        } catch (CompletionException e) {
-            // Promote request failure to public API error because it is usually caused by the user entering an invalid expression
-            // and the error message contains useful info about why the expression was invalid.
-            if (isRequestFailedError(e.getCause())) {
-                throw new RequestFailedException(e.getCause().getMessage());
-            }
-            throw e;
-        }
+        return join(evaluateIntegerExpressionAsync(nodeId, expression));
+    }
+
+    public CompletableFuture<EvalIntResult> evaluateIntegerExpressionAsync(String nodeId, String expression) {
+        // Promote request failure to public API error because it is usually caused by the user entering an invalid expression
+        // and the error message contains useful info about why the expression was invalid.
+        return promoteRequestFailure(goblintService.arg_eval_int(new EvalIntQueryParams(nodeId, expression)));
     }
 
     /**
+     * Evaluates the expression at the given node. The results are cached until the next analysis completes.
+     *
      * @throws RequestFailedException if evaluating the expression failed, generally because the expression is syntactically or semantically invalid.
      */
     public JsonElement evaluateExpression(String nodeId, String expression) {
-        try {
-            return goblintService.arg_eval(new EvalQueryParams(nodeId, expression)).join();
-        } catch (CompletionException e) {
-            // See note in evaluateIntegerExpression
-            if (isRequestFailedError(e.getCause())) {
-                throw new RequestFailedException(e.getCause().getMessage());
-            }
-            throw e;
-        }
+        return join(evaluateExpressionAsync(nodeId, expression));
+    }
+
+    public CompletableFuture<JsonElement> evaluateExpressionAsync(String nodeId, String expression) {
+        // See note in evaluateIntegerExpressionAsync
+        return expressionCache.computeIfAbsent(nodeId, expression, ExpressionResultCache.Mode.VALUE,
+                () -> promoteRequestFailure(goblintService.arg_eval(new EvalQueryParams(nodeId, expression))));
+    }
+
+    /**
+     * Evaluates the condition at the given node, see {@link ConditionalExpression#evaluateCondition}.
+     * The results are cached until the next analysis completes.
+     * The returned future completes exceptionally with IllegalArgumentException if evaluating the condition failed.
+     */
+    public CompletableFuture<Boolean> evaluateConditionAsync(String nodeId, ConditionalExpression condition) {
+        var mode = condition.must() ? ExpressionResultCache.Mode.MUST : ExpressionResultCache.Mode.MAY;
+        return expressionCache.computeIfAbsent(nodeId, condition.expression(), mode,
+                        () -> condition.evaluateConditionInGoblintAsync(nodeId, this).thenApply(JsonPrimitive::new))
+                .thenApply(JsonElement::getAsBoolean);
     }
 
+    public ExpressionResultCache.Statistics expressionCacheStatistics() {
+        return expressionCache.statistics();
+    }
+
+    /**
+     * Returns the varinfos of all variables of the program. The varinfos are cached until the next analysis completes.
+     */
     public List<GoblintVarinfo> getVarinfos() {
-        return goblintService.cil_varinfos().join();
+        return join(getVarinfosAsync());
+    }
+
+    public CompletableFuture<List<GoblintVarinfo>> getVarinfosAsync() {
+        return getVarinfoIndexAsync().thenApply(VarinfoIndex::varinfos);
+    }
+
+    /**
+     * Returns the varinfos of the variables visible in the given function, i.e. the global variables and the local variables of the function.
+     * Functions themselves are not included. The varinfos are cached until the next analysis completes.
+     */
+    public List<GoblintVarinfo> getVisibleVarinfos(String function) {
+        return join(getVisibleVarinfosAsync(function));
+    }
+
+    public CompletableFuture<List<GoblintVarinfo>> getVisibleVarinfosAsync(String function) {
+        return getVarinfoIndexAsync().thenApply(index -> index.visibleIn(function));
+    }
+
+    private synchronized CompletableFuture<VarinfoIndex> getVarinfoIndexAsync() {
+        int generation = nodeCache.currentGeneration();
+        if (generation != varinfosGeneration || varinfos.isCompletedExceptionally()) {
+            varinfosGeneration = generation;
+            varinfos = goblintService.cil_varinfos().thenApply(VarinfoIndex::new);
+        }
+        return varinfos;
     }
 
     /**
      * Retrieves and returns a list of source files analyzed by Goblint.
      */
     public List<String> getGoblintTrackedFiles() {
-        return goblintService.files().join()
-                .values().stream()
-                .flatMap(Collection::stream)
-                .toList();
+        return join(getGoblintTrackedFilesAsync());
+    }
+
+    public CompletableFuture<List<String>> getGoblintTrackedFilesAsync() {
+        return goblintService.files()
+                .thenApply(files -> files.values().stream()
+                        .flatMap(Collection::stream)
+                        .toList());
+    }
+
+    /**
+     * Waits for the result of an asynchronous request.
+     * Unchecked exceptions thrown while computing the result, e.g. RequestFailedException,
+     * are thrown as is instead of being wrapped in a CompletionException, as if the result had been computed synchronously.
+     */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause && !(cause instanceof CompletionException)) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces the request failed errors of Goblint with RequestFailedException.
+     */
+    private static <T> CompletableFuture<T> promoteRequestFailure(CompletableFuture<T> request) {
+        return request.handle((result, e) -> {
+            if (e == null) {
+                return result;
+            }
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (isRequestFailedError(cause)) {
+                throw new RequestFailedException(cause.getMessage());
+            }
+            throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+        });
     }
 
     private static boolean isRequestFailedError(Throwable e) {
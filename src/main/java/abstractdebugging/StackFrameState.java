@@ -20,6 +20,20 @@ public class StackFrameState {
         this.localThreadIndex = localThreadIndex;
     }
 
+    private StackFrameState(StackFrameState frame) {
+        this.node = frame.node;
+        this.lastReachableNode = frame.lastReachableNode;
+        this.ambiguousFrame = frame.ambiguousFrame;
+        this.localThreadIndex = frame.localThreadIndex;
+    }
+
+    /**
+     * Returns a copy of this frame that can be modified independently.
+     */
+    public StackFrameState copy() {
+        return new StackFrameState(this);
+    }
+
     /**
      * Current ARG node in this frame.
      */
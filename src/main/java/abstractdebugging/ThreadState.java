@@ -8,6 +8,9 @@ import java.util.List;
  * <p>
  * A note about terminology: The topmost frame is the frame that was added by the latest function call and contains the current location of the thread.
  * It is located at index 0 in the list of frames.
+ * <p>
+ * The frames below the topmost frame may be shared with other threads that have the same callers, and must not be modified.
+ * Only the topmost frame is owned by the thread, so that frame is copied when it becomes the topmost frame by removing the frames above it.
  *
  * @author Juhan Oskar Hennoste
  * @since 0.0.4
@@ -28,7 +31,7 @@ public class ThreadState {
 
     /**
      * Get list of stack frames with the latest/topmost frame first.
-     * Note: Do not manipulate the returned list directly. Use {@link #pushFrame} and {@link #popFrame} instead.
+     * Note: Do not manipulate the returned list directly. Use {@link #pushFrame}, {@link #popFrame} and {@link #popFrames} instead.
      */
     public List<StackFrameState> getFrames() {
         return frames;
@@ -51,7 +54,26 @@ public class ThreadState {
     }
 
     public void popFrame() {
-        frames.remove(0);
+        popFrames(1);
+    }
+
+    /**
+     * Removes the given number of topmost frames.
+     */
+    public void popFrames(int count) {
+        if (count == 0) {
+            return;
+        }
+        frames.subList(0, count).clear();
+        frames.set(0, frames.get(0).copy());
+    }
+
+    /**
+     * Replaces all frames with the given frames. The topmost given frame must not be shared with other threads.
+     */
+    public void setFrames(List<StackFrameState> frames) {
+        this.frames.clear();
+        this.frames.addAll(frames);
     }
 
 }
@@ -0,0 +1,120 @@
+package abstractdebugging;
+
+import org.eclipse.lsp4j.debug.Variable;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The Class VariableReferenceStore.
+ * <p>
+ * Allocates the DAP variable references of scopes and compound variables and stores the variables they refer to.
+ * Variable references are only valid until the threads stop again, so all references are reclaimed together at each stop.
+ * References are never reused, so that a reference from before a stop cannot refer to an unrelated variable after it.
+ * The variables of a reference are constructed when they are first requested and reused afterwards,
+ * so that the references of their fields stay the same.
+ * The least recently used references are evicted once the configured number of references is live.
+ *
+ * @since 0.0.5
+ */
+public class VariableReferenceStore {
+
+    /**
+     * The references allocated and reclaimed since the store was created.
+     *
+     * @param live      the number of references currently stored
+     * @param allocated the number of references allocated
+     * @param reclaimed the number of references reclaimed by stops
+     * @param evicted   the number of references evicted because too many references were live
+     * @param epoch     the number of stops since the store was created
+     */
+    public record Statistics(int live, long allocated, long reclaimed, long evicted, int epoch) {
+    }
+
+    private final Map<Integer, LazyVariables> references;
+    private int nextReference = 1;
+    private int epoch = 0;
+    private long allocated = 0;
+    private long reclaimed = 0;
+    private long evicted = 0;
+
+    /**
+     * @param maxReferences the maximum number of live references
+     */
+    public VariableReferenceStore(int maxReferences) {
+        this.references = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, LazyVariables> eldest) {
+                if (size() > maxReferences) {
+                    evicted++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Allocates a reference for the variables constructed by the given supplier.
+     */
+    public synchronized int store(Supplier<Variable[]> variables) {
+        int reference = nextReference;
+        // DAP variable references must be positive, so wrap around after the largest int
+        nextReference = nextReference == Integer.MAX_VALUE ? 1 : nextReference + 1;
+        allocated++;
+        references.put(reference, new LazyVariables(variables));
+        return reference;
+    }
+
+    /**
+     * Returns the variables of the given reference, constructing them if they are requested for the first time.
+     *
+     * @return the variables, or null if the reference has been reclaimed or evicted
+     */
+    public synchronized @Nullable Variable[] get(int reference) {
+        LazyVariables variables = references.get(reference);
+        return variables == null ? null : variables.get();
+    }
+
+    /**
+     * Checks if the given reference is live, i.e. it has not been reclaimed or evicted.
+     */
+    public synchronized boolean contains(int reference) {
+        return references.containsKey(reference);
+    }
+
+    /**
+     * Reclaims all references. Called whenever the threads stop, because the references are only valid until then.
+     */
+    public synchronized void reclaim() {
+        reclaimed += references.size();
+        references.clear();
+        epoch++;
+    }
+
+    public synchronized Statistics statistics() {
+        return new Statistics(references.size(), allocated, reclaimed, evicted, epoch);
+    }
+
+    private static class LazyVariables {
+
+        private Supplier<Variable[]> construct;
+        private Variable[] variables;
+
+        LazyVariables(Supplier<Variable[]> construct) {
+            this.construct = construct;
+        }
+
+        Variable[] get() {
+            if (variables == null) {
+                variables = construct.get();
+                construct = null;
+            }
+            return variables;
+        }
+
+    }
+
+}
@@ -0,0 +1,53 @@
+package abstractdebugging;
+
+import api.messages.GoblintVarinfo;
+
+import java.util.*;
+
+/**
+ * The Class VarinfoIndex.
+ * <p>
+ * The varinfos of all variables of a program, indexed by the function they belong to,
+ * so that the variables visible in a function can be found without filtering all varinfos.
+ *
+ * @since 0.0.5
+ */
+public class VarinfoIndex {
+
+    private final List<GoblintVarinfo> varinfos;
+    private final List<GoblintVarinfo> globals = new ArrayList<>();
+    private final Map<String, List<GoblintVarinfo>> localsByFunction = new HashMap<>();
+
+    public VarinfoIndex(List<GoblintVarinfo> varinfos) {
+        this.varinfos = varinfos;
+        for (GoblintVarinfo varinfo : varinfos) {
+            if ("function".equals(varinfo.role())) {
+                continue;
+            }
+            if (varinfo.function() == null) {
+                globals.add(varinfo);
+            } else {
+                localsByFunction.computeIfAbsent(varinfo.function(), function -> new ArrayList<>()).add(varinfo);
+            }
+        }
+    }
+
+    /**
+     * Returns the varinfos of all variables, including functions.
+     */
+    public List<GoblintVarinfo> varinfos() {
+        return varinfos;
+    }
+
+    /**
+     * Returns the varinfos of the global variables and the local variables of the given function, excluding functions.
+     */
+    public List<GoblintVarinfo> visibleIn(String function) {
+        List<GoblintVarinfo> locals = localsByFunction.getOrDefault(function, List.of());
+        List<GoblintVarinfo> visible = new ArrayList<>(globals.size() + locals.size());
+        visible.addAll(globals);
+        visible.addAll(locals);
+        return visible;
+    }
+
+}
@@ -0,0 +1,34 @@
+package analysis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Class AnalysisGeneration.
+ * <p>
+ * Counts the analyses that Goblint has successfully completed.
+ * Results cached from Goblint are tagged with the generation they were computed in,
+ * so that they can be recognized as outdated once a new analysis completes.
+ *
+ * @since 0.0.5
+ */
+public class AnalysisGeneration {
+
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Returns the current generation. Generation 0 means that no analysis has completed yet.
+     */
+    public int current() {
+        return generation.get();
+    }
+
+    /**
+     * Marks that a new analysis has completed.
+     *
+     * @return the new generation.
+     */
+    public int advance() {
+        return generation.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,78 @@
+package analysis;
+
+import com.google.gson.Gson;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The Class AnalysisHistory.
+ * <p>
+ * Keeps the summaries of the last analysis runs in memory, so that changes in the performance of the analyses
+ * (e.g. after upgrading Goblint or changing the configuration) can be seen without attaching a profiler.
+ * When the history is full, the oldest run is dropped.
+ *
+ * @since 0.0.5
+ */
+public class AnalysisHistory {
+
+    private final int capacity;
+    private final Deque<AnalysisRun.Summary> runs = new ArrayDeque<>();
+
+    /**
+     * @param capacity the number of runs kept, no runs are kept if it is 0
+     */
+    public AnalysisHistory(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds the summary of a finished run to the history.
+     */
+    public synchronized void add(AnalysisRun.Summary run) {
+        if (capacity <= 0 || run == null) {
+            return;
+        }
+        if (runs.size() >= capacity) {
+            runs.removeFirst();
+        }
+        runs.addLast(run);
+    }
+
+    /**
+     * Returns the kept runs, oldest first.
+     */
+    public synchronized List<AnalysisRun.Summary> runs() {
+        return new ArrayList<>(runs);
+    }
+
+    /**
+     * Returns the kept runs as a JSON array, oldest first.
+     */
+    public String toJson() {
+        return new Gson().toJson(runs());
+    }
+
+    /**
+     * Returns the kept runs as a human-readable table, one run per line, oldest first.
+     */
+    public String toText() {
+        List<AnalysisRun.Summary> runs = runs();
+        if (runs.isEmpty()) {
+            return "No analysis runs recorded.";
+        }
+        return runs.stream()
+                .map(run -> "#" + run.id() + " " + Instant.ofEpochMilli(run.startedAt())
+                        + " [" + run.trigger() + "] " + run.outcome() + " in " + run.durationMillis() + " ms"
+                        + (run.phaseMillis().isEmpty() ? "" : " " + run.phaseMillis())
+                        + (run.goblintMessages() < 0 ? "" : ", " + run.goblintMessages() + " Goblint messages")
+                        + (run.results() < 0 ? "" : ", " + run.results() + " results")
+                        + ", " + run.receivedCharacters() + " characters received")
+                .collect(Collectors.joining("\n"));
+    }
+
+}
@@ -0,0 +1,192 @@
+package analysis;
+
+import magpiebridge.GoblintMagpieServer;
+import magpiebridge.core.MagpieServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.lsp4j.*;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.lsp4j.services.LanguageClient;
+
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Class AnalysisProgress.
+ * <p>
+ * Reports the phases of a single analysis run to the client as LSP work done progress ($/progress),
+ * together with the time elapsed since the analysis was started.
+ * While a phase is running, the elapsed time is reported again every second,
+ * so that the user can see that a long analysis is still making progress.
+ * The progress can be cancelled by the user if a cancel handler is given.
+ * <p>
+ * If the client does not support work done progress, nothing is reported.
+ *
+ * @since 0.0.5
+ */
+public class AnalysisProgress {
+
+    /**
+     * The phases of an analysis run, in the order they are run in.
+     */
+    public enum Phase {
+        CONFIG_REFRESH("Reading Goblint configuration"),
+        PRE_ANALYSIS("Running pre-analysis command"),
+        ANALYZE("Analyzing"),
+        MESSAGES_FETCH("Fetching messages"),
+        CONVERSION("Converting messages"),
+        PUBLISH("Publishing results");
+
+        private final String title;
+
+        Phase(String title) {
+            this.title = title;
+        }
+
+        public String title() {
+            return title;
+        }
+    }
+
+    /**
+     * The progress that reports nothing.
+     */
+    public static final AnalysisProgress NONE = new AnalysisProgress(null, null, null);
+
+    private static final AtomicInteger tokenCounter = new AtomicInteger();
+    private static final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GobPie progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final GoblintMagpieServer server;
+    private final LanguageClient client;
+    private final String token;
+    private final long startTime = System.nanoTime();
+    // The notifications are chained, so that they are sent in order and only after the client has created the progress
+    private CompletableFuture<Void> notifications;
+    private ScheduledFuture<?> tick;
+    private Phase phase;
+    private boolean ended = false;
+    private volatile boolean cancelled = false;
+
+    private final Logger log = LogManager.getLogger(AnalysisProgress.class);
+
+    private AnalysisProgress(GoblintMagpieServer server, LanguageClient client, String token) {
+        this.server = server;
+        this.client = client;
+        this.token = token;
+    }
+
+    /**
+     * Starts reporting the progress of an analysis run to the client.
+     *
+     * @param magpieServer the server the progress is reported through
+     * @param title        the title of the progress shown to the user
+     * @param onCancel     the handler run when the user cancels the progress, or null if the progress is not cancellable
+     * @return the progress of the analysis run, which reports nothing if the client does not support work done progress.
+     */
+    public static AnalysisProgress start(MagpieServer magpieServer, String title, Runnable onCancel) {
+        if (!(magpieServer instanceof GoblintMagpieServer server)
+                || !server.clientSupportsWorkDoneProgress()
+                || server.getClient() == null) {
+            return NONE;
+        }
+        String token = "gobpie/analysis/" + tokenCounter.incrementAndGet();
+        AnalysisProgress progress = new AnalysisProgress(server, server.getClient(), token);
+        if (onCancel != null) {
+            server.onProgressCancel(token, () -> {
+                progress.cancelled = true;
+                onCancel.run();
+            });
+        }
+        progress.begin(title, onCancel != null);
+        return progress;
+    }
+
+    /**
+     * Checks if progress is reported to the client.
+     */
+    public boolean isReported() {
+        return client != null;
+    }
+
+    /**
+     * Checks if the user has cancelled the analysis run.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Reports that the given phase of the analysis run has started.
+     */
+    public synchronized void phase(Phase phase) {
+        if (client == null || ended) {
+            return;
+        }
+        this.phase = phase;
+        report();
+        if (tick == null) {
+            tick = ticker.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Reports that the analysis run has ended.
+     *
+     * @param message the outcome of the analysis run shown to the user
+     */
+    public synchronized void end(String message) {
+        if (client == null || ended) {
+            return;
+        }
+        ended = true;
+        if (tick != null) {
+            tick.cancel(false);
+        }
+        server.removeProgressCancelHandler(token);
+        WorkDoneProgressEnd end = new WorkDoneProgressEnd();
+        end.setMessage(message + " (" + elapsed() + ")");
+        notify(end);
+    }
+
+    private synchronized void begin(String title, boolean cancellable) {
+        notifications = client.createProgress(new WorkDoneProgressCreateParams(Either.forLeft(token)));
+        WorkDoneProgressBegin begin = new WorkDoneProgressBegin();
+        begin.setTitle(title);
+        begin.setCancellable(cancellable);
+        begin.setPercentage(0);
+        notify(begin);
+    }
+
+    private synchronized void tick() {
+        if (!ended && phase != null) {
+            report();
+        }
+    }
+
+    private void report() {
+        WorkDoneProgressReport report = new WorkDoneProgressReport();
+        report.setMessage(phase.title() + " (" + elapsed() + ")");
+        report.setPercentage(phase.ordinal() * 100 / Phase.values().length);
+        notify(report);
+    }
+
+    private void notify(WorkDoneProgressNotification notification) {
+        ProgressParams params = new ProgressParams(Either.forLeft(token), Either.forLeft(notification));
+        notifications = notifications.thenRun(() -> client.notifyProgress(params));
+        notifications.exceptionally(ex -> {
+            log.debug("Reporting analysis progress failed: " + ex.getMessage());
+            return null;
+        });
+    }
+
+    private String elapsed() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return String.format(Locale.ROOT, "%.1f s", seconds);
+    }
+
+}
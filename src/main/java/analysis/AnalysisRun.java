@@ -0,0 +1,115 @@
+package analysis;
+
+import api.jsonrpc.GoblintSocketMessageProducer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Class AnalysisRun.
+ * <p>
+ * Measures a single analysis run: how long each of its phases took, how many messages Goblint reported
+ * and how much data was received from Goblint. The phases are also reported to the progress of the run.
+ * When the run ends, it is summarized for the {@link AnalysisHistory}.
+ *
+ * @since 0.0.5
+ */
+public class AnalysisRun {
+
+    private static final AtomicInteger idCounter = new AtomicInteger();
+
+    private final int id = idCounter.incrementAndGet();
+    private final String trigger;
+    private final AnalysisProgress progress;
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final long receivedCharactersAtStart = GoblintSocketMessageProducer.receivedCharacters();
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private AnalysisProgress.Phase phase;
+    private long phaseStartNanos;
+    private int goblintMessages = -1;
+    private Summary summary;
+
+    /**
+     * The Record Summary.
+     * <p>
+     * The measurements of a finished analysis run.
+     *
+     * @param id                 the number of the run since GobPie was started
+     * @param trigger            what triggered the run: "open" for the first analysis, "edit" for analyzing unsaved changes, "save" otherwise
+     * @param startedAt          the time the run was started at, in milliseconds since the epoch
+     * @param outcome            how the run ended, e.g. "Finished", "Failed", "Aborted by a new analysis", "Cancelled" or "Skipped"
+     * @param durationMillis     the duration of the whole run
+     * @param phaseMillis        the durations of the phases that were run by the names of the phases, in the order they were run in
+     * @param goblintMessages    the number of messages Goblint reported, or -1 if the messages were not fetched
+     * @param results            the number of results shown in the IDE, or -1 if no results were shown
+     * @param receivedCharacters the number of characters received from Goblint during the run
+     */
+    public record Summary(int id, String trigger, long startedAt, String outcome, long durationMillis,
+                          Map<String, Long> phaseMillis, int goblintMessages, int results, long receivedCharacters) {
+    }
+
+    /**
+     * @param trigger  what triggered the run
+     * @param progress the progress the phases of the run are reported to
+     */
+    public AnalysisRun(String trigger, AnalysisProgress progress) {
+        this.trigger = trigger;
+        this.progress = progress;
+    }
+
+    public AnalysisProgress progress() {
+        return progress;
+    }
+
+    /**
+     * Marks the start of the given phase, which also ends the previous phase.
+     */
+    public synchronized void phase(AnalysisProgress.Phase phase) {
+        if (summary != null) {
+            return;
+        }
+        endPhase();
+        this.phase = phase;
+        this.phaseStartNanos = System.nanoTime();
+        progress.phase(phase);
+    }
+
+    /**
+     * Records the number of messages Goblint reported.
+     */
+    public synchronized void messagesReceived(int goblintMessages) {
+        this.goblintMessages = goblintMessages;
+    }
+
+    /**
+     * Ends the run and its progress.
+     *
+     * @param outcome how the run ended
+     * @param results the number of results shown in the IDE, or -1 if no results were shown
+     * @return the summary of the run, or null if the run had already ended.
+     */
+    public synchronized Summary end(String outcome, int results) {
+        if (summary != null) {
+            return null;
+        }
+        endPhase();
+        progress.end(outcome);
+        summary = new Summary(id, trigger, startedAt, outcome, millisSince(startNanos), Collections.unmodifiableMap(new LinkedHashMap<>(phaseMillis)),
+                goblintMessages, results, GoblintSocketMessageProducer.receivedCharacters() - receivedCharactersAtStart);
+        return summary;
+    }
+
+    private void endPhase() {
+        if (phase != null) {
+            phaseMillis.merge(phase.name(), millisSince(phaseStartNanos), Long::sum);
+        }
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000;
+    }
+
+}
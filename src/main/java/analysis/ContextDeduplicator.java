@@ -0,0 +1,74 @@
+package analysis;
+
+import api.messages.GoblintLocation;
+import api.messages.GoblintMessagesResult;
+import magpiebridge.core.AnalysisResult;
+
+import java.util.*;
+
+/**
+ * The Class ContextDeduplicator.
+ * <p>
+ * Folds the Goblint messages that only differ by the context they were reported in.
+ * Goblint reports the same warning once for every context a function is analyzed in,
+ * which would show up in the IDE as many near-identical warnings on the same line.
+ * Messages with the same severity, tags, text and location are folded into the first of them,
+ * which is then shown once with the number of contexts and the contexts as related warnings.
+ * <p>
+ * The messages are indexed by a hash of these fields, so folding takes linear time in the number of messages.
+ *
+ * @since 0.0.5
+ */
+public class ContextDeduplicator {
+
+    private record Key(String severity, List<String> tags, String text, GoblintLocation location) {
+    }
+
+    /**
+     * The Record Result.
+     *
+     * @param messages the messages with duplicates removed, in the order Goblint reported them in
+     * @param contexts the contexts of the messages that were reported in more than one context
+     * @param folded   the number of messages that were folded into another message
+     */
+    public record Result(List<GoblintMessagesResult> messages, Map<GoblintMessagesResult, List<Integer>> contexts, int folded) {
+
+        /**
+         * Converts the given deduplicated message, folding its contexts if it was reported in more than one.
+         */
+        public List<AnalysisResult> convert(GoblintMessagesResult message, boolean explode) {
+            List<Integer> messageContexts = contexts.get(message);
+            return messageContexts == null ? message.convert(explode) : message.convertFolded(messageContexts);
+        }
+
+    }
+
+    /**
+     * Removes the messages that only differ from an earlier message by their context.
+     */
+    public static Result deduplicate(List<GoblintMessagesResult> messages) {
+        Map<Key, GoblintMessagesResult> index = new HashMap<>();
+        // The messages have no equals, so the contexts are looked up by identity
+        Map<GoblintMessagesResult, List<Integer>> contexts = new IdentityHashMap<>();
+        List<GoblintMessagesResult> unique = new ArrayList<>(messages.size());
+        for (GoblintMessagesResult message : messages) {
+            if (!(message.multipiece() instanceof GoblintMessagesResult.Piece piece) || piece.context() == null) {
+                unique.add(message);
+                continue;
+            }
+            Key key = new Key(message.severity(), message.tags().stream().map(Object::toString).toList(), piece.text(), piece.location());
+            GoblintMessagesResult first = index.putIfAbsent(key, message);
+            if (first == null) {
+                unique.add(message);
+            } else {
+                contexts.computeIfAbsent(first, m -> {
+                    List<Integer> firstContexts = new ArrayList<>();
+                    firstContexts.add(((GoblintMessagesResult.Piece) m.multipiece()).context());
+                    return firstContexts;
+                }).add(piece.context());
+            }
+        }
+        return new Result(unique, contexts, messages.size() - unique.size());
+    }
+
+}
@@ -0,0 +1,146 @@
+package analysis;
+
+import api.messages.GoblintLocation;
+import api.messages.GoblintMessagesResult;
+import api.messages.GoblintSeverity;
+import gobpie.DiagnosticBudget;
+
+import java.util.*;
+
+/**
+ * The Class DiagnosticBudgetFilter.
+ * <p>
+ * Selects the Goblint messages that are shown in the IDE according to the diagnostic budget in the GobPie configuration.
+ * The messages are filtered by their severity, category and CWE before they are converted,
+ * so that suppressed messages never take up memory as IDE warnings.
+ * If more messages pass the filters than the limits allow, the messages are ranked by their severity and location,
+ * and the highest ranked messages are kept. The ranking does not depend on the order Goblint reports the messages in,
+ * so the same messages are kept between analyses that produce the same messages.
+ * The kept messages stay in the order Goblint reported them in.
+ *
+ * @since 0.0.5
+ */
+public class DiagnosticBudgetFilter {
+
+    // Ranks more severe messages first and messages of the same severity by their location
+    private static final Comparator<GoblintMessagesResult> RANKING = Comparator
+            .comparingInt((GoblintMessagesResult message) -> severityRank(message.severity()))
+            .thenComparing(DiagnosticBudgetFilter::file)
+            .thenComparingInt(message -> {
+                GoblintLocation location = message.multipiece().location();
+                return location == null ? 0 : location.line();
+            })
+            .thenComparingInt(message -> {
+                GoblintLocation location = message.multipiece().location();
+                return location == null ? 0 : location.column();
+            })
+            .thenComparing(message -> Objects.requireNonNullElse(message.multipiece().text(), ""));
+
+    private final DiagnosticBudget budget;
+
+    public DiagnosticBudgetFilter(DiagnosticBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * The Record Result.
+     *
+     * @param kept             the messages to show, in the order Goblint reported them in
+     * @param filtered         the number of messages removed by the severity, category and CWE filters
+     * @param overPerFileLimit the number of messages removed because their file had reached the per-file limit
+     * @param overTotalLimit   the number of messages removed because the total limit had been reached
+     */
+    public record Result(List<GoblintMessagesResult> kept, int filtered, int overPerFileLimit, int overTotalLimit) {
+
+        public int suppressed() {
+            return filtered + overPerFileLimit + overTotalLimit;
+        }
+
+    }
+
+    /**
+     * Applies the filters and limits of the budget to the given messages.
+     */
+    public Result apply(List<GoblintMessagesResult> messages) {
+        List<GoblintMessagesResult> candidates = messages.stream().filter(this::passesFilters).toList();
+        int filtered = messages.size() - candidates.size();
+
+        int maxPerFile = budget.maxPerFile() == null ? Integer.MAX_VALUE : budget.maxPerFile();
+        int maxTotal = budget.maxTotal() == null ? Integer.MAX_VALUE : budget.maxTotal();
+        if (candidates.size() <= Math.min(maxPerFile, maxTotal)) {
+            // No limit can be exceeded
+            return new Result(candidates, filtered, 0, 0);
+        }
+
+        Integer[] ranked = new Integer[candidates.size()];
+        Arrays.setAll(ranked, i -> i);
+        Arrays.sort(ranked, Comparator.comparing(candidates::get, RANKING));
+
+        boolean[] keep = new boolean[candidates.size()];
+        Map<String, Integer> perFile = new HashMap<>();
+        int total = 0;
+        int overPerFileLimit = 0;
+        int overTotalLimit = 0;
+        for (int index : ranked) {
+            String file = file(candidates.get(index));
+            int inFile = perFile.getOrDefault(file, 0);
+            if (inFile >= maxPerFile) {
+                overPerFileLimit++;
+            } else if (total >= maxTotal) {
+                overTotalLimit++;
+            } else {
+                keep[index] = true;
+                perFile.put(file, inFile + 1);
+                total++;
+            }
+        }
+
+        List<GoblintMessagesResult> kept = new ArrayList<>(total);
+        for (int i = 0; i < candidates.size(); i++) {
+            if (keep[i]) {
+                kept.add(candidates.get(i));
+            }
+        }
+        return new Result(kept, filtered, overPerFileLimit, overTotalLimit);
+    }
+
+    private boolean passesFilters(GoblintMessagesResult message) {
+        if (severityRank(message.severity()) > severityRank(budget.minSeverity())) {
+            return false;
+        }
+        List<String> categories = new ArrayList<>();
+        List<Integer> cwes = new ArrayList<>();
+        for (GoblintMessagesResult.Tag tag : message.tags()) {
+            if (tag instanceof GoblintMessagesResult.Category category) {
+                categories.add(category.toString());
+            } else if (tag instanceof GoblintMessagesResult.CWE cwe) {
+                cwes.add(cwe.id());
+            }
+        }
+        if (budget.categories() != null && categories.stream().noneMatch(category -> matchesAny(category, budget.categories()))) {
+            return false;
+        }
+        if (categories.stream().anyMatch(category -> matchesAny(category, budget.excludedCategories()))) {
+            return false;
+        }
+        return budget.cwes() == null || cwes.stream().anyMatch(budget.cwes()::contains);
+    }
+
+    /**
+     * Checks if the category is one of the given categories or a subcategory of one of them.
+     */
+    private static boolean matchesAny(String category, List<String> categories) {
+        return categories.stream().anyMatch(c -> category.equals(c) || category.startsWith(c + " > "));
+    }
+
+    private static int severityRank(String severity) {
+        // Goblint severities are ordered from the most to the least severe
+        return GoblintSeverity.of(severity).ordinal();
+    }
+
+    private static String file(GoblintMessagesResult message) {
+        GoblintLocation location = message.multipiece().location();
+        return location == null ? "" : location.file();
+    }
+
+}
@@ -0,0 +1,289 @@
+package analysis;
+
+import api.messages.GoblintPosition;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.util.collections.Pair;
+import magpiebridge.core.AnalysisResult;
+import util.FileFingerprint;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * The Class DiagnosticSnapshot.
+ * <p>
+ * Persists the results of the last successful analysis in a compact binary file,
+ * so that they can be shown in the IDE right after GobPie is restarted, before Goblint has finished analyzing.
+ * All strings (file URLs, message texts, function names) are stored only once in a string table.
+ * <p>
+ * A snapshot is only valid for the Goblint version, the Goblint configuration and the analyzed files it was created with.
+ * These are stored as the {@link Key} of the snapshot and checked before the results are read.
+ *
+ * @since 0.0.5
+ */
+public class DiagnosticSnapshot {
+
+    /**
+     * The default location of the snapshot, relative to the project root.
+     */
+    public static final Path DEFAULT_LOCATION = Path.of(".gobpie", "diagnostics.snapshot");
+
+    private static final int MAGIC = 0x47504453; // "GPDS"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte MESSAGE = 0;
+    private static final byte CODE_LENS = 1;
+
+    private final Path file;
+
+    public DiagnosticSnapshot(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * The Record Key.
+     * <p>
+     * Identifies the analysis inputs the results in a snapshot were computed from.
+     *
+     * @param goblintVersion  the version output of the Goblint executable
+     * @param goblintConfHash the SHA-256 hash of the contents of the Goblint configuration file
+     * @param files           the fingerprints of the files analyzed by Goblint, i.e. the source files, the files they include and the compilation databases
+     */
+    public record Key(String goblintVersion, String goblintConfHash, Map<String, FileFingerprint> files) {
+
+        /**
+         * Computes the key for the current state of the given Goblint configuration file and analyzed files.
+         */
+        public static Key of(String goblintVersion, String goblintConf, Collection<String> files) {
+            return new Key(goblintVersion, FileFingerprint.contentHash(Path.of(goblintConf)), FileFingerprint.ofAll(files));
+        }
+
+    }
+
+    /**
+     * Writes the given results into the snapshot file, replacing the previous snapshot.
+     * The snapshot is first written into a temporary file, so that a crash while writing cannot leave a broken snapshot behind.
+     * Results other than Goblint messages and CFG code lenses are not stored.
+     *
+     * @param key     the key of the analysis the results were computed in
+     * @param results the results to store
+     * @throws IOException if writing the file fails
+     */
+    public void write(Key key, Collection<AnalysisResult> results) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeKey(out, key);
+                writeResults(out, results);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads the results from the snapshot file if the snapshot is still valid,
+     * i.e. it was created with the given Goblint version and the current contents of the Goblint configuration file,
+     * and none of the analyzed files have changed since.
+     *
+     * @param goblintVersion the version output of the Goblint executable
+     * @param goblintConf    the path to the Goblint configuration file
+     * @return the stored results, or an empty Optional if there is no snapshot or the snapshot is outdated.
+     * @throws IOException if reading the file fails or the file is not a valid snapshot
+     */
+    public Optional<List<AnalysisResult>> read(String goblintVersion, String goblintConf) throws IOException {
+        // The file is read into the heap instead of being mapped, because a mapped file cannot be replaced on Windows until the mapping is garbage collected
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            Key storedKey = readKey(buffer);
+            Key currentKey = Key.of(goblintVersion, goblintConf, storedKey.files().keySet());
+            if (!storedKey.equals(currentKey)) {
+                return Optional.empty();
+            }
+            return Optional.of(readResults(buffer));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("The diagnostic snapshot " + file + " is corrupted.", e);
+        }
+    }
+
+    /**
+     * Deletes the snapshot file if it exists.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+
+    private static void writeKey(DataOutputStream out, Key key) throws IOException {
+        writeString(out, key.goblintVersion());
+        writeString(out, key.goblintConfHash());
+        out.writeInt(key.files().size());
+        for (Map.Entry<String, FileFingerprint> file : key.files().entrySet()) {
+            writeString(out, file.getKey());
+            out.writeLong(file.getValue().size());
+            out.writeLong(file.getValue().lastModified());
+        }
+    }
+
+    private static Key readKey(ByteBuffer buffer) {
+        String goblintVersion = readString(buffer);
+        String goblintConfHash = readString(buffer);
+        int fileCount = buffer.getInt();
+        Map<String, FileFingerprint> files = new LinkedHashMap<>();
+        for (int i = 0; i < fileCount; i++) {
+            files.put(readString(buffer), new FileFingerprint(buffer.getLong(), buffer.getLong()));
+        }
+        return new Key(goblintVersion, goblintConfHash, files);
+    }
+
+    private static void writeResults(DataOutputStream out, Collection<AnalysisResult> results) throws IOException {
+        // Collect every string into the string table first, so that the results can refer to them by index
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        List<AnalysisResult> stored = new ArrayList<>();
+        for (AnalysisResult result : results) {
+            if (result instanceof GoblintMessagesAnalysisResult message) {
+                intern(strings, message.position().getURL().toString());
+                intern(strings, message.group_text());
+                intern(strings, message.text());
+                intern(strings, message.severityStr());
+                for (Pair<Position, String> related : message.related()) {
+                    intern(strings, related.fst.getURL().toString());
+                    intern(strings, related.snd);
+                }
+                stored.add(result);
+            } else if (result instanceof GoblintCFGAnalysisResult codeLens) {
+                intern(strings, codeLens.position().getURL().toString());
+                intern(strings, codeLens.title());
+                intern(strings, codeLens.funName());
+                stored.add(result);
+            }
+        }
+
+        out.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            writeString(out, string);
+        }
+
+        out.writeInt(stored.size());
+        for (AnalysisResult result : stored) {
+            if (result instanceof GoblintMessagesAnalysisResult message) {
+                out.writeByte(MESSAGE);
+                writePosition(out, strings, message.position());
+                out.writeInt(strings.get(message.group_text()));
+                out.writeInt(strings.get(message.text()));
+                out.writeInt(strings.get(message.severityStr()));
+                List<Pair<Position, String>> related = new ArrayList<>();
+                message.related().forEach(related::add);
+                out.writeInt(related.size());
+                for (Pair<Position, String> pair : related) {
+                    writePosition(out, strings, pair.fst);
+                    out.writeInt(strings.get(pair.snd));
+                }
+            } else if (result instanceof GoblintCFGAnalysisResult codeLens) {
+                out.writeByte(CODE_LENS);
+                writePosition(out, strings, codeLens.position());
+                out.writeInt(strings.get(codeLens.title()));
+                out.writeInt(strings.get(codeLens.funName()));
+            }
+        }
+    }
+
+    private static List<AnalysisResult> readResults(ByteBuffer buffer) throws IOException {
+        int stringCount = buffer.getInt();
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = readString(buffer);
+        }
+        // URLs are shared by many results, so each one is only parsed once
+        Map<String, URL> urls = new HashMap<>();
+
+        int resultCount = buffer.getInt();
+        List<AnalysisResult> results = new ArrayList<>(resultCount);
+        for (int i = 0; i < resultCount; i++) {
+            byte kind = buffer.get();
+            GoblintPosition position = readPosition(buffer, strings, urls);
+            switch (kind) {
+                case MESSAGE -> {
+                    String groupText = strings[buffer.getInt()];
+                    String text = strings[buffer.getInt()];
+                    String severity = strings[buffer.getInt()];
+                    int relatedCount = buffer.getInt();
+                    List<Pair<Position, String>> related = new ArrayList<>(relatedCount);
+                    for (int j = 0; j < relatedCount; j++) {
+                        related.add(Pair.make(readPosition(buffer, strings, urls), strings[buffer.getInt()]));
+                    }
+                    results.add(new GoblintMessagesAnalysisResult(position, groupText, text, severity, related));
+                }
+                case CODE_LENS -> results.add(new GoblintCFGAnalysisResult(position, strings[buffer.getInt()], strings[buffer.getInt()]));
+                default -> throw new IOException("Unknown result kind " + kind + " in diagnostic snapshot.");
+            }
+        }
+        return results;
+    }
+
+    private static void writePosition(DataOutputStream out, Map<String, Integer> strings, Position position) throws IOException {
+        out.writeInt(strings.get(position.getURL().toString()));
+        out.writeInt(position.getFirstLine());
+        out.writeInt(position.getLastLine());
+        out.writeInt(position.getFirstCol());
+        out.writeInt(position.getLastCol());
+    }
+
+    private static GoblintPosition readPosition(ByteBuffer buffer, String[] strings, Map<String, URL> urls) throws IOException {
+        String url = strings[buffer.getInt()];
+        URL sourcefileURL = urls.get(url);
+        if (sourcefileURL == null) {
+            try {
+                sourcefileURL = new URL(url);
+            } catch (MalformedURLException e) {
+                throw new IOException("Invalid URL " + url + " in diagnostic snapshot.", e);
+            }
+            urls.put(url, sourcefileURL);
+        }
+        int lineStart = buffer.getInt();
+        int lineEnd = buffer.getInt();
+        int columnStart = buffer.getInt();
+        int columnEnd = buffer.getInt();
+        return new GoblintPosition(lineStart, lineEnd, columnStart, columnEnd, sourcefileURL);
+    }
+
+    private static void intern(Map<String, Integer> strings, String string) {
+        strings.putIfAbsent(string, strings.size());
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
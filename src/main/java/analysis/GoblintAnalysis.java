@@ -8,6 +8,8 @@ import api.messages.params.AnalyzeParams;
 import com.ibm.wala.classLoader.Module;
 import goblintserver.GoblintConfWatcher;
 import goblintserver.GoblintServer;
+import goblintserver.UnsavedFilesOverlay;
+import gobpie.DiagnosticBudget;
 import gobpie.GobPieConfiguration;
 import gobpie.GobPieException;
 import gobpie.GobPieExceptionType;
@@ -19,14 +21,22 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.lsp4j.MessageParams;
 import org.eclipse.lsp4j.MessageType;
+import util.FileFingerprint;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -44,23 +54,67 @@ import java.util.stream.Stream;
 
 public class GoblintAnalysis implements ServerAnalysis {
 
+    // Runs the file system work after an analysis, so that it does not block the thread reading the responses of Goblint
+    private static final ExecutorService defaultBackgroundExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GobPie background");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final MagpieServer magpieServer;
     private final GoblintServer goblintServer;
     private final GoblintService goblintService;
     private final GobPieConfiguration gobpieConfiguration;
     private final GoblintConfWatcher goblintConfWatcher;
-    private static Future<?> lastAnalysisTask = null;
+    private final UnsavedFilesOverlay unsavedFilesOverlay;
+    private final Executor backgroundExecutor;
+    // Analyses are started one at a time, as the analyses of unsaved changes are requested from another thread than the analyses of saves
+    private final Object analysisLock = new Object();
+    private static volatile Future<?> lastAnalysisTask = null;
+    private volatile AnalysisRun lastAnalysisRun = null;
+    // The results of the last analysis, published again when an analysis is skipped
+    private volatile Collection<AnalysisResult> lastResults = null;
+    private final AnalysisHistory history;
+    private boolean firstAnalysis = true;
+    private final AnalysisGeneration analysisGeneration = new AnalysisGeneration();
+    private final GoblintFunctionsCache functionsCache = new GoblintFunctionsCache();
+    private final ReanalysisFilter reanalysisFilter = new ReanalysisFilter();
+    private final DiagnosticSnapshot diagnosticSnapshot = new DiagnosticSnapshot(DiagnosticSnapshot.DEFAULT_LOCATION);
+    private boolean snapshotChecked = false;
+    // Guards showing the snapshot, which is read in the background, against replacing the results of the analysis
+    private final Object snapshotLock = new Object();
+    private boolean staleResultsShown = false;
+    private boolean resultsPublished = false;
+    private String goblintVersion;
 
     private final Logger log = LogManager.getLogger(GoblintAnalysis.class);
 
 
 
     public GoblintAnalysis(MagpieServer magpieServer, GoblintServer goblintServer, GoblintService goblintService, GobPieConfiguration gobpieConfiguration, GoblintConfWatcher goblintConfWatcher) {
+        this(magpieServer, goblintServer, goblintService, gobpieConfiguration, goblintConfWatcher, null);
+    }
+
+    /**
+     * @param unsavedFilesOverlay the overlay through which unsaved files are analyzed, or null if only saved files are analyzed
+     */
+    public GoblintAnalysis(MagpieServer magpieServer, GoblintServer goblintServer, GoblintService goblintService, GobPieConfiguration gobpieConfiguration, GoblintConfWatcher goblintConfWatcher, UnsavedFilesOverlay unsavedFilesOverlay) {
+        this(magpieServer, goblintServer, goblintService, gobpieConfiguration, goblintConfWatcher, unsavedFilesOverlay, defaultBackgroundExecutor);
+    }
+
+    /**
+     * @param unsavedFilesOverlay the overlay through which unsaved files are analyzed, or null if only saved files are analyzed
+     * @param backgroundExecutor  the executor that reads and writes the diagnostic snapshot and hashes the analyzed files
+     */
+    public GoblintAnalysis(MagpieServer magpieServer, GoblintServer goblintServer, GoblintService goblintService, GobPieConfiguration gobpieConfiguration, GoblintConfWatcher goblintConfWatcher, UnsavedFilesOverlay unsavedFilesOverlay, Executor backgroundExecutor) {
+        this.unsavedFilesOverlay = unsavedFilesOverlay;
+        this.backgroundExecutor = backgroundExecutor;
         this.magpieServer = magpieServer;
         this.goblintServer = goblintServer;
         this.goblintService = goblintService;
         this.gobpieConfiguration = gobpieConfiguration;
         this.goblintConfWatcher = goblintConfWatcher;
+        this.history = new AnalysisHistory(gobpieConfiguration.analysisHistorySize());
     }
 
 
@@ -89,49 +143,286 @@ public class GoblintAnalysis implements ServerAnalysis {
             // rerun is true iff either the first file was opened or a file was saved i.e. exactly the cases where analysis should be performed.
             return;
         }
+        synchronized (analysisLock) {
+            // Unsaved changes are analyzed even if the files on the disk have not changed
+            boolean unsavedChanges = unsavedFilesOverlay != null && unsavedFilesOverlay.takePendingChanges();
+            String trigger = firstAnalysis ? "open" : unsavedChanges ? "edit" : "save";
+            firstAnalysis = false;
+            if (!isReanalysisFilterEnabled() || unsavedChanges) {
+                startAnalysis(consumer, trigger);
+                return;
+            }
+            // The analyzed files are hashed in the background, so that checking them does not block the thread that triggered the analysis
+            CompletableFuture.supplyAsync(reanalysisFilter::hasChanges, backgroundExecutor).thenAccept(changed -> {
+                synchronized (analysisLock) {
+                    if (changed) {
+                        startAnalysis(consumer, trigger);
+                    } else {
+                        skipAnalysis(consumer, trigger);
+                    }
+                }
+            }).exceptionally(ex -> {
+                log.error("Starting the analysis failed: " + ex.getMessage());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Publishes the results of the last analysis again instead of analyzing, because none of the analyzed files have changed.
+     *
+     * @param consumer the server which consumes the analysis results.
+     * @param trigger  the event that triggered the analysis
+     */
+    private void skipAnalysis(AnalysisConsumer consumer, String trigger) {
+        log.info("None of the analyzed files have changed, skipping the analysis (" + reanalysisFilter.skippedAnalyses() + " analyses skipped so far).");
+        Collection<AnalysisResult> results = lastResults;
+        if (results != null) {
+            // MagpieBridge removes all results before a save triggers an analysis, so the results of the last analysis are published again
+            consumer.consume(new ArrayList<>(results), source());
+        }
+        history.add(new AnalysisRun(trigger, AnalysisProgress.NONE).end("Skipped", results == null ? -1 : results.size()));
+    }
 
+    /**
+     * Starts a new analysis, aborting the last analysis if it is still running.
+     * Called while holding the analysis lock, so that an analysis is started and the previous one aborted atomically.
+     *
+     * @param consumer the server which consumes the analysis results.
+     * @param trigger  the event that triggered the analysis
+     */
+    private void startAnalysis(AnalysisConsumer consumer, String trigger) {
         if (!goblintServer.isAlive()) {
             // Goblint server has crashed. Exit GobPie because without the server no analysis is possible.
             magpieServer.exit();
             return;
         }
 
-        if (lastAnalysisTask != null && !lastAnalysisTask.isDone()) {
-            lastAnalysisTask.cancel(true);
-            try {
-                goblintServer.abortAnalysis();
-                log.info("--------------- This analysis has been aborted -------------");
-            } catch (IOException e) {
-                log.error("Aborting analysis failed.");
-            }
-        }
+        abortLastAnalysis("Aborted by a new analysis");
 
+        // The run is only known once its progress has been started, so the cancel handler looks it up when the progress is cancelled
+        AtomicReference<AnalysisRun> cancellableRun = new AtomicReference<>();
+        AnalysisProgress progress = AnalysisProgress.start(magpieServer, source() + " analysis", () -> cancelAnalysis(cancellableRun.get()));
+        AnalysisRun run = new AnalysisRun(trigger, progress);
+        cancellableRun.set(run);
+        lastAnalysisRun = run;
+
+        run.phase(AnalysisProgress.Phase.CONFIG_REFRESH);
         if (!goblintConfWatcher.refreshGoblintConfig()) {
+            reanalysisFilter.analysisFailed();
+            history.add(run.end("Reading the Goblint configuration failed", -1));
             return;
         }
 
-        magpieServer.forwardMessageToClient(new MessageParams(MessageType.Info, source() + " started analyzing the code."));
+        if (gobpieConfiguration.diagnosticSnapshot() && !snapshotChecked) {
+            snapshotChecked = true;
+            showSnapshot(consumer);
+        }
+
+        if (!progress.isReported()) {
+            magpieServer.forwardMessageToClient(new MessageParams(MessageType.Info, source() + " started analyzing the code."));
+        }
+        run.phase(AnalysisProgress.Phase.PRE_ANALYSIS);
         goblintServer.preAnalyse();
+        if (progress.isCancelled()) {
+            // The analysis was cancelled while the pre-analysis command was running
+            reanalysisFilter.analysisFailed();
+            return;
+        }
         log.info("---------------------- Analysis started ----------------------");
 
-        lastAnalysisTask = reanalyse().thenAccept(response -> {
+        lastAnalysisTask = reanalyse(run).thenAccept(response -> {
+            run.phase(AnalysisProgress.Phase.PUBLISH);
+            synchronized (snapshotLock) {
+                resultsPublished = true;
+                if (staleResultsShown) {
+                    // The results of the snapshot are not replaced by consuming new results, so they must be removed first
+                    magpieServer.cleanUp();
+                    staleResultsShown = false;
+                }
+            }
             consumer.consume(new ArrayList<>(response), source());
+            lastResults = response;
+            goblintServer.incrementalDataSaved();
+            if (isReanalysisFilterEnabled()) {
+                updateReanalysisFilter();
+            }
+            if (gobpieConfiguration.diagnosticSnapshot()) {
+                saveSnapshot(response);
+            }
 
             log.info("--------------------- Analysis finished ----------------------");
-            magpieServer.forwardMessageToClient(new MessageParams(MessageType.Info, source() + " finished analyzing the code."));
+            history.add(run.end("Finished", response.size()));
+            if (!progress.isReported()) {
+                magpieServer.forwardMessageToClient(new MessageParams(MessageType.Info, source() + " finished analyzing the code."));
+            }
         }).exceptionally(ex -> {
 
             Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
             // TODO: handle closed socket exceptions:
             //      org.eclipse.lsp4j.jsonrpc.JsonRpcException: java.net.SocketException: Broken pipe; errno=32
             //  and org.eclipse.lsp4j.jsonrpc.JsonRpcException: org.newsclub.net.unix.SocketClosedException: Not open
+            reanalysisFilter.analysisFailed();
             log.error("--------------------- Analysis failed  ----------------------");
             log.error(cause);
+            history.add(run.end("Failed", -1));
             magpieServer.forwardMessageToClient(new MessageParams(MessageType.Error, source() + " failed to analyze the code:\n" + cause.getMessage()));
             return null;
         });
     }
 
+    /**
+     * Aborts the analysis of the given run because the user cancelled its progress.
+     * Nothing is aborted if a new analysis has been started since, because the cancellation was meant for the previous analysis.
+     *
+     * @param run the run whose progress was cancelled
+     */
+    private synchronized void cancelAnalysis(AnalysisRun run) {
+        if (run == null || lastAnalysisRun != run) {
+            return;
+        }
+        abortLastAnalysis("Cancelled");
+        // The cancelled analysis did not analyze the current contents of the files
+        reanalysisFilter.analysisFailed();
+    }
+
+    /**
+     * Aborts the analysis that is still running, if any, and ends its run.
+     * The aborted task does not complete normally or exceptionally, so its run must be ended here.
+     *
+     * @param reason the reason the analysis is aborted, shown to the user in the progress
+     */
+    private synchronized void abortLastAnalysis(String reason) {
+        if (lastAnalysisTask != null && !lastAnalysisTask.isDone()) {
+            lastAnalysisTask.cancel(true);
+            try {
+                goblintServer.abortAnalysis();
+                log.info("--------------- This analysis has been aborted -------------");
+            } catch (IOException e) {
+                log.error("Aborting analysis failed.");
+            }
+        }
+        if (lastAnalysisRun != null) {
+            history.add(lastAnalysisRun.end(reason, -1));
+        }
+    }
+
+
+
+    /**
+     * Returns the history of the last analysis runs.
+     */
+    public AnalysisHistory history() {
+        return history;
+    }
+
+    /**
+     * Returns the counter of the analyses Goblint has completed, for tagging results requested from Goblint.
+     */
+    public AnalysisGeneration generation() {
+        return analysisGeneration;
+    }
+
+    /**
+     * Checks if analyses can be skipped when none of the analyzed files have changed.
+     * This is not done if a preAnalyzeCommand is configured, because its inputs are not known to Goblint.
+     */
+    private boolean isReanalysisFilterEnabled() {
+        List<String> preAnalyzeCommand = gobpieConfiguration.preAnalyzeCommand();
+        return gobpieConfiguration.skipUnchangedReanalysis() && (preAnalyzeCommand == null || preAnalyzeCommand.isEmpty());
+    }
+
+    /**
+     * Tells the reanalysis filter which files Goblint analyzed in the analysis that has just finished,
+     * i.e. the source files, the files they include and the Goblint configuration file.
+     * The files are hashed in the background, so that hashing does not block the thread reading the responses of Goblint.
+     */
+    private void updateReanalysisFilter() {
+        analyzedFiles().thenApply(analyzedFiles -> {
+            // The shadow copies of unsaved files are deleted once the files are saved or closed, so the original files are remembered instead
+            return unsavedFilesOverlay == null ? analyzedFiles : analyzedFiles.stream().map(unsavedFilesOverlay::originalFile).toList();
+        }).thenAcceptAsync(reanalysisFilter::analysisSucceeded, backgroundExecutor).exceptionally(ex -> {
+            log.warn("Getting the analyzed files failed, the next analysis will not be skipped: " + ex.getMessage());
+            reanalysisFilter.analysisFailed();
+            return null;
+        });
+    }
+
+    /**
+     * Requests the files Goblint analyzed in the last analysis from Goblint,
+     * i.e. the compilation databases and source files (the keys and values of the files request),
+     * the files they include (the keys and values of the pre_files request) and the Goblint configuration file.
+     *
+     * @return a CompletableFuture of the paths of the analyzed files.
+     */
+    private CompletableFuture<List<String>> analyzedFiles() {
+        return goblintService.files().thenCombine(goblintService.pre_files(), (files, preFiles) -> {
+            List<String> analyzedFiles = new ArrayList<>();
+            for (Map<String, List<String>> fileMap : List.of(files, preFiles)) {
+                analyzedFiles.addAll(fileMap.keySet());
+                fileMap.values().forEach(analyzedFiles::addAll);
+            }
+            analyzedFiles.add(gobpieConfiguration.goblintConf());
+            return analyzedFiles;
+        });
+    }
+
+    /**
+     * Shows the results stored in the diagnostic snapshot, if it is still valid for the current Goblint version,
+     * Goblint configuration and analyzed files.
+     * The results are marked as stale by their source until they are replaced by the results of the running analysis.
+     * The snapshot is read in the background and not shown if the analysis has already published its results.
+     *
+     * @param consumer the server which consumes the analysis results.
+     */
+    private void showSnapshot(AnalysisConsumer consumer) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                diagnosticSnapshot.read(goblintVersion(), gobpieConfiguration.goblintConf()).ifPresentOrElse(results -> {
+                    synchronized (snapshotLock) {
+                        if (resultsPublished) {
+                            return;
+                        }
+                        log.info("Showing " + results.size() + " results from the previous analysis until the analysis has finished.");
+                        consumer.consume(results, source() + " (stale)");
+                        staleResultsShown = true;
+                    }
+                }, () -> log.debug("No up-to-date diagnostic snapshot found."));
+            } catch (IOException | GobPieException e) {
+                log.warn("Reading the diagnostic snapshot failed: " + e.getMessage());
+            }
+        }, backgroundExecutor);
+    }
+
+    /**
+     * Stores the given results in the diagnostic snapshot together with the current state of the analyzed files.
+     * The snapshot is written in the background, failing to write it does not affect the analysis.
+     *
+     * @param results the results of the analysis that has just finished.
+     */
+    private void saveSnapshot(Collection<AnalysisResult> results) {
+        analyzedFiles().thenAcceptAsync(analyzedFiles -> {
+            try {
+                diagnosticSnapshot.write(DiagnosticSnapshot.Key.of(goblintVersion(), gobpieConfiguration.goblintConf(), analyzedFiles), results);
+                log.debug("Diagnostic snapshot written.");
+            } catch (IOException e) {
+                log.warn("Writing the diagnostic snapshot failed: " + e.getMessage());
+            }
+        }, backgroundExecutor).exceptionally(ex -> {
+            log.warn("Writing the diagnostic snapshot failed: " + ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Returns the version output of the Goblint executable. Goblint is only asked for it once.
+     */
+    private synchronized String goblintVersion() {
+        if (goblintVersion == null) {
+            goblintVersion = goblintServer.checkGoblintVersion();
+        }
+        return goblintVersion;
+    }
 
 
     /**
@@ -140,12 +431,14 @@ public class GoblintAnalysis implements ServerAnalysis {
      * If analysis succeeds, requests the messages from the Goblint server.
      * If showCfg option is turned on, asks for the function names for code lenses.
      *
+     * @param run the run the phases of the analysis are measured in
      * @return a CompletableFuture of a collection of warning messages and cfg code lenses if request was successful.
      * @throws GobPieException in case the analysis was aborted or returned a VerifyError.
      */
-    public CompletableFuture<Collection<AnalysisResult>> reanalyse() {
+    public CompletableFuture<Collection<AnalysisResult>> reanalyse(AnalysisRun run) {
+        run.phase(AnalysisProgress.Phase.ANALYZE);
         return goblintService.analyze(new AnalyzeParams(!gobpieConfiguration.incrementalAnalysis()))
-                .thenCompose(this::getComposedAnalysisResults);
+                .thenCompose(analysisResult -> getComposedAnalysisResults(analysisResult, run));
     }
 
     private void didAnalysisNotSucceed(GoblintAnalysisResult analysisResult) {
@@ -155,36 +448,96 @@ public class GoblintAnalysis implements ServerAnalysis {
             throw new GobPieException("Analysis returned VerifyError.", GobPieExceptionType.GOBLINT_EXCEPTION);
     }
 
-    private CompletableFuture<Collection<AnalysisResult>> getComposedAnalysisResults(GoblintAnalysisResult analysisResult) {
+    private CompletableFuture<Collection<AnalysisResult>> getComposedAnalysisResults(GoblintAnalysisResult analysisResult, AnalysisRun run) {
         didAnalysisNotSucceed(analysisResult);
+        int generation = analysisGeneration.advance();
         // Get warning messages
+        run.phase(AnalysisProgress.Phase.MESSAGES_FETCH);
         CompletableFuture<Collection<AnalysisResult>> messagesCompletableFuture = goblintService.messages()
-                .thenApply(this::convertMessagesFromJson);
+                .thenApply(response -> {
+                    run.messagesReceived(response.size());
+                    run.phase(AnalysisProgress.Phase.CONVERSION);
+                    return convertMessagesFromJson(response);
+                });
         if (!gobpieConfiguration.showCfg()) {
             return messagesCompletableFuture;
         }
         // Get list of functions
-        CompletableFuture<Collection<AnalysisResult>> functionsCompletableFuture = goblintService.functions()
-                .thenApply(this::convertFunctionsFromJson);
+        CompletableFuture<List<AnalysisResult>> functionsCompletableFuture = getFunctionCodeLenses(generation);
         return messagesCompletableFuture
                 .thenCombine(functionsCompletableFuture, (messages, functions) -> Stream.concat(messages.stream(), functions.stream()).toList());
     }
 
+    /**
+     * Gets the CFG code lenses for the functions known to Goblint.
+     * The functions are only requested from Goblint if an analyzed file (including headers and compilation databases) or the Goblint configuration
+     * has changed since the code lenses were cached, and only the functions in the changed files are converted again.
+     *
+     * @param generation the analysis generation the code lenses are requested in
+     * @return a CompletableFuture of the code lenses of all functions.
+     */
+    private CompletableFuture<List<AnalysisResult>> getFunctionCodeLenses(int generation) {
+        // The functions also depend on the headers, the compilation databases and the Goblint configuration, e.g. through preprocessor definitions
+        return analyzedFiles().thenCompose(analyzedFiles -> {
+            Map<String, FileFingerprint> fingerprints = FileFingerprint.ofAll(analyzedFiles);
+            if (functionsCache.isUpToDate(generation, fingerprints)) {
+                log.debug("No analyzed files have changed, reusing cached CFG code lenses.");
+                return CompletableFuture.completedFuture(functionsCache.getCodeLenses());
+            }
+            return goblintService.functions()
+                    .thenApply(functions -> functionsCache.update(generation, fingerprints, functions,
+                            GoblintFunctionsResult::convert, gobpieConfiguration.parallelConversionThreshold()));
+        });
+    }
+
 
     /**
      * Deserializes json from the response and converts the information
      * into AnalysisResult objects, which Magpie uses to generate IDE messages.
+     * If enabled, the messages that only differ by their context are folded into one message first.
+     * Only the messages within the diagnostic budget are converted.
      *
      * @param response that was read from the socket and needs to be converted to AnalysisResults.
      * @return A collection of AnalysisResult objects.
      */
 
     private Collection<AnalysisResult> convertMessagesFromJson(List<GoblintMessagesResult> response) {
-        return response.stream().map(msg -> msg.convert(gobpieConfiguration.explodeGroupWarnings())).flatMap(List::stream).toList();
+        ContextDeduplicator.Result deduplicated = gobpieConfiguration.deduplicateContexts()
+                ? ContextDeduplicator.deduplicate(response)
+                : new ContextDeduplicator.Result(response, Map.of(), 0);
+        if (deduplicated.folded() > 0) {
+            log.info("Folded " + deduplicated.folded() + " Goblint messages that only differ by their context.");
+        }
+        List<GoblintMessagesResult> messages = deduplicated.messages();
+        DiagnosticBudget budget = Objects.requireNonNullElse(gobpieConfiguration.diagnosticBudget(), DiagnosticBudget.UNLIMITED);
+        DiagnosticBudgetFilter.Result budgeted = new DiagnosticBudgetFilter(budget).apply(messages);
+        if (budgeted.suppressed() > 0) {
+            String msg = "Showing " + budgeted.kept().size() + " of " + messages.size() + " Goblint messages due to the diagnostic budget ("
+                    + budgeted.filtered() + " filtered out, "
+                    + budgeted.overPerFileLimit() + " over the per-file limit, "
+                    + budgeted.overTotalLimit() + " over the total limit).";
+            log.info(msg);
+            magpieServer.forwardMessageToClient(new MessageParams(MessageType.Info, msg));
+        }
+        boolean explode = gobpieConfiguration.explodeGroupWarnings();
+        return convertInOrder(budgeted.kept(), msg -> deduplicated.convert(msg, explode), gobpieConfiguration.parallelConversionThreshold());
     }
 
-    private Collection<AnalysisResult> convertFunctionsFromJson(List<GoblintFunctionsResult> response) {
-        return response.stream().map(GoblintFunctionsResult::convert).flatMap(List::stream).toList();
+    /**
+     * Converts each of the given Goblint results and concatenates the converted results.
+     * If there are at least parallelThreshold results, the conversion is done in parallel on the common fork-join pool.
+     * In both cases the converted results are in the same order as the Goblint results they were converted from,
+     * so that the diagnostics shown in the IDE do not get reordered between runs.
+     *
+     * @param response          the Goblint results to convert
+     * @param converter         the function converting a single Goblint result
+     * @param parallelThreshold the number of Goblint results from which on the conversion is done in parallel
+     * @return the converted results in the order of the Goblint results.
+     */
+    public static <T, R> List<R> convertInOrder(List<T> response, Function<T, List<R>> converter, int parallelThreshold) {
+        Stream<T> stream = response.size() >= parallelThreshold ? response.parallelStream() : response.stream();
+        // The stream is ordered, so toList preserves the encounter order even when the stream is parallel
+        return stream.map(converter).flatMap(List::stream).toList();
     }
 
 }
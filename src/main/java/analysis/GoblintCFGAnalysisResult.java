@@ -33,10 +33,24 @@ public class GoblintCFGAnalysisResult implements AnalysisResult {
         this.funName = funName;
     }
 
+    public String title() {
+        return title;
+    }
+
+    public String funName() {
+        return funName;
+    }
+
     @Override
     public Iterable<Command> command() {
-        Command command = new Command(title, "showcfg", Collections.singletonList(funName));
-        return Collections.singleton(command);
+        return Collections.singleton(command(title, funName));
+    }
+
+    /**
+     * Returns the command of the code lens that shows the CFG of the given function.
+     */
+    public static Command command(String title, String funName) {
+        return new Command(title, "showcfg", Collections.singletonList(funName));
     }
 
     @Override
@@ -0,0 +1,116 @@
+package analysis;
+
+import api.messages.GoblintFunctionsResult;
+import magpiebridge.core.AnalysisResult;
+import util.FileFingerprint;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The Class GoblintFunctionsCache.
+ * <p>
+ * Caches the CFG code lenses converted from the result of the Goblint functions request.
+ * The cached code lenses are tagged with the analysis generation they were computed in
+ * and with the fingerprints of the files Goblint analyzed at that time.
+ * The functions only change when the analyzed files change,
+ * so as long as the fingerprints are the same the cached code lenses can be reused in later generations.
+ *
+ * @since 0.0.5
+ */
+public class GoblintFunctionsCache {
+
+    private int generation = -1;
+    private Map<String, FileFingerprint> fingerprints = Map.of();
+    private Map<String, List<AnalysisResult>> codeLensesByFile = Map.of();
+    private Map<String, List<GoblintFunctionsResult>> functionsByFile = Map.of();
+
+    /**
+     * Checks if the cached code lenses can be used for the given generation.
+     * If the files have not changed since the code lenses were cached, the cache is moved to the given generation.
+     *
+     * @param generation           the generation for which the code lenses are needed
+     * @param currentFingerprints  the current fingerprints of the analyzed files
+     * @return true if the cached code lenses are up-to-date.
+     */
+    public synchronized boolean isUpToDate(int generation, Map<String, FileFingerprint> currentFingerprints) {
+        if (this.generation < 0) {
+            return false;
+        }
+        if (this.generation == generation) {
+            return true;
+        }
+        if (!fingerprints.equals(currentFingerprints)) {
+            return false;
+        }
+        this.generation = generation;
+        return true;
+    }
+
+    /**
+     * Returns all cached code lenses.
+     */
+    public synchronized List<AnalysisResult> getCodeLenses() {
+        return codeLensesByFile.values().stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * Replaces the cached code lenses with the code lenses for the given functions.
+     * The code lenses of files whose fingerprint and functions have not changed are reused from the cache,
+     * only the functions in the other files are converted.
+     * The functions of a file are compared as well, because they also depend on other files, e.g. the compilation database.
+     *
+     * @param generation          the generation the functions were requested in
+     * @param currentFingerprints the fingerprints of the analyzed files in the given generation
+     * @param functions           the result of the Goblint functions request
+     * @param converter           the function converting a Goblint function into code lenses
+     * @param parallelThreshold   the number of functions to convert from which on the conversion is done in parallel
+     * @return all code lenses for the given functions, grouped by file.
+     */
+    public synchronized List<AnalysisResult> update(int generation, Map<String, FileFingerprint> currentFingerprints,
+                                                    List<GoblintFunctionsResult> functions,
+                                                    Function<GoblintFunctionsResult, List<AnalysisResult>> converter,
+                                                    int parallelThreshold) {
+        // Group functions by file, keeping the order in which Goblint reported the files
+        Map<String, List<GoblintFunctionsResult>> currentFunctionsByFile = new LinkedHashMap<>();
+        for (GoblintFunctionsResult function : functions) {
+            currentFunctionsByFile.computeIfAbsent(FileFingerprint.normalize(function.location().file()), f -> new ArrayList<>()).add(function);
+        }
+
+        List<String> changedFiles = currentFunctionsByFile.keySet().stream()
+                .filter(file -> !isUnchanged(file, currentFingerprints, currentFunctionsByFile.get(file)))
+                .toList();
+        int changedFunctions = changedFiles.stream().mapToInt(file -> currentFunctionsByFile.get(file).size()).sum();
+        List<List<AnalysisResult>> converted = GoblintAnalysis.convertInOrder(
+                changedFiles,
+                file -> List.of(currentFunctionsByFile.get(file).stream().map(converter).flatMap(List::stream).toList()),
+                changedFunctions >= parallelThreshold ? 0 : Integer.MAX_VALUE
+        );
+
+        Map<String, List<AnalysisResult>> newCodeLensesByFile = new LinkedHashMap<>();
+        for (String file : currentFunctionsByFile.keySet()) {
+            newCodeLensesByFile.put(file, isUnchanged(file, currentFingerprints, currentFunctionsByFile.get(file)) ? codeLensesByFile.get(file) : null);
+        }
+        for (int i = 0; i < changedFiles.size(); i++) {
+            newCodeLensesByFile.put(changedFiles.get(i), converted.get(i));
+        }
+
+        this.generation = generation;
+        this.fingerprints = currentFingerprints;
+        this.codeLensesByFile = newCodeLensesByFile;
+        this.functionsByFile = currentFunctionsByFile;
+        return getCodeLenses();
+    }
+
+    /**
+     * Checks if the code lenses of the given file are cached and neither the file nor its functions have changed since they were cached.
+     * Files that are not among the analyzed files cannot be fingerprinted reliably and are always considered changed.
+     */
+    private boolean isUnchanged(String file, Map<String, FileFingerprint> currentFingerprints, List<GoblintFunctionsResult> currentFunctions) {
+        return codeLensesByFile.containsKey(file)
+                && currentFingerprints.containsKey(file)
+                && currentFingerprints.get(file).equals(fingerprints.get(file))
+                && currentFunctions.equals(functionsByFile.get(file));
+    }
+
+}
@@ -1,13 +1,16 @@
 package analysis;
 
 import api.messages.GoblintPosition;
+import api.messages.GoblintSeverity;
 import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
 import com.ibm.wala.util.collections.Pair;
 import magpiebridge.core.AnalysisResult;
 import magpiebridge.core.Kind;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -15,37 +18,98 @@ import java.util.Objects;
  * <p>
  * Implementation of the GoblintAnalysisResult class that extends MagpieBridge AnalysisResult class.
  * The class that corresponds to the Goblint warnings that are shown in the IDE.
+ * <p>
+ * As Goblint can report hundreds of thousands of warnings, the results are kept compact:
+ * the tags are shared between results, the shown text is built only when it is first needed
+ * and the pieces of an exploded group share a single list of related warnings.
  *
  * @author Karoliine Holter
  */
 
 public class GoblintMessagesAnalysisResult implements AnalysisResult {
 
-    private String group_text = "";
+    private static final List<Pair<Position, String>> NO_RELATED = List.of();
+
+    private final String group_text;
+    // The shown text is prefix + text + the context suffix. It is only built when first needed and then cached,
+    // so that the prefix (usually the tags of the message) can be shared between many results until the results are shown.
+    private final String prefix;
     private final String text;
+    private final Integer context;
+    // Strings are immutable, so racing threads at worst build the same shown text twice
+    private String shownText;
     private final Position pos;
-    private final String severity;
-    private Iterable<Pair<Position, String>> related = new ArrayList<>();
+    private final GoblintSeverity severity;
+    private final Iterable<Pair<Position, String>> related;
+    // The index of this result in the related results shared by a group, or -1 if the related results are not shared
+    private final int sharedRelatedIndex;
 
     public GoblintMessagesAnalysisResult(GoblintPosition pos, String text, String severity) {
-        this.text = text;
-        this.pos = pos;
-        this.severity = severity;
+        this(pos, "", "", text, null, GoblintSeverity.of(severity), NO_RELATED, -1);
     }
 
     public GoblintMessagesAnalysisResult(GoblintPosition pos, String group_text, String text, String severity) {
+        this(pos, group_text, "", text, null, GoblintSeverity.of(severity), NO_RELATED, -1);
+    }
+
+    public GoblintMessagesAnalysisResult(Position pos, String text, String severity, Iterable<Pair<Position, String>> related) {
+        this(pos, "", "", text, null, GoblintSeverity.of(severity), related, -1);
+    }
+
+    public GoblintMessagesAnalysisResult(Position pos, String group_text, String text, String severity, Iterable<Pair<Position, String>> related) {
+        this(pos, group_text, "", text, null, GoblintSeverity.of(severity), related, -1);
+    }
+
+    private GoblintMessagesAnalysisResult(Position pos, String group_text, String prefix, String text, Integer context,
+                                          GoblintSeverity severity, Iterable<Pair<Position, String>> related, int sharedRelatedIndex) {
         this.group_text = group_text;
+        this.prefix = prefix;
         this.text = text;
+        this.context = context;
         this.pos = pos;
         this.severity = severity;
+        this.related = related == null || (related instanceof Collection<?> collection && collection.isEmpty()) ? NO_RELATED : related;
+        this.sharedRelatedIndex = sharedRelatedIndex;
+    }
+
+    /**
+     * Creates the result for a single Goblint message.
+     *
+     * @param pos      the location of the message
+     * @param prefix   the tags of the message followed by a space, should be shared by all messages with the same tags
+     * @param text     the text of the message
+     * @param context  the context of the message, or null if the message has no context
+     * @param severity the severity of the message
+     */
+    public static GoblintMessagesAnalysisResult ofPiece(Position pos, String prefix, String text, Integer context, GoblintSeverity severity) {
+        return new GoblintMessagesAnalysisResult(pos, "", prefix, text, context, severity, NO_RELATED, -1);
     }
 
+    /**
+     * Creates the result for a Goblint group message that is shown at a single location.
+     *
+     * @param pos      the location of the message
+     * @param prefix   the tags of the message followed by a space, should be shared by all messages with the same tags
+     * @param text     the text of the group
+     * @param severity the severity of the message
+     * @param related  the locations and texts of the pieces in the group
+     */
+    public static GoblintMessagesAnalysisResult ofGroup(Position pos, String prefix, String text, GoblintSeverity severity, List<Pair<Position, String>> related) {
+        return new GoblintMessagesAnalysisResult(pos, "", prefix, text, null, severity, related, -1);
+    }
 
-    public GoblintMessagesAnalysisResult(Position pos, String text, String severity, Iterable<Pair<Position, String>> related) {
-        this.text = text;
-        this.pos = pos;
-        this.severity = severity;
-        this.related = related;
+    /**
+     * Creates the result for one piece of an exploded Goblint group message.
+     * All pieces of the group share the same list of related results, each piece leaves itself out of it.
+     *
+     * @param prefix   the text of the group followed by a newline, should be shared by all pieces of the group
+     * @param pieces   the locations and texts of all pieces in the group
+     * @param index    the index of this piece in the pieces
+     * @param severity the severity of the message
+     */
+    public static GoblintMessagesAnalysisResult ofGroupPiece(String prefix, List<Pair<Position, String>> pieces, int index, GoblintSeverity severity) {
+        Pair<Position, String> piece = pieces.get(index);
+        return new GoblintMessagesAnalysisResult(piece.fst, "", prefix, piece.snd, null, severity, pieces, index);
     }
 
     @Override
@@ -55,7 +119,7 @@ public class GoblintMessagesAnalysisResult implements AnalysisResult {
 
     @Override
     public String toString(boolean useMarkdown) {
-        return text;
+        return text();
     }
 
     public String group_text() {
@@ -63,7 +127,15 @@ public class GoblintMessagesAnalysisResult implements AnalysisResult {
     }
 
     public String text() {
-        return text;
+        if (prefix.isEmpty() && context == null) {
+            return text;
+        }
+        String shown = shownText;
+        if (shown == null) {
+            shown = prefix + text + (context == null ? "" : " in context " + context);
+            shownText = shown;
+        }
+        return shown;
     }
 
     @Override
@@ -72,23 +144,32 @@ public class GoblintMessagesAnalysisResult implements AnalysisResult {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Iterable<Pair<Position, String>> related() {
-        return related;
+        if (sharedRelatedIndex < 0) {
+            return related;
+        }
+        List<Pair<Position, String>> pieces = (List<Pair<Position, String>>) related;
+        return new AbstractList<>() {
+            @Override
+            public Pair<Position, String> get(int index) {
+                return pieces.get(index < sharedRelatedIndex ? index : index + 1);
+            }
+
+            @Override
+            public int size() {
+                return pieces.size() - 1;
+            }
+        };
     }
 
     @Override
     public DiagnosticSeverity severity() {
-        DiagnosticSeverity diagnosticSeverity = DiagnosticSeverity.Information;
-        if (severity.equals("Warning")) {
-            diagnosticSeverity = DiagnosticSeverity.Warning;
-        } else if (severity.equals("Error")) {
-            diagnosticSeverity = DiagnosticSeverity.Error;
-        }
-        return diagnosticSeverity;
+        return severity.toDiagnosticSeverity();
     }
 
     public String severityStr() {
-        return severity;
+        return severity.name();
     }
 
     @Override
@@ -114,7 +195,13 @@ public class GoblintMessagesAnalysisResult implements AnalysisResult {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         GoblintMessagesAnalysisResult that = (GoblintMessagesAnalysisResult) o;
-        return Objects.equals(group_text, that.group_text) && Objects.equals(text, that.text) && Objects.equals(pos, that.pos) && Objects.equals(severity, that.severity) && Objects.equals(related, that.related);
+        return Objects.equals(group_text, that.group_text) && Objects.equals(text(), that.text()) && Objects.equals(pos, that.pos) && severity == that.severity && Objects.equals(related(), that.related());
+    }
+
+    @Override
+    public int hashCode() {
+        // The related results are left out, because hashing them would iterate over whole groups
+        return Objects.hash(group_text, text(), pos, severity);
     }
 
 }
@@ -0,0 +1,100 @@
+package analysis;
+
+import util.FileFingerprint;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Class ReanalysisFilter.
+ * <p>
+ * Decides whether an analysis event requires Goblint to analyze again.
+ * MagpieBridge triggers an analysis on every save, also when the saved file is not analyzed by Goblint
+ * or its contents did not change (e.g. saving without editing, or a formatter that made no changes).
+ * The filter remembers the contents of the files Goblint analyzed (as reported by the files and pre_files requests)
+ * and lets an analysis through only if the contents of one of them have changed.
+ * <p>
+ * The contents are compared by their hashes. A file is only hashed again if its fingerprint has changed.
+ *
+ * @since 0.0.5
+ */
+public class ReanalysisFilter {
+
+    private record FileState(FileFingerprint fingerprint, String hash) {
+    }
+
+    // The states of the analyzed files when the last analysis was started, or null if it is not known which files are analyzed
+    private Map<String, FileState> analyzedFiles = null;
+    private int skippedAnalyses = 0;
+
+    /**
+     * Checks if any of the analyzed files has changed since the last analysis was started.
+     * If so, the current contents of the files are remembered as the contents of the analysis that is about to start.
+     *
+     * @return true if the analysis should be started, false if it can be skipped.
+     */
+    public synchronized boolean hasChanges() {
+        if (analyzedFiles == null) {
+            return true;
+        }
+        boolean changed = false;
+        Map<String, FileState> currentFiles = new LinkedHashMap<>();
+        for (Map.Entry<String, FileState> entry : analyzedFiles.entrySet()) {
+            FileState current = currentState(entry.getKey(), entry.getValue());
+            changed |= !current.hash().equals(entry.getValue().hash());
+            currentFiles.put(entry.getKey(), current);
+        }
+        // Remember the new fingerprints also if nothing changed, so that unchanged files are not hashed again next time
+        analyzedFiles = currentFiles;
+        if (!changed) {
+            skippedAnalyses++;
+        }
+        return changed;
+    }
+
+    /**
+     * Remembers the files that Goblint analyzed in the analysis that has just finished successfully.
+     * The files that were already analyzed before keep the contents they had when the analysis was started,
+     * the files that are analyzed for the first time are hashed now.
+     *
+     * @param files the analyzed files
+     */
+    public synchronized void analysisSucceeded(Collection<String> files) {
+        Map<String, FileState> previousFiles = analyzedFiles == null ? Map.of() : analyzedFiles;
+        Map<String, FileState> newFiles = new LinkedHashMap<>();
+        for (String file : files) {
+            String normalized = FileFingerprint.normalize(file);
+            if (!newFiles.containsKey(normalized)) {
+                FileState previous = previousFiles.get(normalized);
+                newFiles.put(normalized, previous != null ? previous : currentState(normalized, null));
+            }
+        }
+        analyzedFiles = newFiles;
+    }
+
+    /**
+     * Forgets the analyzed files after an analysis failed or was aborted, so that the next analysis is not skipped.
+     */
+    public synchronized void analysisFailed() {
+        analyzedFiles = null;
+    }
+
+    /**
+     * Returns the number of analyses that have been skipped because no analyzed file had changed.
+     */
+    public synchronized int skippedAnalyses() {
+        return skippedAnalyses;
+    }
+
+    private static FileState currentState(String file, FileState previous) {
+        Path path = Path.of(file);
+        FileFingerprint fingerprint = FileFingerprint.of(path);
+        if (previous != null && previous.fingerprint().equals(fingerprint)) {
+            return previous;
+        }
+        return new FileState(fingerprint, FileFingerprint.contentHash(path));
+    }
+
+}
@@ -8,6 +8,7 @@ import org.eclipse.lsp4j.jsonrpc.json.StreamMessageProducer;
 import org.eclipse.lsp4j.jsonrpc.messages.Message;
 
 import java.io.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +22,9 @@ public class GoblintSocketMessageProducer implements MessageProducer, Closeable,
 
     private static final Logger LOG = Logger.getLogger(StreamMessageProducer.class.getName());
 
+    // The number of characters received from Goblint, for measuring the sizes of the responses
+    private static final AtomicLong receivedCharacters = new AtomicLong();
+
     private final MessageJsonHandler jsonHandler;
     private final MessageIssueHandler issueHandler;
     private final BufferedReader inputReader;
@@ -98,6 +102,7 @@ public class GoblintSocketMessageProducer implements MessageProducer, Closeable,
             log.debug("READ: {}", content);
             try {
                 if (content != null) {
+                    receivedCharacters.addAndGet(content.length());
                     Message message = jsonHandler.parseMessage(content);
                     callback.consume(message);
                 } else {
@@ -125,6 +130,13 @@ public class GoblintSocketMessageProducer implements MessageProducer, Closeable,
         return true;
     }
 
+    /**
+     * Returns the total number of characters received from Goblint servers so far.
+     */
+    public static long receivedCharacters() {
+        return receivedCharacters.get();
+    }
+
     @Override
     public void close() {
         keepRunning = false;
@@ -2,6 +2,9 @@ package api.messages;
 
 import java.io.File;
 import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Goblint CIL location.
@@ -16,14 +19,36 @@ public record GoblintLocation(
         Integer endLine,
         Integer endColumn) {
 
+    // The URLs of the files, shared by all positions in the same file
+    private static final Map<String, URL> fileURLs = new ConcurrentHashMap<>();
+
     public GoblintPosition toPosition() {
+        return new GoblintPosition(
+                this.line,
+                this.endLine,
+                this.column < 0 ? 0 : this.column - 1,
+                this.endColumn < 0 ? 10000 : this.endColumn - 1,
+                fileURLs.computeIfAbsent(this.file, GoblintLocation::toURL));
+    }
+
+    /**
+     * Makes the positions in the given alias file point to the given file,
+     * e.g. so that results in a copy of a file are shown in the original file.
+     */
+    public static void aliasFile(String alias, String file) {
+        fileURLs.put(alias, toURL(file));
+    }
+
+    /**
+     * Makes the positions in the given alias file point to the alias file itself again.
+     */
+    public static void removeAlias(String alias) {
+        fileURLs.remove(alias);
+    }
+
+    private static URL toURL(String file) {
         try {
-            return new GoblintPosition(
-                    this.line,
-                    this.endLine,
-                    this.column < 0 ? 0 : this.column - 1,
-                    this.endColumn < 0 ? 10000 : this.endColumn - 1,
-                    new File(this.file).toURI().toURL());
+            return new File(file).toURI().toURL();
         } catch (MalformedURLException e) {
             throw new RuntimeException(e);
         }
@@ -9,6 +9,7 @@ import java.io.File;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -45,6 +46,10 @@ public class GoblintMessagesResult {
     public static class CWE implements Tag {
         private int CWE;
 
+        public int id() {
+            return CWE;
+        }
+
         @Override
         public String toString() {
             return "CWE-" + CWE;
@@ -53,6 +58,13 @@ public class GoblintMessagesResult {
 
     public interface MultiPiece {
         List<AnalysisResult> convert(List<Tag> tags, String severity, boolean explode);
+
+        /**
+         * The location at which the message is primarily shown, or null if it has no location.
+         */
+        GoblintLocation location();
+
+        String text();
     }
 
     public static class Piece implements MultiPiece {
@@ -64,6 +76,23 @@ public class GoblintMessagesResult {
             private Integer tag;
         }
 
+        @Override
+        public GoblintLocation location() {
+            return loc;
+        }
+
+        @Override
+        public String text() {
+            return text;
+        }
+
+        /**
+         * The context of the message, or null if the message has no context.
+         */
+        public Integer context() {
+            return context == null ? null : context.tag;
+        }
+
         /**
          * Converts the Single (Piece type of) Goblint messages from the
          * GoblintMessagesResult type to AnalysisResult that are needed for MagPieBridge.
@@ -75,10 +104,26 @@ public class GoblintMessagesResult {
          */
         public List<AnalysisResult> convert(List<Tag> tags, String severity, boolean explode) {
             GoblintPosition pos = getLocation(loc);
-            String ctx = context == null || context.tag == null ? "" : " in context " + context.tag;
-            String msg = joinTags(tags) + " " + text + ctx;
-            GoblintMessagesAnalysisResult result = new GoblintMessagesAnalysisResult(pos, msg, severity);
-            return List.of(result);
+            Integer ctx = context == null ? null : context.tag;
+            return List.of(GoblintMessagesAnalysisResult.ofPiece(pos, tagPrefix(tags), text, ctx, GoblintSeverity.of(severity)));
+        }
+
+        /**
+         * Converts the Single (Piece type of) Goblint message that was reported in several contexts
+         * into a single AnalysisResult, with the contexts as related warnings at the same location.
+         *
+         * @param tags     the tags of the warning given by Goblint
+         * @param severity the severity of the warning given by Goblint
+         * @param contexts the contexts the warning was reported in
+         * @return A collection with one AnalysisResult object.
+         */
+        public List<AnalysisResult> convertFolded(List<Tag> tags, String severity, List<Integer> contexts) {
+            GoblintPosition pos = getLocation(loc);
+            List<Pair<Position, String>> related = contexts.stream()
+                    .map(ctx -> Pair.make((Position) pos, "In context " + ctx))
+                    .toList();
+            String foldedText = text + " in " + contexts.size() + " contexts";
+            return List.of(GoblintMessagesAnalysisResult.ofGroup(pos, tagPrefix(tags), foldedText, GoblintSeverity.of(severity), related));
         }
     }
 
@@ -87,6 +132,18 @@ public class GoblintMessagesResult {
         private GoblintLocation group_loc;
         private final List<Piece> pieces = new ArrayList<>();
 
+        @Override
+        public GoblintLocation location() {
+            return group_loc != null
+                    ? group_loc
+                    : pieces.stream().map(piece -> piece.loc).filter(Objects::nonNull).findFirst().orElse(null);
+        }
+
+        @Override
+        public String text() {
+            return group_text;
+        }
+
         /**
          * Converts the Group Goblint messages from the
          * GoblintMessagesResult type to AnalysisResult that are needed for MagPieBridge.
@@ -104,23 +161,16 @@ public class GoblintMessagesResult {
         }
 
         public List<AnalysisResult> convertGroupExplode(List<Tag> tags, String severity) {
-            String groupText = joinTags(tags) + " Group: " + group_text;
-            List<GoblintMessagesAnalysisResult> resultsWithoutRelated =
-                    pieces.stream().map(piece -> new GoblintMessagesAnalysisResult(getLocation(piece.loc), groupText, piece.text, severity)).toList();
-            // Add related warnings to all the pieces in the group
-            List<AnalysisResult> resultsWithRelated = new ArrayList<>();
-            for (GoblintMessagesAnalysisResult result : resultsWithoutRelated) {
-                resultsWithRelated.add(
-                        new GoblintMessagesAnalysisResult(
-                                result.position(),
-                                result.group_text() + "\n" + result.text(),
-                                result.severityStr(),
-                                resultsWithoutRelated.stream()
-                                        .filter(res -> res != result)
-                                        .map(res -> Pair.make(res.position(), res.text()))
-                                        .toList()));
+            String groupText = joinTags(tags) + " Group: " + group_text + "\n";
+            List<Pair<Position, String>> piecesWithLocations =
+                    pieces.stream().map(piece -> Pair.make((Position) getLocation(piece.loc), piece.text)).toList();
+            // Show a warning at each of the pieces in the group, with all the other pieces as related warnings
+            GoblintSeverity goblintSeverity = GoblintSeverity.of(severity);
+            List<AnalysisResult> results = new ArrayList<>(pieces.size());
+            for (int i = 0; i < piecesWithLocations.size(); i++) {
+                results.add(GoblintMessagesAnalysisResult.ofGroupPiece(groupText, piecesWithLocations, i, goblintSeverity));
             }
-            return resultsWithRelated;
+            return results;
         }
 
         public List<AnalysisResult> convertGroup(List<Tag> tags, String severity) {
@@ -136,9 +186,7 @@ public class GoblintMessagesResult {
                             .findFirst()
                             .map(piece -> piece.loc.toPosition())
                             .orElse(getLocation(group_loc));
-            GoblintMessagesAnalysisResult result =
-                    new GoblintMessagesAnalysisResult(pos, joinTags(tags) + " " + group_text, severity, relatedFromPieces);
-            return List.of(result);
+            return List.of(GoblintMessagesAnalysisResult.ofGroup(pos, tagPrefix(tags), group_text, GoblintSeverity.of(severity), relatedFromPieces));
         }
     }
 
@@ -146,6 +194,14 @@ public class GoblintMessagesResult {
         return tags.stream().map(tag -> "[" + tag.toString() + "]").collect(Collectors.joining(""));
     }
 
+    /**
+     * Returns the tags joined into the prefix of a warning text.
+     * The prefix is interned, so that all warnings with the same tags share one prefix.
+     */
+    private static String tagPrefix(List<Tag> tags) {
+        return (joinTags(tags) + " ").intern();
+    }
+
     private static GoblintPosition getLocation(GoblintLocation loc) {
         try {
             return loc == null
@@ -156,8 +212,28 @@ public class GoblintMessagesResult {
         }
     }
 
+    public List<Tag> tags() {
+        return tags;
+    }
+
+    public String severity() {
+        return severity;
+    }
+
+    public MultiPiece multipiece() {
+        return multipiece;
+    }
+
     public List<AnalysisResult> convert(boolean explode) {
         return multipiece.convert(tags, severity, explode);
     }
 
+    /**
+     * Converts a single message that was reported in the given contexts into one AnalysisResult.
+     * Only messages consisting of a single piece can be folded.
+     */
+    public List<AnalysisResult> convertFolded(List<Integer> contexts) {
+        return ((Piece) multipiece).convertFolded(tags, severity, contexts);
+    }
+
 }
\ No newline at end of file
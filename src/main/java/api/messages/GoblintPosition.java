@@ -91,4 +91,10 @@ public class GoblintPosition implements Position {
         return columnStart == that.columnStart && columnEnd == that.columnEnd && lineStart == that.lineStart && lineEnd == that.lineEnd && Objects.equals(sourcefileURL, that.sourcefileURL);
     }
 
+    @Override
+    public int hashCode() {
+        // URL.hashCode may resolve the host name, so the URL is left out
+        return Objects.hash(columnStart, columnEnd, lineStart, lineEnd);
+    }
+
 }
@@ -0,0 +1,57 @@
+package api.messages;
+
+import org.eclipse.lsp4j.DiagnosticSeverity;
+
+import java.util.Optional;
+
+/**
+ * The Enum GoblintSeverity.
+ * <p>
+ * The severities of Goblint messages, from the most to the least severe.
+ *
+ * @since 0.0.5
+ */
+public enum GoblintSeverity {
+    Error,
+    Warning,
+    Info,
+    Debug,
+    Success;
+
+    /**
+     * Returns the severity with the given name. Severities unknown to GobPie are treated as Info.
+     */
+    public static GoblintSeverity of(String severity) {
+        for (GoblintSeverity value : values()) {
+            if (value.name().equals(severity)) {
+                return value;
+            }
+        }
+        return Info;
+    }
+
+    /**
+     * Returns the severity with the given name, ignoring case, e.g. when the severity is given by the user.
+     *
+     * @return the severity, or an empty Optional if there is no severity with the given name.
+     */
+    public static Optional<GoblintSeverity> parse(String severity) {
+        for (GoblintSeverity value : values()) {
+            if (value.name().equalsIgnoreCase(severity)) {
+                return Optional.of(value);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the severity with which messages of this severity are shown in the IDE.
+     */
+    public DiagnosticSeverity toDiagnosticSeverity() {
+        return switch (this) {
+            case Error -> DiagnosticSeverity.Error;
+            case Warning -> DiagnosticSeverity.Warning;
+            default -> DiagnosticSeverity.Information;
+        };
+    }
+}
@@ -11,6 +11,8 @@ import org.eclipse.lsp4j.MessageType;
 import util.FileWatcher;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.util.Optional;
 import java.util.concurrent.CompletionException;
 
 public class GoblintConfWatcher {
@@ -21,6 +23,8 @@ public class GoblintConfWatcher {
     private final GobPieConfiguration gobpieConfiguration;
 
     public boolean configValid = false;
+    private UnsavedFilesOverlay overlay = null;
+    private boolean overlayConfigRead = false;
 
     private final Logger log = LogManager.getLogger(GoblintConfWatcher.class);
 
@@ -31,14 +35,26 @@ public class GoblintConfWatcher {
         this.fileWatcher = fileWatcher;
     }
 
+    /**
+     * Sets the overlay whose configuration is read instead of the Goblint configuration while there are unsaved files.
+     */
+    public void setOverlay(UnsavedFilesOverlay overlay) {
+        this.overlay = overlay;
+    }
+
     /**
      * Reloads Goblint config if it has been changed or is currently invalid.
+     * While there are unsaved files, the overlay configuration is read instead, as it changes with the unsaved files.
      */
     public boolean refreshGoblintConfig() {
-        if (fileWatcher.checkModified() || !configValid) {
+        Optional<Path> overlayConfig = overlay == null ? Optional.empty() : overlay.config();
+        boolean modified = fileWatcher.checkModified();
+        if (modified || !configValid || overlayConfig.isPresent() || overlayConfigRead) {
+            String goblintConf = overlayConfig.map(Path::toString).orElse(new File(gobpieConfiguration.goblintConf()).getAbsolutePath());
+            overlayConfigRead = overlayConfig.isPresent();
             configValid = goblintService.reset_config()
                     .thenCompose(_res ->
-                            goblintService.read_config(new Params(new File(gobpieConfiguration.goblintConf()).getAbsolutePath())))
+                            goblintService.read_config(new Params(goblintConf)))
                     .handle((_res, ex) -> {
                         if (ex != null) {
                             Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
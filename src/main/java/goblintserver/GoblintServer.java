@@ -16,6 +16,8 @@ import org.zeroturnaround.process.UnixProcess;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Collections;
@@ -41,6 +43,8 @@ public class GoblintServer {
     private final MagpieServer magpieServer;
     private final GobPieConfiguration configuration;
     private StartedProcess goblintRunProcess;
+    private IncrementalDataStore incrementalDataStore;
+    private IncrementalDataStore.Generation incrementalGeneration;
 
     private final Logger log = LogManager.getLogger(GoblintServer.class);
 
@@ -110,6 +114,16 @@ public class GoblintServer {
         if (configuration.abstractDebugging()) {
             Collections.addAll(command, "--enable", "exp.arg.enabled");
         }
+        if (incrementalGeneration != null) {
+            Collections.addAll(command,
+                    "--enable", "incremental.save",
+                    "--set", "incremental.save-dir", incrementalGeneration.saveDir().toAbsolutePath().toString());
+            if (incrementalGeneration.loadDir() != null) {
+                Collections.addAll(command,
+                        "--enable", "incremental.load",
+                        "--set", "incremental.load-dir", incrementalGeneration.loadDir().toAbsolutePath().toString());
+            }
+        }
         return command;
     }
 
@@ -147,6 +161,7 @@ public class GoblintServer {
                     // TODO: throw an exception? where (and how) can it be caught to be handled though?
                 }
             };
+            prepareIncrementalData();
             List<String> goblintRunCommand = constructGoblintRunCommand();
             log.info("Goblint run with command: " + String.join(" ", goblintRunCommand));
             goblintRunProcess = runCommand(new File(System.getProperty("user.dir")), goblintRunCommand, listener);
@@ -155,6 +170,47 @@ public class GoblintServer {
         }
     }
 
+    /**
+     * Prepares the directories Goblint loads its incremental analysis data from and saves it into,
+     * if incremental analysis is enabled and its data should be kept across restarts.
+     * If this fails, Goblint is started without loading or saving its incremental analysis data.
+     */
+    private void prepareIncrementalData() {
+        if (!configuration.incrementalAnalysis() || configuration.incrementalStoreGenerations() <= 0) {
+            return;
+        }
+        Path projectRoot = Path.of(System.getProperty("user.dir"));
+        incrementalDataStore = new IncrementalDataStore(
+                projectRoot.resolve(IncrementalDataStore.DEFAULT_LOCATION),
+                configuration.incrementalStoreGenerations(),
+                configuration.incrementalStoreMaxSize() * 1024L * 1024L,
+                Duration.ofDays(configuration.incrementalStoreMaxAge())
+        );
+        try {
+            incrementalGeneration = incrementalDataStore.open(checkGoblintVersion(), IncrementalDataStore.branchKey(projectRoot));
+        } catch (IOException | GobPieException e) {
+            log.warn("Preparing the incremental analysis data store failed, incremental analysis will start from scratch: " + e.getMessage());
+            incrementalGeneration = null;
+        }
+    }
+
+
+    /**
+     * Marks that Goblint has saved its incremental analysis data after a successful analysis,
+     * so that the data can be loaded when the Goblint server is started the next time.
+     */
+    public void incrementalDataSaved() {
+        if (incrementalGeneration == null) {
+            return;
+        }
+        try {
+            incrementalDataStore.markSaved(incrementalGeneration);
+        } catch (IOException e) {
+            log.warn("Updating the incremental analysis data store failed: " + e.getMessage());
+        }
+    }
+
+
     public boolean isAlive() {
         return goblintRunProcess.getProcess().isAlive();
     }
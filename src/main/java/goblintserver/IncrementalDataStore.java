@@ -0,0 +1,280 @@
+package goblintserver;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * The Class IncrementalDataStore.
+ * <p>
+ * Manages the directories into which Goblint saves its incremental analysis data,
+ * so that incremental analysis can be resumed after GobPie (and with it the Goblint server) is restarted.
+ * <p>
+ * Every start of the Goblint server gets a new generation directory to save into.
+ * The newest generation that was saved successfully for the same branch (or commit) and Goblint version is loaded from.
+ * Generations are evicted when there are more than the configured number of them for a branch,
+ * when they are older than the configured maximum age, or when the store exceeds the configured size.
+ * A generation that was loaded repeatedly without an analysis finishing afterwards is assumed to be unloadable and is discarded,
+ * so that a broken generation cannot keep the Goblint server from starting.
+ *
+ * @since 0.0.5
+ */
+public class IncrementalDataStore {
+
+    /**
+     * The default location of the store, relative to the project root.
+     */
+    public static final Path DEFAULT_LOCATION = Path.of(".gobpie", "incremental");
+
+    private static final String DATA_DIR = "data";
+    private static final String METADATA_FILE = "generation.properties";
+    private static final String GOBLINT_VERSION = "goblintVersion";
+    private static final String SAVED_AT = "savedAt";
+    private static final String LOAD_ATTEMPTS = "loadAttempts";
+    private static final int MAX_LOAD_ATTEMPTS = 2;
+    // Generations saved in the same millisecond are ordered by their names, which are their creation times
+    private static final Comparator<Path> NEWEST_FIRST =
+            Comparator.comparingLong(IncrementalDataStore::savedAt).thenComparing(Path::getFileName).reversed();
+
+    private final Path root;
+    private final int maxGenerations;
+    private final long maxSize;
+    private final Duration maxAge;
+
+    private final Logger log = LogManager.getLogger(IncrementalDataStore.class);
+
+    /**
+     * @param root           the directory of the store
+     * @param maxGenerations the number of saved generations kept per branch
+     * @param maxSize        the maximum total size of the store in bytes
+     * @param maxAge         the maximum age of a saved generation
+     */
+    public IncrementalDataStore(Path root, int maxGenerations, long maxSize, Duration maxAge) {
+        this.root = root;
+        this.maxGenerations = maxGenerations;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * The Record Generation.
+     * <p>
+     * The directories Goblint should load its incremental data from and save it into during one run of the Goblint server.
+     *
+     * @param loadDir the directory with the data of the previous generation, or null if there is nothing to load
+     * @param saveDir the directory for the data of the new generation
+     */
+    public record Generation(Path loadDir, Path saveDir) {
+    }
+
+    /**
+     * Evicts outdated generations and creates a new generation for the given branch.
+     *
+     * @param goblintVersion the version output of the Goblint executable that will load and save the data
+     * @param branch         the branch or commit the project is on, see {@link #branchKey}
+     * @return the directories to load from and save into.
+     * @throws IOException if creating the generation directory fails
+     */
+    public synchronized Generation open(String goblintVersion, String branch) throws IOException {
+        discardFailedLoads();
+        evict();
+
+        Path branchDir = root.resolve(branch);
+        Path loadDir = null;
+        Optional<Path> previous = savedGenerations(branchDir).stream()
+                .filter(generation -> goblintVersion.equals(readMetadata(generation).getProperty(GOBLINT_VERSION)))
+                .findFirst();
+        if (previous.isPresent()) {
+            Properties metadata = readMetadata(previous.get());
+            metadata.setProperty(LOAD_ATTEMPTS, Integer.toString(loadAttempts(metadata) + 1));
+            writeMetadata(previous.get(), metadata);
+            loadDir = previous.get().resolve(DATA_DIR);
+            log.info("Resuming incremental analysis from " + loadDir + ".");
+        } else {
+            log.info("No incremental analysis data to resume from for branch " + branch + " and the current Goblint version.");
+        }
+
+        long name = System.currentTimeMillis();
+        while (Files.exists(branchDir.resolve(Long.toString(name)))) {
+            name++;
+        }
+        Path generationDir = Files.createDirectories(branchDir.resolve(Long.toString(name)));
+        Properties metadata = new Properties();
+        metadata.setProperty(GOBLINT_VERSION, goblintVersion);
+        writeMetadata(generationDir, metadata);
+        return new Generation(loadDir, generationDir.resolve(DATA_DIR));
+    }
+
+    /**
+     * Marks that Goblint has successfully saved the data of the given generation.
+     * This also confirms that the data the generation was loaded from could be loaded.
+     */
+    public synchronized void markSaved(Generation generation) throws IOException {
+        Path generationDir = generation.saveDir().getParent();
+        Properties metadata = readMetadata(generationDir);
+        metadata.setProperty(SAVED_AT, Long.toString(System.currentTimeMillis()));
+        writeMetadata(generationDir, metadata);
+        if (generation.loadDir() != null && Files.isDirectory(generation.loadDir().getParent())) {
+            Path loadedDir = generation.loadDir().getParent();
+            Properties loadedMetadata = readMetadata(loadedDir);
+            if (loadedMetadata.remove(LOAD_ATTEMPTS) != null) {
+                writeMetadata(loadedDir, loadedMetadata);
+            }
+        }
+    }
+
+    /**
+     * Determines the branch (or the commit, if no branch is checked out) of the git repository in the given directory.
+     * The result is usable as a directory name.
+     *
+     * @return the current branch or commit, or "default" if the directory is not a git repository.
+     */
+    public static String branchKey(Path projectRoot) {
+        Path gitDir = projectRoot.resolve(".git");
+        try {
+            if (Files.isRegularFile(gitDir)) {
+                // In worktrees and submodules .git is a file pointing to the actual git directory
+                String pointer = Files.readString(gitDir).trim();
+                if (pointer.startsWith("gitdir:")) {
+                    gitDir = projectRoot.resolve(pointer.substring("gitdir:".length()).trim());
+                }
+            }
+            String head = Files.readString(gitDir.resolve("HEAD")).trim();
+            String key = head.startsWith("ref: refs/heads/") ? head.substring("ref: refs/heads/".length())
+                    : head.startsWith("ref: ") ? head.substring("ref: ".length())
+                    : head;
+            return key.isEmpty() ? "default" : key.replaceAll("[^A-Za-z0-9._-]", "_");
+        } catch (IOException e) {
+            return "default";
+        }
+    }
+
+
+    /**
+     * Deletes the generations that were loaded too many times without an analysis finishing afterwards,
+     * and the generations that never got saved.
+     */
+    private void discardFailedLoads() throws IOException {
+        for (Path generation : allGenerations()) {
+            Properties metadata = readMetadata(generation);
+            if (loadAttempts(metadata) >= MAX_LOAD_ATTEMPTS) {
+                log.warn("Discarding incremental analysis data in " + generation + ", since analysing after loading it did not succeed.");
+                delete(generation);
+            } else if (!metadata.containsKey(SAVED_AT)) {
+                delete(generation);
+            }
+        }
+    }
+
+    private void evict() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Path> kept = new ArrayList<>();
+        for (Path branchDir : list(root)) {
+            List<Path> generations = savedGenerations(branchDir);
+            for (int i = 0; i < generations.size(); i++) {
+                Path generation = generations.get(i);
+                if (i >= maxGenerations || now - savedAt(generation) > maxAge.toMillis()) {
+                    delete(generation);
+                } else {
+                    kept.add(generation);
+                }
+            }
+        }
+
+        // Evict the oldest generations of all branches until the store fits into its size limit
+        kept.sort(NEWEST_FIRST);
+        long size = 0;
+        for (Path generation : kept) {
+            size += size(generation);
+            if (size > maxSize) {
+                delete(generation);
+            }
+        }
+    }
+
+    /**
+     * Returns the saved generations of the given branch, newest first.
+     */
+    private static List<Path> savedGenerations(Path branchDir) throws IOException {
+        List<Path> generations = new ArrayList<>();
+        for (Path generation : list(branchDir)) {
+            if (readMetadata(generation).containsKey(SAVED_AT)) {
+                generations.add(generation);
+            }
+        }
+        generations.sort(NEWEST_FIRST);
+        return generations;
+    }
+
+    private List<Path> allGenerations() throws IOException {
+        List<Path> generations = new ArrayList<>();
+        for (Path branchDir : list(root)) {
+            generations.addAll(list(branchDir));
+        }
+        return generations;
+    }
+
+    private static long savedAt(Path generation) {
+        try {
+            return Long.parseLong(readMetadata(generation).getProperty(SAVED_AT, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int loadAttempts(Properties metadata) {
+        try {
+            return Integer.parseInt(metadata.getProperty(LOAD_ATTEMPTS, "0"));
+        } catch (NumberFormatException e) {
+            return MAX_LOAD_ATTEMPTS;
+        }
+    }
+
+    private static Properties readMetadata(Path generation) {
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(generation.resolve(METADATA_FILE))) {
+            metadata.load(in);
+        } catch (IOException e) {
+            // A generation without readable metadata is treated as never saved
+        }
+        return metadata;
+    }
+
+    private static void writeMetadata(Path generation, Properties metadata) throws IOException {
+        try (OutputStream out = Files.newOutputStream(generation.resolve(METADATA_FILE))) {
+            metadata.store(out, "GobPie incremental analysis data");
+        }
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            return children.filter(Files::isDirectory).toList();
+        }
+    }
+
+    private static long size(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,324 @@
+package goblintserver;
+
+import api.messages.GoblintLocation;
+import com.google.gson.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * The Class UnsavedFilesOverlay.
+ * <p>
+ * Lets Goblint analyze the contents of editor buffers that have not been saved yet.
+ * Goblint reads the analyzed files from the disk, so the unsaved contents are mirrored into a shadow directory,
+ * and an overlay Goblint configuration is generated in which the analyzed files and compilation database entries
+ * point to the shadow copies instead of the original files. Quote include paths of the original directories are added
+ * to the compilation database entries, so that the shadow copies include the same headers as the originals.
+ * The positions of the results in the shadow copies are mapped back to the original files.
+ * <p>
+ * The unsaved contents are kept in memory while typing. Once no buffer has changed for the configured delay,
+ * they are written into the shadow copies and an analysis is requested.
+ * Only the source files listed in the Goblint configuration or in a compilation database are overlaid,
+ * unsaved changes to headers are analyzed once they are saved.
+ *
+ * @since 0.0.5
+ */
+public class UnsavedFilesOverlay {
+
+    /**
+     * The default location of the shadow directory, relative to the project root.
+     */
+    public static final Path DEFAULT_LOCATION = Path.of(".gobpie", "overlay");
+
+    private static final String COMPILATION_DATABASE = "compile_commands.json";
+    private static final String OVERLAY_CONF = "goblint.overlay.json";
+
+    private final Path root;
+    private final Path goblintConf;
+    private final long delayMillis;
+    private final Runnable analyze;
+    // The shadow copies of the files with unsaved changes, by the normalized paths of the original files
+    private final Map<Path, Path> shadowCopies = new LinkedHashMap<>();
+    // The unsaved contents that have not been written into the shadow copies yet, by the normalized paths of the original files
+    private final Map<Path, String> unsavedTexts = new LinkedHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GobPie unsaved files");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> scheduledAnalysis;
+    private boolean pendingChanges = false;
+
+    private final Logger log = LogManager.getLogger(UnsavedFilesOverlay.class);
+
+    /**
+     * @param root        the shadow directory
+     * @param goblintConf the Goblint configuration file the overlay configuration is generated from
+     * @param delayMillis the time in milliseconds without changes after which the analysis is requested
+     * @param analyze     requests an analysis
+     */
+    public UnsavedFilesOverlay(Path root, Path goblintConf, long delayMillis, Runnable analyze) {
+        this.root = root.toAbsolutePath().normalize();
+        this.goblintConf = goblintConf;
+        this.delayMillis = delayMillis;
+        this.analyze = analyze;
+    }
+
+    /**
+     * Remembers the unsaved contents of the given file and schedules an analysis.
+     * The contents are written into the shadow copy of the file only when the analysis is requested.
+     *
+     * @param file the original file
+     * @param text the unsaved contents of the file
+     */
+    public synchronized void changed(Path file, String text) {
+        unsavedTexts.put(file.toAbsolutePath().normalize(), text);
+        scheduleAnalysis();
+    }
+
+    /**
+     * Removes the shadow copy of the given file, because it was saved.
+     * Saving triggers an analysis of its own, so no analysis is scheduled.
+     */
+    public synchronized void discard(Path file) {
+        boolean unwritten = unsavedTexts.remove(file.toAbsolutePath().normalize()) != null;
+        if (!removeShadowCopy(file) && !unwritten) {
+            return;
+        }
+        if (shadowCopies.isEmpty() && unsavedTexts.isEmpty() && scheduledAnalysis != null) {
+            scheduledAnalysis.cancel(false);
+            pendingChanges = false;
+        }
+    }
+
+    /**
+     * Removes the shadow copy of the given file, because it was closed without saving its unsaved changes,
+     * and schedules an analysis, so that the results of the discarded changes are replaced by the results of the saved file.
+     */
+    public synchronized void close(Path file) {
+        unsavedTexts.remove(file.toAbsolutePath().normalize());
+        if (removeShadowCopy(file)) {
+            scheduleAnalysis();
+        }
+    }
+
+    private void scheduleAnalysis() {
+        pendingChanges = true;
+        if (scheduledAnalysis != null) {
+            scheduledAnalysis.cancel(false);
+        }
+        scheduledAnalysis = scheduler.schedule(() -> {
+            writeShadowCopies();
+            analyze.run();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the unsaved contents into the shadow copies.
+     * The files are written without holding the lock of the overlay, so that editing is not blocked by the file system.
+     * Contents that were changed again while writing stay unsaved, as another analysis has been scheduled for them.
+     */
+    private void writeShadowCopies() {
+        Map<Path, String> texts;
+        synchronized (this) {
+            texts = new LinkedHashMap<>(unsavedTexts);
+        }
+        for (Map.Entry<Path, String> unsaved : texts.entrySet()) {
+            Path original = unsaved.getKey();
+            Path shadow = shadowPath(original);
+            try {
+                Files.createDirectories(shadow.getParent());
+                Files.writeString(shadow, unsaved.getValue());
+            } catch (IOException e) {
+                log.warn("Mirroring the unsaved changes of " + original + " failed: " + e.getMessage());
+                continue;
+            }
+            synchronized (this) {
+                String text = unsavedTexts.get(original);
+                if (text == null) {
+                    // The file was saved or closed while its shadow copy was written
+                    deleteShadowCopy(shadow);
+                    continue;
+                }
+                // Compared by identity, as the same contents may have been changed and changed back in the meantime
+                if (text == unsaved.getValue()) {
+                    unsavedTexts.remove(original);
+                }
+                if (shadowCopies.put(original, shadow) == null) {
+                    GoblintLocation.aliasFile(shadow.toString(), original.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the shadow copy of the given file and its alias.
+     * The positions of the results already shown keep pointing to the original file.
+     *
+     * @return true if the file had a shadow copy
+     */
+    private boolean removeShadowCopy(Path file) {
+        Path original = file.toAbsolutePath().normalize();
+        Path shadow = shadowCopies.remove(original);
+        if (shadow == null) {
+            return false;
+        }
+        deleteShadowCopy(shadow);
+        GoblintLocation.removeAlias(shadow.toString());
+        return true;
+    }
+
+    private void deleteShadowCopy(Path shadow) {
+        try {
+            Files.deleteIfExists(shadow);
+        } catch (IOException e) {
+            log.warn("Deleting the shadow copy " + shadow + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks if there are unsaved changes that have not been analyzed yet, and marks them as analyzed.
+     */
+    public synchronized boolean takePendingChanges() {
+        boolean changes = pendingChanges;
+        pendingChanges = false;
+        return changes;
+    }
+
+    /**
+     * Generates the overlay Goblint configuration for the current unsaved files.
+     *
+     * @return the overlay configuration, or empty if there are no unsaved files and the original configuration should be used.
+     */
+    public synchronized Optional<Path> config() {
+        if (shadowCopies.isEmpty()) {
+            return Optional.empty();
+        }
+        try (Reader reader = Files.newBufferedReader(goblintConf)) {
+            JsonObject conf = JsonParser.parseReader(reader).getAsJsonObject();
+            if (conf.get("files") instanceof JsonArray files) {
+                JsonArray overlayFiles = new JsonArray();
+                for (int i = 0; i < files.size(); i++) {
+                    overlayFiles.add(overlayFile(files.get(i).getAsString(), i));
+                }
+                conf.add("files", overlayFiles);
+            }
+            Path overlayConf = root.resolve(OVERLAY_CONF);
+            Files.createDirectories(root);
+            Files.writeString(overlayConf, new GsonBuilder().setPrettyPrinting().create().toJson(conf));
+            return Optional.of(overlayConf);
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            log.warn("Generating the overlay Goblint configuration failed, analyzing the saved files: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the path to use in the overlay configuration for an entry of the files option.
+     */
+    private String overlayFile(String file, int index) throws IOException {
+        Path path = Path.of(file).toAbsolutePath().normalize();
+        Path database = Files.isDirectory(path) ? path.resolve(COMPILATION_DATABASE) : path;
+        if (database.getFileName() != null && database.getFileName().toString().equals(COMPILATION_DATABASE) && Files.isRegularFile(database)) {
+            Path overlayDatabase = root.resolve("database-" + index).resolve(COMPILATION_DATABASE);
+            Files.createDirectories(overlayDatabase.getParent());
+            Files.writeString(overlayDatabase, overlayDatabase(database).toString());
+            return overlayDatabase.toString();
+        }
+        Path shadow = shadowCopies.get(path);
+        return shadow != null ? shadow.toString() : file;
+    }
+
+    /**
+     * Rewrites the entries of the given compilation database whose files have shadow copies.
+     */
+    private JsonArray overlayDatabase(Path database) throws IOException {
+        JsonArray entries;
+        try (Reader reader = Files.newBufferedReader(database)) {
+            entries = JsonParser.parseReader(reader).getAsJsonArray();
+        }
+        for (JsonElement element : entries) {
+            JsonObject entry = element.getAsJsonObject();
+            Path directory = Path.of(entry.get("directory").getAsString());
+            String file = entry.get("file").getAsString();
+            Path original = directory.resolve(file).toAbsolutePath().normalize();
+            Path shadow = shadowCopies.get(original);
+            if (shadow == null) {
+                continue;
+            }
+            // Quote include directories are searched before all -I directories, so quoted includes find the siblings of the original file first,
+            // like they would when the original file is compiled
+            String includeOriginalDir = "-iquote" + original.getParent();
+            entry.addProperty("file", shadow.toString());
+            if (entry.get("arguments") instanceof JsonArray arguments) {
+                JsonArray overlayArguments = new JsonArray();
+                for (JsonElement argument : arguments) {
+                    overlayArguments.add(argument.getAsString().equals(file) ? shadow.toString() : argument.getAsString());
+                }
+                overlayArguments.add(includeOriginalDir);
+                entry.add("arguments", overlayArguments);
+            } else if (entry.has("command")) {
+                String command = entry.get("command").getAsString();
+                // Only replace the file where it is a whole argument of the command
+                String fileArgument = "(?<=^|\\s)" + Pattern.quote(file) + "(?=\\s|$)";
+                entry.addProperty("command", command.replaceAll(fileArgument, Matcher.quoteReplacement(shadow.toString())) + " " + includeOriginalDir);
+            }
+        }
+        return entries;
+    }
+
+    private Path shadowPath(Path original) {
+        // Mirror the absolute path of the original file, so that the shadow copies of different files never collide
+        return shadowFilesRoot().resolve(original.getRoot().relativize(original).toString());
+    }
+
+    private Path shadowFilesRoot() {
+        return root.resolve("files");
+    }
+
+    /**
+     * Returns the original file of the given file if it is a shadow copy, also if the shadow copy has already been removed.
+     *
+     * @param file a file analyzed by Goblint
+     * @return the path of the original file, or the given file if it is not a shadow copy
+     */
+    public String originalFile(String file) {
+        Path path = Path.of(file).toAbsolutePath().normalize();
+        if (!path.startsWith(shadowFilesRoot())) {
+            return file;
+        }
+        return path.getRoot().resolve(shadowFilesRoot().relativize(path).toString()).toString();
+    }
+
+    /**
+     * Deletes all shadow copies, e.g. the ones left over from a previous run of GobPie.
+     */
+    public synchronized void clear() {
+        shadowCopies.values().forEach(shadow -> GoblintLocation.removeAlias(shadow.toString()));
+        shadowCopies.clear();
+        unsavedTexts.clear();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            log.warn("Deleting the shadow directory " + root + " failed: " + e.getMessage());
+        }
+    }
+
+}
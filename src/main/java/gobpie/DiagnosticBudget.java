@@ -0,0 +1,44 @@
+package gobpie;
+
+import api.messages.GoblintSeverity;
+
+import java.util.List;
+
+/**
+ * The Record DiagnosticBudget.
+ * <p>
+ * Corresponding object to the diagnosticBudget object in the GobPie configuration JSON.
+ * Limits which and how many of Goblint's messages are shown in the IDE.
+ *
+ * @param maxPerFile         the maximum number of messages shown per file, or null for no limit
+ * @param maxTotal           the maximum number of messages shown in total, or null for no limit
+ * @param minSeverity        the least severe Goblint severity (Error, Warning, Info, Debug or Success, in any case) that is shown
+ * @param categories         the categories (e.g. "Race" or "Behavior > Undefined") whose messages are shown, or null for all
+ * @param excludedCategories the categories whose messages are not shown
+ * @param cwes               the CWE numbers whose messages are shown, or null for all
+ * @since 0.0.5
+ */
+public record DiagnosticBudget(
+        Integer maxPerFile,
+        Integer maxTotal,
+        String minSeverity,
+        List<String> categories,
+        List<String> excludedCategories,
+        List<Integer> cwes) {
+
+    /**
+     * The budget that shows all messages.
+     */
+    public static final DiagnosticBudget UNLIMITED = new DiagnosticBudget(null, null, null, null, null, null);
+
+    public DiagnosticBudget(Integer maxPerFile, Integer maxTotal, String minSeverity, List<String> categories, List<String> excludedCategories, List<Integer> cwes) {
+        this.maxPerFile = maxPerFile;
+        this.maxTotal = maxTotal;
+        // Severities are matched ignoring case, unknown severities are kept as given so that reading the configuration can reject them
+        this.minSeverity = minSeverity == null ? "Success" : GoblintSeverity.parse(minSeverity).map(Enum::name).orElse(minSeverity); // default: Success, i.e. all severities
+        this.categories = categories;
+        this.excludedCategories = excludedCategories == null ? List.of() : excludedCategories; // default: []
+        this.cwes = cwes;
+    }
+
+}
@@ -17,9 +17,25 @@ public record GobPieConfiguration(
         Boolean abstractDebugging,
         Boolean showCfg,
         Boolean explodeGroupWarnings,
-        Boolean incrementalAnalysis) {
+        Boolean incrementalAnalysis,
+        Integer parallelConversionThreshold,
+        Boolean diagnosticSnapshot,
+        Integer incrementalStoreGenerations,
+        Integer incrementalStoreMaxSize,
+        Integer incrementalStoreMaxAge,
+        Boolean skipUnchangedReanalysis,
+        DiagnosticBudget diagnosticBudget,
+        Boolean deduplicateContexts,
+        Integer analysisHistorySize,
+        Boolean analyzeUnsavedFiles,
+        Integer analyzeUnsavedFilesDelay,
+        Boolean pullDiagnostics,
+        Boolean showAbstractValuesOnHover,
+        Boolean abstractDebuggingIndex,
+        Integer abstractDebuggingIndexMaxNodes,
+        Integer abstractDebuggingMaxVisitedNodes) {
 
-    public GobPieConfiguration(String goblintExecutable, String goblintConf, List<String> preAnalyzeCommand, Boolean abstractDebugging, Boolean showCfg, Boolean explodeGroupWarnings, Boolean incrementalAnalysis) {
+    public GobPieConfiguration(String goblintExecutable, String goblintConf, List<String> preAnalyzeCommand, Boolean abstractDebugging, Boolean showCfg, Boolean explodeGroupWarnings, Boolean incrementalAnalysis, Integer parallelConversionThreshold, Boolean diagnosticSnapshot, Integer incrementalStoreGenerations, Integer incrementalStoreMaxSize, Integer incrementalStoreMaxAge, Boolean skipUnchangedReanalysis, DiagnosticBudget diagnosticBudget, Boolean deduplicateContexts, Integer analysisHistorySize, Boolean analyzeUnsavedFiles, Integer analyzeUnsavedFilesDelay, Boolean pullDiagnostics, Boolean showAbstractValuesOnHover, Boolean abstractDebuggingIndex, Integer abstractDebuggingIndexMaxNodes, Integer abstractDebuggingMaxVisitedNodes) {
         this.goblintExecutable = (goblintExecutable == null) ? "goblint" : goblintExecutable;
         this.goblintConf = goblintConf;
         this.preAnalyzeCommand = preAnalyzeCommand;
@@ -27,6 +43,22 @@ public record GobPieConfiguration(
         this.showCfg = showCfg != null && showCfg; // default: false
         this.explodeGroupWarnings = explodeGroupWarnings == null || explodeGroupWarnings; // default: true
         this.incrementalAnalysis = incrementalAnalysis == null || incrementalAnalysis; // default: true
+        this.parallelConversionThreshold = parallelConversionThreshold == null ? 10_000 : parallelConversionThreshold; // default: 10000
+        this.diagnosticSnapshot = diagnosticSnapshot != null && diagnosticSnapshot; // default: false
+        this.incrementalStoreGenerations = incrementalStoreGenerations == null ? 0 : incrementalStoreGenerations; // default: 0 (off)
+        this.incrementalStoreMaxSize = incrementalStoreMaxSize == null ? 2048 : incrementalStoreMaxSize; // default: 2048 MB
+        this.incrementalStoreMaxAge = incrementalStoreMaxAge == null ? 14 : incrementalStoreMaxAge; // default: 14 days
+        this.skipUnchangedReanalysis = skipUnchangedReanalysis != null && skipUnchangedReanalysis; // default: false
+        this.diagnosticBudget = diagnosticBudget == null ? DiagnosticBudget.UNLIMITED : diagnosticBudget; // default: no filters or limits
+        this.deduplicateContexts = deduplicateContexts != null && deduplicateContexts; // default: false
+        this.analysisHistorySize = analysisHistorySize == null ? 50 : analysisHistorySize; // default: 50
+        this.analyzeUnsavedFiles = analyzeUnsavedFiles != null && analyzeUnsavedFiles; // default: false
+        this.analyzeUnsavedFilesDelay = analyzeUnsavedFilesDelay == null ? 1000 : analyzeUnsavedFilesDelay; // default: 1000 ms
+        this.pullDiagnostics = pullDiagnostics != null && pullDiagnostics; // default: false
+        this.showAbstractValuesOnHover = showAbstractValuesOnHover != null && showAbstractValuesOnHover; // default: false
+        this.abstractDebuggingIndex = abstractDebuggingIndex != null && abstractDebuggingIndex; // default: false
+        this.abstractDebuggingIndexMaxNodes = abstractDebuggingIndexMaxNodes == null ? 500_000 : abstractDebuggingIndexMaxNodes; // default: 500000
+        this.abstractDebuggingMaxVisitedNodes = abstractDebuggingMaxVisitedNodes == null ? 1_000_000 : abstractDebuggingMaxVisitedNodes; // default: 1000000
     }
 
     public static class Builder {
@@ -37,6 +69,22 @@ public record GobPieConfiguration(
         private boolean showCfg;
         private boolean explodeGroupWarnings;
         private boolean incrementalAnalysis;
+        private Integer parallelConversionThreshold;
+        private Boolean diagnosticSnapshot;
+        private Integer incrementalStoreGenerations;
+        private Integer incrementalStoreMaxSize;
+        private Integer incrementalStoreMaxAge;
+        private Boolean skipUnchangedReanalysis;
+        private DiagnosticBudget diagnosticBudget;
+        private Boolean deduplicateContexts;
+        private Integer analysisHistorySize;
+        private Boolean analyzeUnsavedFiles;
+        private Integer analyzeUnsavedFilesDelay;
+        private Boolean pullDiagnostics;
+        private Boolean showAbstractValuesOnHover;
+        private Boolean abstractDebuggingIndex;
+        private Integer abstractDebuggingIndexMaxNodes;
+        private Integer abstractDebuggingMaxVisitedNodes;
 
         public Builder setGoblintExecutable(String goblintExecutable) {
             this.goblintExecutable = goblintExecutable;
@@ -73,8 +121,88 @@ public record GobPieConfiguration(
             return this;
         }
 
+        public Builder setParallelConversionThreshold(int parallelConversionThreshold) {
+            this.parallelConversionThreshold = parallelConversionThreshold;
+            return this;
+        }
+
+        public Builder setDiagnosticSnapshot(boolean diagnosticSnapshot) {
+            this.diagnosticSnapshot = diagnosticSnapshot;
+            return this;
+        }
+
+        public Builder setIncrementalStoreGenerations(int incrementalStoreGenerations) {
+            this.incrementalStoreGenerations = incrementalStoreGenerations;
+            return this;
+        }
+
+        public Builder setIncrementalStoreMaxSize(int incrementalStoreMaxSize) {
+            this.incrementalStoreMaxSize = incrementalStoreMaxSize;
+            return this;
+        }
+
+        public Builder setIncrementalStoreMaxAge(int incrementalStoreMaxAge) {
+            this.incrementalStoreMaxAge = incrementalStoreMaxAge;
+            return this;
+        }
+
+        public Builder setSkipUnchangedReanalysis(boolean skipUnchangedReanalysis) {
+            this.skipUnchangedReanalysis = skipUnchangedReanalysis;
+            return this;
+        }
+
+        public Builder setDiagnosticBudget(DiagnosticBudget diagnosticBudget) {
+            this.diagnosticBudget = diagnosticBudget;
+            return this;
+        }
+
+        public Builder setDeduplicateContexts(boolean deduplicateContexts) {
+            this.deduplicateContexts = deduplicateContexts;
+            return this;
+        }
+
+        public Builder setAnalysisHistorySize(int analysisHistorySize) {
+            this.analysisHistorySize = analysisHistorySize;
+            return this;
+        }
+
+        public Builder setAnalyzeUnsavedFiles(boolean analyzeUnsavedFiles) {
+            this.analyzeUnsavedFiles = analyzeUnsavedFiles;
+            return this;
+        }
+
+        public Builder setAnalyzeUnsavedFilesDelay(int analyzeUnsavedFilesDelay) {
+            this.analyzeUnsavedFilesDelay = analyzeUnsavedFilesDelay;
+            return this;
+        }
+
+        public Builder setPullDiagnostics(boolean pullDiagnostics) {
+            this.pullDiagnostics = pullDiagnostics;
+            return this;
+        }
+
+        public Builder setShowAbstractValuesOnHover(boolean showAbstractValuesOnHover) {
+            this.showAbstractValuesOnHover = showAbstractValuesOnHover;
+            return this;
+        }
+
+        public Builder setAbstractDebuggingIndex(boolean abstractDebuggingIndex) {
+            this.abstractDebuggingIndex = abstractDebuggingIndex;
+            return this;
+        }
+
+        public Builder setAbstractDebuggingIndexMaxNodes(int abstractDebuggingIndexMaxNodes) {
+            this.abstractDebuggingIndexMaxNodes = abstractDebuggingIndexMaxNodes;
+            return this;
+        }
+
+        public Builder setAbstractDebuggingMaxVisitedNodes(int abstractDebuggingMaxVisitedNodes) {
+            this.abstractDebuggingMaxVisitedNodes = abstractDebuggingMaxVisitedNodes;
+            return this;
+        }
+
         public GobPieConfiguration createGobPieConfiguration() {
-            return new GobPieConfiguration(goblintExecutable, goblintConf, preAnalyzeCommand, abstractDebugging, showCfg, explodeGroupWarnings, incrementalAnalysis);
+            return new GobPieConfiguration(goblintExecutable, goblintConf, preAnalyzeCommand, abstractDebugging, showCfg, explodeGroupWarnings, incrementalAnalysis, parallelConversionThreshold, diagnosticSnapshot, incrementalStoreGenerations, incrementalStoreMaxSize, incrementalStoreMaxAge, skipUnchangedReanalysis, diagnosticBudget, deduplicateContexts, analysisHistorySize, analyzeUnsavedFiles, analyzeUnsavedFilesDelay, pullDiagnostics, showAbstractValuesOnHover, abstractDebuggingIndex, abstractDebuggingIndexMaxNodes, abstractDebuggingMaxVisitedNodes);
         }
     }
 }
@@ -0,0 +1,273 @@
+package magpiebridge;
+
+import analysis.AnalysisGeneration;
+import api.GoblintService;
+import api.messages.GoblintLocation;
+import api.messages.params.CFGLookupParams;
+import api.messages.params.NodeParams;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.lsp4j.Hover;
+import org.eclipse.lsp4j.MarkupContent;
+import org.eclipse.lsp4j.MarkupKind;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The Class AbstractValueHover.
+ * <p>
+ * Shows the abstract values Goblint has computed for the identifier under the cursor.
+ * The line under the cursor is mapped to a CFG node with the Goblint cfg/lookup request,
+ * and the values of the identifier are looked up from the state of that node (the node_state request),
+ * i.e. the values before the first statement of the line.
+ * <p>
+ * The node states are cached by their lines, so that moving the cursor over the identifiers of the same line
+ * does not send new requests. The cache is cleared when a new analysis completes.
+ * Only one lookup is sent to Goblint at a time: a new hover cancels the lookup of the previous one,
+ * so that moving the mouse quickly over the code does not queue up requests in Goblint.
+ *
+ * @since 0.0.5
+ */
+public class AbstractValueHover implements GoblintTextDocumentService.HoverProvider {
+
+    private static final int CACHE_SIZE = 64;
+    private static final int MAX_VALUES = 5;
+    private static final int MAX_VALUE_LENGTH = 2000;
+
+    /**
+     * The key of a cached node state.
+     */
+    private record Line(String file, int line) {
+    }
+
+    private final GoblintService goblintService;
+    private final AnalysisGeneration generation;
+
+    // The cache is only valid for the generation it was filled in
+    private int cacheGeneration = -1;
+    private final Map<Line, List<JsonObject>> nodeStates = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Line, List<JsonObject>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    // The files analyzed by Goblint in the cache generation, by their absolute paths
+    private CompletableFuture<Map<Path, String>> goblintFiles = null;
+    // The request sent to Goblint for the latest lookup
+    private CompletableFuture<?> pendingRequest = null;
+    private int lastLookup = 0;
+
+    private final Logger log = LogManager.getLogger(AbstractValueHover.class);
+
+    public AbstractValueHover(GoblintService goblintService, AnalysisGeneration generation) {
+        this.goblintService = goblintService;
+        this.generation = generation;
+    }
+
+    @Override
+    public CompletableFuture<Hover> hover(URI uri, String text, Position position) {
+        Range identifierRange = identifierAt(text, position);
+        if (identifierRange == null || !"file".equals(uri.getScheme()) || generation.current() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String identifier = text.lines().skip(position.getLine()).findFirst().orElseThrow()
+                .substring(identifierRange.getStart().getCharacter(), identifierRange.getEnd().getCharacter());
+        int lookup = startLookup();
+        CompletableFuture<Hover> hover = nodeStates(lookup, Path.of(uri).toAbsolutePath().normalize(), position.getLine() + 1)
+                .thenApply(states -> toHover(identifier, identifierRange, states));
+        // If the client cancels the hover, the request sent to Goblint for it is not needed anymore
+        hover.whenComplete((result, e) -> {
+            if (hover.isCancelled()) {
+                cancelLookup(lookup);
+            }
+        });
+        return hover;
+    }
+
+    /**
+     * Starts a new lookup, which cancels the request sent to Goblint for the previous one.
+     */
+    private synchronized int startLookup() {
+        if (pendingRequest != null) {
+            pendingRequest.cancel(true);
+            pendingRequest = null;
+        }
+        if (cacheGeneration != generation.current()) {
+            cacheGeneration = generation.current();
+            nodeStates.clear();
+            goblintFiles = null;
+        }
+        return ++lastLookup;
+    }
+
+    private synchronized void cancelLookup(int lookup) {
+        if (lookup == lastLookup && pendingRequest != null) {
+            pendingRequest.cancel(true);
+            pendingRequest = null;
+        }
+    }
+
+    /**
+     * Sends a request to Goblint for the given lookup, unless a newer lookup has been started already.
+     */
+    private synchronized <T> CompletableFuture<T> request(int lookup, Supplier<CompletableFuture<T>> send) {
+        if (lookup != lastLookup) {
+            return CompletableFuture.failedFuture(new CancellationException());
+        }
+        CompletableFuture<T> request = send.get();
+        pendingRequest = request;
+        return request;
+    }
+
+    /**
+     * Returns the states of the CFG node at the beginning of the given line, from the cache or from Goblint.
+     */
+    private CompletableFuture<List<JsonObject>> nodeStates(int lookup, Path file, int line) {
+        CompletableFuture<Map<Path, String>> files;
+        int requestGeneration;
+        synchronized (this) {
+            if (goblintFiles == null) {
+                goblintFiles = goblintService.files().thenApply(AbstractValueHover::byAbsolutePath);
+            }
+            files = goblintFiles;
+            requestGeneration = cacheGeneration;
+        }
+        return files.<List<JsonObject>>thenCompose(byPath -> {
+                    String goblintFile = byPath.get(file);
+                    if (goblintFile == null) {
+                        return CompletableFuture.completedFuture(List.<JsonObject>of());
+                    }
+                    Line key = new Line(goblintFile, line);
+                    List<JsonObject> cached = cached(key);
+                    if (cached != null) {
+                        return CompletableFuture.completedFuture(cached);
+                    }
+                    GoblintLocation location = new GoblintLocation(goblintFile, line, 0, null, null);
+                    return request(lookup, () -> goblintService.cfg_lookup(CFGLookupParams.byLocation(location)))
+                            .thenCompose(node -> node.location().line() == line
+                                    ? request(lookup, () -> goblintService.cfg_state(new NodeParams(node.node())))
+                                    // The first node after the line is not at the line, so there is no state for the line
+                                    : CompletableFuture.completedFuture(List.<JsonObject>of()))
+                            .thenApply(states -> {
+                                cache(requestGeneration, key, states);
+                                return states;
+                            });
+                })
+                .exceptionally(e -> {
+                    log.debug("Looking up the abstract values at " + file + ":" + line + " failed: " + e.getMessage());
+                    return List.of();
+                });
+    }
+
+    private synchronized List<JsonObject> cached(Line key) {
+        return nodeStates.get(key);
+    }
+
+    private synchronized void cache(int requestGeneration, Line key, List<JsonObject> states) {
+        if (requestGeneration == cacheGeneration) {
+            nodeStates.put(key, states);
+        }
+    }
+
+    private static Map<Path, String> byAbsolutePath(Map<String, List<String>> files) {
+        Map<Path, String> byPath = new HashMap<>();
+        for (List<String> filesOfGroup : files.values()) {
+            for (String file : filesOfGroup) {
+                byPath.put(Path.of(file).toAbsolutePath().normalize(), file);
+            }
+        }
+        return byPath;
+    }
+
+    /**
+     * Returns the range of the C identifier at the given position in the text, or null if there is none.
+     */
+    static Range identifierAt(String text, Position position) {
+        Optional<String> line = text.lines().skip(position.getLine()).findFirst();
+        if (line.isEmpty() || position.getCharacter() > line.get().length()) {
+            return null;
+        }
+        String lineText = line.get();
+        int start = position.getCharacter();
+        while (start > 0 && isIdentifierPart(lineText.charAt(start - 1))) {
+            start--;
+        }
+        int end = position.getCharacter();
+        while (end < lineText.length() && isIdentifierPart(lineText.charAt(end))) {
+            end++;
+        }
+        if (start == end || Character.isDigit(lineText.charAt(start))) {
+            return null;
+        }
+        return new Range(new Position(position.getLine(), start), new Position(position.getLine(), end));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return c == '_' || (c < 128 && Character.isLetterOrDigit(c));
+    }
+
+    /**
+     * Builds the hover showing the values of the identifier in the given node states, or null if there are none.
+     */
+    private static Hover toHover(String identifier, Range range, List<JsonObject> states) {
+        StringBuilder markdown = new StringBuilder();
+        int values = 0;
+        for (int i = 0; i < states.size() && values < MAX_VALUES; i++) {
+            List<String> found = new ArrayList<>();
+            findValues(states.get(i), identifier, new ArrayDeque<>(), found);
+            for (String value : found) {
+                if (values++ == MAX_VALUES) {
+                    break;
+                }
+                markdown.append(markdown.isEmpty() ? "" : "\n\n").append(value);
+            }
+            if (states.size() > 1 && !found.isEmpty()) {
+                markdown.append("\n\n_(state ").append(i + 1).append(" of ").append(states.size()).append(")_");
+            }
+        }
+        if (values == 0) {
+            return null;
+        }
+        return new Hover(new MarkupContent(MarkupKind.MARKDOWN, markdown.toString()), range);
+    }
+
+    /**
+     * Finds the members of the state that are named after the identifier (e.g. "x" or "x:int"),
+     * and formats them together with the path of the members they were found in.
+     */
+    private static void findValues(JsonElement element, String identifier, Deque<String> path, List<String> found) {
+        if (element.isJsonArray()) {
+            element.getAsJsonArray().forEach(item -> findValues(item, identifier, path, found));
+        } else if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                String key = member.getKey();
+                if (key.equals(identifier) || (key.startsWith(identifier) && !isIdentifierPart(key.charAt(identifier.length())))) {
+                    found.add(formatValue(key, path, member.getValue()));
+                } else {
+                    path.addLast(key);
+                    findValues(member.getValue(), identifier, path, found);
+                    path.removeLast();
+                }
+            }
+        }
+    }
+
+    private static String formatValue(String key, Deque<String> path, JsonElement value) {
+        String valueText = value.isJsonPrimitive() ? value.getAsString() : new GsonBuilder().setPrettyPrinting().create().toJson(value);
+        if (valueText.length() > MAX_VALUE_LENGTH) {
+            valueText = valueText.substring(0, MAX_VALUE_LENGTH) + "\n...";
+        }
+        return "**" + key + "**" + (path.isEmpty() ? "" : " in " + String.join(" › ", path)) + "\n```\n" + valueText + "\n```";
+    }
+
+}
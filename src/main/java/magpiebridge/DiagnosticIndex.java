@@ -0,0 +1,134 @@
+package magpiebridge;
+
+import analysis.GoblintMessagesAnalysisResult;
+import org.eclipse.lsp4j.*;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * The Class DiagnosticIndex.
+ * <p>
+ * Keeps the Goblint message results by the files they are shown in, for answering the pull diagnostic requests of the client.
+ * The results of a file are only converted to diagnostics when the client requests them.
+ * <p>
+ * Each report sent to the client has a result ID. If the client asks for a file again with the result ID
+ * it has got last time, and the results of the file are the same as in that report, the file is reported as unchanged
+ * without sending the diagnostics again. The results are compared, not the analyses, so that a file whose results
+ * are the same after a new analysis is also reported as unchanged.
+ *
+ * @since 0.0.5
+ */
+public class DiagnosticIndex {
+
+    /**
+     * The results of a file and the source they are shown with.
+     */
+    private record FileResults(String source, List<GoblintMessagesAnalysisResult> results) {
+    }
+
+    private static final FileResults NO_RESULTS = new FileResults(null, List.of());
+
+    /**
+     * The results of a file that were last reported to the client.
+     */
+    private record Reported(String resultId, FileResults fileResults) {
+    }
+
+    // The current results, by the client URIs of the files
+    private final Map<String, FileResults> results = new LinkedHashMap<>();
+    private final Map<String, Reported> reported = new HashMap<>();
+    private long lastResultId = 0;
+
+    /**
+     * Adds a result shown in the given file.
+     *
+     * @param uri    the client URI of the file
+     * @param result the result
+     * @param source the source of the result shown in the IDE
+     */
+    public synchronized void add(String uri, GoblintMessagesAnalysisResult result, String source) {
+        FileResults fileResults = results.get(uri);
+        if (fileResults == null || !Objects.equals(fileResults.source(), source)) {
+            // The results of the file are shown with the source they were last added with
+            fileResults = new FileResults(source, fileResults == null ? new ArrayList<>() : fileResults.results());
+            results.put(uri, fileResults);
+        }
+        fileResults.results().add(result);
+    }
+
+    /**
+     * Removes all results, e.g. before the results of a new analysis are added.
+     * The last reports are kept, so that the files whose results do not change can be reported as unchanged.
+     */
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    /**
+     * Creates the report for a single file.
+     *
+     * @param uri              the client URI of the file
+     * @param previousResultId the result ID of the last report the client has for the file, or null
+     * @param toDiagnostics    converts the results of the file and their source to diagnostics
+     */
+    public synchronized DocumentDiagnosticReport document(String uri, String previousResultId,
+                                                          BiFunction<List<GoblintMessagesAnalysisResult>, String, List<Diagnostic>> toDiagnostics) {
+        FileResults current = results.getOrDefault(uri, NO_RESULTS);
+        String resultId = resultId(uri, current);
+        if (resultId.equals(previousResultId)) {
+            return new DocumentDiagnosticReport(new RelatedUnchangedDocumentDiagnosticReport(resultId));
+        }
+        RelatedFullDocumentDiagnosticReport report = new RelatedFullDocumentDiagnosticReport(toDiagnostics.apply(current.results(), current.source()));
+        report.setResultId(resultId);
+        return new DocumentDiagnosticReport(report);
+    }
+
+    /**
+     * Creates the report for all files that have results or had results in the last reports.
+     *
+     * @param previousResultIds the result IDs of the last reports the client has
+     * @param toDiagnostics     converts the results of a file and their source to diagnostics
+     */
+    public synchronized WorkspaceDiagnosticReport workspace(List<PreviousResultId> previousResultIds,
+                                                            BiFunction<List<GoblintMessagesAnalysisResult>, String, List<Diagnostic>> toDiagnostics) {
+        Map<String, String> previous = new HashMap<>();
+        if (previousResultIds != null) {
+            for (PreviousResultId previousResultId : previousResultIds) {
+                previous.put(previousResultId.getUri(), previousResultId.getValue());
+            }
+        }
+        Set<String> uris = new LinkedHashSet<>(results.keySet());
+        uris.addAll(reported.keySet());
+        List<WorkspaceDocumentDiagnosticReport> items = new ArrayList<>(uris.size());
+        for (String uri : uris) {
+            FileResults current = results.getOrDefault(uri, NO_RESULTS);
+            String resultId = resultId(uri, current);
+            if (resultId.equals(previous.get(uri))) {
+                items.add(new WorkspaceDocumentDiagnosticReport(new WorkspaceUnchangedDocumentDiagnosticReport(resultId, uri, null)));
+            } else {
+                WorkspaceFullDocumentDiagnosticReport report = new WorkspaceFullDocumentDiagnosticReport(toDiagnostics.apply(current.results(), current.source()), uri, null);
+                report.setResultId(resultId);
+                items.add(new WorkspaceDocumentDiagnosticReport(report));
+            }
+        }
+        // Files that have no results left have been reported as empty, they do not need to be reported again
+        reported.values().removeIf(report -> report.fileResults().results().isEmpty());
+        return new WorkspaceDiagnosticReport(items);
+    }
+
+    /**
+     * Returns the result ID for the current results of the file.
+     * The result ID of the last report is reused if the results and their source have not changed since.
+     */
+    private String resultId(String uri, FileResults current) {
+        Reported last = reported.get(uri);
+        if (last != null && last.fileResults().equals(current)) {
+            return last.resultId();
+        }
+        String resultId = Long.toString(++lastResultId);
+        reported.put(uri, new Reported(resultId, new FileResults(current.source(), List.copyOf(current.results()))));
+        return resultId;
+    }
+
+}
@@ -1,12 +1,25 @@
 package magpiebridge;
 
+import analysis.GoblintCFGAnalysisResult;
+import analysis.GoblintMessagesAnalysisResult;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.util.collections.Pair;
 import magpiebridge.core.*;
 import magpiebridge.file.SourceFileManager;
-import org.eclipse.lsp4j.InitializeParams;
-import org.eclipse.lsp4j.InitializeResult;
+import magpiebridge.util.SourceCodePositionUtils;
+import magpiebridge.util.URIUtils;
+import org.eclipse.lsp4j.*;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 public class GoblintMagpieServer extends MagpieServer {
 
@@ -15,6 +28,28 @@ public class GoblintMagpieServer extends MagpieServer {
      */
     private final CompletableFuture<Void> configurationDoneFuture = new CompletableFuture<>();
 
+    /**
+     * Handlers that are run when the user cancels the work done progress with the given token.
+     */
+    private final Map<String, Runnable> progressCancelHandlers = new ConcurrentHashMap<>();
+
+    /**
+     * If the pull diagnostics should be used when the client supports them.
+     */
+    private boolean pullDiagnosticsRequested = false;
+
+    /**
+     * The results for answering the pull diagnostic requests, or null if the diagnostics are published to the client.
+     */
+    private volatile DiagnosticIndex diagnosticIndex = null;
+
+    /**
+     * The CFG code lens results by the URLs of the files they are shown in.
+     * The code lenses are only built when the client requests the code lenses of a file,
+     * and their commands are only built when the client resolves them.
+     */
+    private final Map<URL, List<GoblintCFGAnalysisResult>> cfgCodeLenses = new ConcurrentHashMap<>();
+
     /**
      * Instantiates a new MagpieServer using default {@link MagpieTextDocumentService} and {@link
      * MagpieWorkspaceService} with given {@link ServerConfiguration}.
@@ -23,6 +58,23 @@ public class GoblintMagpieServer extends MagpieServer {
      */
     public GoblintMagpieServer(ServerConfiguration config) {
         super(config);
+        // Must be set before the server is launched, as the services are looked up when the connection is created
+        setTextDocumentService(new GoblintTextDocumentService(this));
+        setWorkspaceService(new GoblintWorkspaceService(this));
+    }
+
+    /**
+     * Sets the listener that is told about the unsaved changes to the documents.
+     */
+    public void setUnsavedChangesListener(GoblintTextDocumentService.UnsavedChangesListener listener) {
+        ((GoblintTextDocumentService) getTextDocumentService()).setUnsavedChangesListener(listener);
+    }
+
+    /**
+     * Sets the provider that shows the hovers instead of MagpieBridge.
+     */
+    public void setHoverProvider(GoblintTextDocumentService.HoverProvider hoverProvider) {
+        ((GoblintTextDocumentService) getTextDocumentService()).setHoverProvider(hoverProvider);
     }
 
     /**
@@ -33,9 +85,271 @@ public class GoblintMagpieServer extends MagpieServer {
         configurationDoneFuture.complete(null);
     }
 
+    /**
+     * Lets the client pull the diagnostics of the files it shows, if it supports pulling diagnostics.
+     * Must be called before the configuration is done.
+     */
+    public void enablePullDiagnostics() {
+        pullDiagnosticsRequested = true;
+    }
+
     @Override
     public CompletableFuture<InitializeResult> initialize(InitializeParams params) {
-        return configurationDoneFuture.thenCompose(_r -> super.initialize(params));
+        return configurationDoneFuture.thenCompose(_r -> super.initialize(params)).thenApply(result -> {
+            if (result.getCapabilities().getCodeLensProvider() != null) {
+                result.getCapabilities().getCodeLensProvider().setResolveProvider(true);
+            }
+            if (pullDiagnosticsRequested && clientSupportsPullDiagnostics()) {
+                // The results in any file can change after an analysis, so the client must ask for all files again
+                result.getCapabilities().setDiagnosticProvider(new DiagnosticRegistrationOptions(true, true));
+                diagnosticIndex = new DiagnosticIndex();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Checks if the client can pull the diagnostics of documents.
+     */
+    public boolean clientSupportsPullDiagnostics() {
+        return clientConfig != null
+                && clientConfig.getTextDocument() != null
+                && clientConfig.getTextDocument().getDiagnostic() != null;
+    }
+
+    private boolean clientSupportsDiagnosticsRefresh() {
+        return clientConfig != null
+                && clientConfig.getWorkspace() != null
+                && clientConfig.getWorkspace().getDiagnostics() != null
+                && Boolean.TRUE.equals(clientConfig.getWorkspace().getDiagnostics().getRefreshSupport());
+    }
+
+    /**
+     * Checks if the client can show work done progress reported by the server.
+     */
+    public boolean clientSupportsWorkDoneProgress() {
+        return clientConfig != null
+                && clientConfig.getWindow() != null
+                && Boolean.TRUE.equals(clientConfig.getWindow().getWorkDoneProgress());
+    }
+
+    /**
+     * Registers the handler that is run when the user cancels the work done progress with the given token.
+     */
+    public void onProgressCancel(String token, Runnable handler) {
+        progressCancelHandlers.put(token, handler);
+    }
+
+    /**
+     * Removes the cancel handler of the work done progress with the given token, once the progress has ended.
+     */
+    public void removeProgressCancelHandler(String token) {
+        progressCancelHandlers.remove(token);
+    }
+
+    @Override
+    public void cancelProgress(WorkDoneProgressCancelParams params) {
+        if (params.getToken() != null && params.getToken().isLeft()) {
+            Runnable handler = progressCancelHandlers.remove(params.getToken().getLeft());
+            if (handler != null) {
+                handler.run();
+            }
+        }
+    }
+
+    /**
+     * Consumes the analysis results. The diagnostics for the Goblint messages are built and published directly,
+     * the CFG code lenses are kept until the client requests them and the other results are consumed by MagpieBridge.
+     * <p>
+     * MagpieBridge converts the results one by one: it looks up the client URI of every result and its related locations
+     * (checking that the file exists each time) and removes duplicate diagnostics by searching the list of all diagnostics
+     * of the file, which becomes very slow for hundreds of thousands of messages.
+     * Here the results are grouped by their file once, the client URI is looked up once per file,
+     * duplicates are removed with a hash set and the diagnostics of each file are published once.
+     * <p>
+     * MagpieBridge also offers code actions for suppressing and reporting false positive warnings,
+     * the results are consumed directly only if these are disabled, as they are in GobPie.
+     * <p>
+     * If the client pulls the diagnostics, the Goblint message results are only added to the diagnostic index
+     * and the client is asked to pull the diagnostics again.
+     *
+     * @param results the analysis results
+     * @param source  the source of the results shown in the IDE
+     */
+    @Override
+    public void consume(Collection<AnalysisResult> results, String source) {
+        DiagnosticIndex diagnosticIndex = this.diagnosticIndex;
+        if (diagnosticIndex == null && (config.supportWarningSuppression() || config.reportFalsePositive())) {
+            super.consume(results, source);
+            return;
+        }
+        List<AnalysisResult> otherResults = new ArrayList<>();
+        Map<URL, List<GoblintCFGAnalysisResult>> fileCodeLenses = new HashMap<>();
+        // The diagnostics of each file and the diagnostics added to it, by the client URI of the file
+        Map<String, List<Diagnostic>> fileDiagnostics = new LinkedHashMap<>();
+        Map<String, Set<Diagnostic>> fileDiagnosticsSeen = new HashMap<>();
+        // The client URIs (or null for files that do not exist) and location URIs, by the URLs of the results
+        Map<String, String> clientUris = new HashMap<>();
+        Map<String, String> locationUris = new HashMap<>();
+        for (AnalysisResult result : results) {
+            if (result instanceof GoblintCFGAnalysisResult codeLens) {
+                String clientUri = clientUris.computeIfAbsent(codeLens.position().getURL().toString(), this::getClientUri);
+                if (clientUri != null) {
+                    try {
+                        fileCodeLenses.computeIfAbsent(new URL(clientUri), url -> new ArrayList<>()).add(codeLens);
+                    } catch (MalformedURLException ignored) {
+                        // MagpieBridge also leaves out the code lenses with invalid URLs
+                    }
+                }
+                continue;
+            }
+            if (!(result instanceof GoblintMessagesAnalysisResult message)) {
+                otherResults.add(result);
+                continue;
+            }
+            String clientUri = clientUris.computeIfAbsent(message.position().getURL().toString(), this::getClientUri);
+            if (clientUri == null) {
+                // MagpieBridge also leaves out the results in files that do not exist
+                continue;
+            }
+            if (diagnosticIndex != null) {
+                diagnosticIndex.add(clientUri, message, source);
+                continue;
+            }
+            List<Diagnostic> diagnosticsOfFile = fileDiagnostics.get(clientUri);
+            if (diagnosticsOfFile == null) {
+                try {
+                    diagnosticsOfFile = diagnostics.computeIfAbsent(new URL(clientUri), url -> new ArrayList<>());
+                } catch (MalformedURLException e) {
+                    continue;
+                }
+                fileDiagnostics.put(clientUri, diagnosticsOfFile);
+                fileDiagnosticsSeen.put(clientUri, new HashSet<>(diagnosticsOfFile));
+            }
+            Diagnostic diagnostic = toDiagnostic(message, source, locationUris);
+            if (fileDiagnosticsSeen.get(clientUri).add(diagnostic)) {
+                diagnosticsOfFile.add(diagnostic);
+            }
+        }
+        fileDiagnostics.forEach((uri, diagnosticsOfFile) -> client.publishDiagnostics(new PublishDiagnosticsParams(uri, diagnosticsOfFile)));
+        fileCodeLenses.forEach((url, codeLenses) -> cfgCodeLenses.merge(url, codeLenses,
+                (previous, added) -> Stream.concat(previous.stream(), added.stream()).toList()));
+        if (!otherResults.isEmpty()) {
+            super.consume(otherResults, source);
+        }
+        if (diagnosticIndex != null && clientSupportsDiagnosticsRefresh()) {
+            client.refreshDiagnostics();
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        DiagnosticIndex diagnosticIndex = this.diagnosticIndex;
+        if (diagnosticIndex != null) {
+            diagnosticIndex.clear();
+        }
+        cfgCodeLenses.clear();
+        super.cleanUp();
+    }
+
+    /**
+     * Returns the code lenses of the given file. The CFG code lenses are returned without commands,
+     * the client resolves the commands of the code lenses it shows.
+     */
+    @Override
+    protected List<CodeLens> findCodeLenses(URI uri) {
+        List<CodeLens> codeLenses = super.findCodeLenses(uri);
+        List<GoblintCFGAnalysisResult> results;
+        try {
+            results = cfgCodeLenses.get(uri.toURL());
+        } catch (MalformedURLException e) {
+            return codeLenses;
+        }
+        if (results == null) {
+            return codeLenses;
+        }
+        List<CodeLens> allCodeLenses = new ArrayList<>(codeLenses.size() + results.size());
+        allCodeLenses.addAll(codeLenses);
+        for (GoblintCFGAnalysisResult result : results) {
+            JsonArray data = new JsonArray();
+            data.add(result.title());
+            data.add(result.funName());
+            allCodeLenses.add(new CodeLens(toRange(result.position()), null, data));
+        }
+        return allCodeLenses;
+    }
+
+    /**
+     * Resolves the command of a CFG code lens.
+     */
+    public CompletableFuture<CodeLens> resolveCodeLens(CodeLens codeLens) {
+        if (codeLens.getCommand() == null && codeLens.getData() instanceof JsonElement data && data.isJsonArray()) {
+            JsonArray titleAndFunName = data.getAsJsonArray();
+            codeLens.setCommand(GoblintCFGAnalysisResult.command(titleAndFunName.get(0).getAsString(), titleAndFunName.get(1).getAsString()));
+        }
+        return CompletableFuture.completedFuture(codeLens);
+    }
+
+    /**
+     * Answers the pull diagnostic request of the client for a single document.
+     */
+    public CompletableFuture<DocumentDiagnosticReport> documentDiagnostic(DocumentDiagnosticParams params) {
+        DiagnosticIndex diagnosticIndex = this.diagnosticIndex;
+        if (diagnosticIndex == null) {
+            return CompletableFuture.completedFuture(new DocumentDiagnosticReport(new RelatedFullDocumentDiagnosticReport(List.of())));
+        }
+        return CompletableFuture.supplyAsync(() -> diagnosticIndex.document(
+                params.getTextDocument().getUri(), params.getPreviousResultId(), GoblintMagpieServer::toDiagnostics));
+    }
+
+    /**
+     * Answers the pull diagnostic request of the client for all documents.
+     */
+    public CompletableFuture<WorkspaceDiagnosticReport> workspaceDiagnostic(WorkspaceDiagnosticParams params) {
+        DiagnosticIndex diagnosticIndex = this.diagnosticIndex;
+        if (diagnosticIndex == null) {
+            return CompletableFuture.completedFuture(new WorkspaceDiagnosticReport(List.of()));
+        }
+        return CompletableFuture.supplyAsync(() -> diagnosticIndex.workspace(params.getPreviousResultIds(), GoblintMagpieServer::toDiagnostics));
+    }
+
+    /**
+     * Builds the diagnostics for the Goblint message results of a file, leaving out the duplicates.
+     */
+    private static List<Diagnostic> toDiagnostics(List<GoblintMessagesAnalysisResult> results, String source) {
+        Map<String, String> locationUris = new HashMap<>();
+        Set<Diagnostic> diagnostics = new LinkedHashSet<>();
+        for (GoblintMessagesAnalysisResult result : results) {
+            diagnostics.add(toDiagnostic(result, source, locationUris));
+        }
+        return new ArrayList<>(diagnostics);
+    }
+
+    /**
+     * Builds the diagnostic for a Goblint message the same way as MagpieBridge does.
+     *
+     * @param locationUris the location URIs by the URLs of the positions, used to look up each URI only once
+     */
+    private static Diagnostic toDiagnostic(GoblintMessagesAnalysisResult message, String source, Map<String, String> locationUris) {
+        Diagnostic diagnostic = new Diagnostic(toRange(message.position()), message.toString(false), message.severity(), source);
+        List<DiagnosticRelatedInformation> related = new ArrayList<>();
+        for (Pair<Position, String> piece : message.related()) {
+            String uri = locationUris.computeIfAbsent(piece.fst.getURL().toString(), URIUtils::checkURI);
+            related.add(new DiagnosticRelatedInformation(new Location(uri, toRange(piece.fst)), piece.snd));
+        }
+        diagnostic.setRelatedInformation(related);
+        return diagnostic;
+    }
+
+    private static Range toRange(Position position) {
+        if (position.getFirstCol() < 0) {
+            // The columns have to be found from the source file
+            return SourceCodePositionUtils.getLocationFrom(position).getRange();
+        }
+        return new Range(
+                new org.eclipse.lsp4j.Position(position.getFirstLine() - 1, position.getFirstCol()),
+                new org.eclipse.lsp4j.Position(position.getLastLine() - 1, position.getLastCol())
+        );
     }
 
     @Override
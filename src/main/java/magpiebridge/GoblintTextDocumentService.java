@@ -0,0 +1,141 @@
+package magpiebridge;
+
+import magpiebridge.core.MagpieTextDocumentService;
+import magpiebridge.file.SourceFileManager;
+import magpiebridge.file.VersionedSourceFile;
+import org.eclipse.lsp4j.*;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The Class GoblintTextDocumentService.
+ * <p>
+ * MagpieTextDocumentService that also tells a listener about the unsaved changes to the documents,
+ * so that the unsaved contents can be analyzed, answers the pull diagnostic requests for single documents,
+ * resolves the commands of the CFG code lenses and shows hovers from a hover provider instead of MagpieBridge.
+ *
+ * @since 0.0.5
+ */
+public class GoblintTextDocumentService extends MagpieTextDocumentService {
+
+    /**
+     * The Interface UnsavedChangesListener.
+     */
+    public interface UnsavedChangesListener {
+
+        /**
+         * Called when the document has been changed in the editor.
+         *
+         * @param uri  the URI of the document
+         * @param text the current unsaved contents of the document
+         */
+        void changed(URI uri, String text);
+
+        /**
+         * Called when the document has been saved, i.e. its contents on the disk are current again.
+         *
+         * @param uri the URI of the document
+         */
+        void discarded(URI uri);
+
+        /**
+         * Called when the document has been closed, discarding its unsaved changes.
+         *
+         * @param uri the URI of the document
+         */
+        void closed(URI uri);
+    }
+
+    /**
+     * The Interface HoverProvider.
+     */
+    public interface HoverProvider {
+
+        /**
+         * Computes the hover for the given position in the document.
+         *
+         * @param uri      the URI of the document
+         * @param text     the current contents of the document
+         * @param position the position of the cursor
+         * @return the hover, or null if there is nothing to show
+         */
+        CompletableFuture<Hover> hover(URI uri, String text, Position position);
+    }
+
+    private final GoblintMagpieServer goblintServer;
+    private volatile UnsavedChangesListener listener = null;
+    private volatile HoverProvider hoverProvider = null;
+
+    public GoblintTextDocumentService(GoblintMagpieServer server) {
+        super(server);
+        this.goblintServer = server;
+    }
+
+    public void setUnsavedChangesListener(UnsavedChangesListener listener) {
+        this.listener = listener;
+    }
+
+    public void setHoverProvider(HoverProvider hoverProvider) {
+        this.hoverProvider = hoverProvider;
+    }
+
+    @Override
+    public void didChange(DidChangeTextDocumentParams params) {
+        super.didChange(params);
+        UnsavedChangesListener listener = this.listener;
+        String uri = params.getTextDocument().getUri();
+        SourceFileManager fileManager = server.getSourceFileManager(inferLanguage(uri));
+        if (listener != null && fileManager != null) {
+            VersionedSourceFile file = fileManager.getVersionedFiles().get(URI.create(uri));
+            if (file != null) {
+                listener.changed(URI.create(uri), file.getText());
+            }
+        }
+    }
+
+    @Override
+    public void didSave(DidSaveTextDocumentParams params) {
+        UnsavedChangesListener listener = this.listener;
+        if (listener != null) {
+            // Discard the unsaved contents before the analysis of the saved file is started
+            listener.discarded(URI.create(params.getTextDocument().getUri()));
+        }
+        super.didSave(params);
+    }
+
+    @Override
+    public void didClose(DidCloseTextDocumentParams params) {
+        super.didClose(params);
+        UnsavedChangesListener listener = this.listener;
+        if (listener != null) {
+            listener.closed(URI.create(params.getTextDocument().getUri()));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Hover> hover(HoverParams params) {
+        HoverProvider hoverProvider = this.hoverProvider;
+        if (hoverProvider == null) {
+            return super.hover(params);
+        }
+        String uri = params.getTextDocument().getUri();
+        SourceFileManager fileManager = server.getSourceFileManager(inferLanguage(uri));
+        VersionedSourceFile file = fileManager == null ? null : fileManager.getVersionedFiles().get(URI.create(uri));
+        if (file == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return hoverProvider.hover(URI.create(uri), file.getText(), params.getPosition());
+    }
+
+    @Override
+    public CompletableFuture<DocumentDiagnosticReport> diagnostic(DocumentDiagnosticParams params) {
+        return goblintServer.documentDiagnostic(params);
+    }
+
+    @Override
+    public CompletableFuture<CodeLens> resolveCodeLens(CodeLens unresolved) {
+        return goblintServer.resolveCodeLens(unresolved);
+    }
+
+}
@@ -0,0 +1,30 @@
+package magpiebridge;
+
+import magpiebridge.core.MagpieWorkspaceService;
+import org.eclipse.lsp4j.WorkspaceDiagnosticParams;
+import org.eclipse.lsp4j.WorkspaceDiagnosticReport;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The Class GoblintWorkspaceService.
+ * <p>
+ * MagpieWorkspaceService that also answers the pull diagnostic requests for the whole workspace.
+ *
+ * @since 0.0.5
+ */
+public class GoblintWorkspaceService extends MagpieWorkspaceService {
+
+    private final GoblintMagpieServer goblintServer;
+
+    public GoblintWorkspaceService(GoblintMagpieServer server) {
+        super(server);
+        this.goblintServer = server;
+    }
+
+    @Override
+    public CompletableFuture<WorkspaceDiagnosticReport> diagnostic(WorkspaceDiagnosticParams params) {
+        return goblintServer.workspaceDiagnostic(params);
+    }
+
+}
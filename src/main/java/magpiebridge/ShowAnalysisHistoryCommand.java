@@ -0,0 +1,31 @@
+package magpiebridge;
+
+import analysis.AnalysisHistory;
+import magpiebridge.core.MagpieServer;
+import magpiebridge.core.WorkspaceCommand;
+import org.eclipse.lsp4j.ExecuteCommandParams;
+import org.eclipse.lsp4j.MessageParams;
+import org.eclipse.lsp4j.MessageType;
+import org.eclipse.lsp4j.services.LanguageClient;
+
+/**
+ * The Class ShowAnalysisHistoryCommand.
+ * <p>
+ * Writes the history of the last analysis runs to the output of the client.
+ *
+ * @since 0.0.5
+ */
+public class ShowAnalysisHistoryCommand implements WorkspaceCommand {
+
+    private final AnalysisHistory history;
+
+    public ShowAnalysisHistoryCommand(AnalysisHistory history) {
+        this.history = history;
+    }
+
+    @Override
+    public void execute(ExecuteCommandParams params, MagpieServer server, LanguageClient client) {
+        client.logMessage(new MessageParams(MessageType.Log, "GobPie analysis history:\n" + history.toText()));
+    }
+
+}
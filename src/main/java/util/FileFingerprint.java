@@ -0,0 +1,78 @@
+package util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Record FileFingerprint.
+ * <p>
+ * A cheap fingerprint of a file based on its size and last modification time.
+ * Used for detecting whether a file may have changed without reading its contents.
+ *
+ * @param size         the size of the file in bytes, or -1 if the file does not exist
+ * @param lastModified the last modification time of the file in milliseconds, or -1 if the file does not exist
+ * @since 0.0.5
+ */
+public record FileFingerprint(long size, long lastModified) {
+
+    private static final FileFingerprint MISSING = new FileFingerprint(-1, -1);
+
+    /**
+     * Computes the fingerprint of the given file. A file that does not exist or cannot be read has a fingerprint of its own.
+     */
+    public static FileFingerprint of(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return MISSING;
+        }
+    }
+
+    /**
+     * Computes the fingerprints of the given files.
+     *
+     * @return a map from the normalized absolute path of each file (see {@link #normalize}) to its fingerprint.
+     */
+    public static Map<String, FileFingerprint> ofAll(Collection<String> files) {
+        Map<String, FileFingerprint> fingerprints = new LinkedHashMap<>();
+        for (String file : files) {
+            String normalized = normalize(file);
+            fingerprints.computeIfAbsent(normalized, f -> of(Path.of(f)));
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Computes the SHA-256 hash of the contents of the given file.
+     * Unlike the fingerprint, the hash does not change when a file is saved without changing its contents.
+     *
+     * @return the hash as a hexadecimal string, or an empty string if the file does not exist or cannot be read.
+     */
+    public static String contentHash(Path file) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+            return HexFormat.of().formatHex(digest);
+        } catch (IOException e) {
+            return "";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Normalizes a file path reported by Goblint, so that different paths to the same file are equal.
+     */
+    public static String normalize(String file) {
+        return Path.of(file).toAbsolutePath().normalize().toString();
+    }
+
+}
@@ -0,0 +1,181 @@
+import abstractdebugging.ARGIndex;
+import abstractdebugging.ARGTraversal;
+import abstractdebugging.EdgeInfo;
+import abstractdebugging.NodeInfo;
+import abstractdebugging.ResultsService;
+import analysis.AnalysisGeneration;
+import api.GoblintService;
+import api.messages.GoblintARGLookupResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Benchmark for searching the ARG as the abstract debugger did before, looking up one node per round trip,
+ * and with {@link ARGTraversal}, looking up whole frontiers together.
+ * <p>
+ * Reports the times for finding all nodes of a function, the entry node of a function and the entry nodes of all nodes of a function in synthetic ARGs,
+ * served by a stand-in Goblint server that answers each lookup after a fixed latency. Each search uses a fresh node cache.
+ * The searches of the previous abstract debugger are emulated without recursion, so that they do not overflow the stack.
+ * <p>
+ * Not run as part of the regular test suite. Run with
+ * {@code mvn test -Dtest=ARGTraversalBenchmark},
+ * the report is written to the test output in {@code target/surefire-reports}.
+ */
+class ARGTraversalBenchmark extends TestHelper {
+
+    private static final int[][] SHAPES = {{100, 100}, {1_000, 100}};
+    // A function where a breakpoint hits about 5000 ARG nodes
+    private static final int[] BREAKPOINT_SHAPE = {100, 50};
+    private static final long LATENCY_MICROS = 50;
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int MEASURED_ROUNDS = 3;
+
+    private static ScheduledExecutorService standInServer() {
+        return Executors.newScheduledThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Test
+    void benchmarkTraversal() {
+        ScheduledExecutorService server = standInServer();
+        try {
+            for (int[] shape : SHAPES) {
+                int layers = shape[0];
+                int width = shape[1];
+                Map<String, GoblintARGLookupResult> arg = syntheticARG(layers, width);
+                GoblintService goblintService = syntheticARGService(arg, result -> {
+                    CompletableFuture<List<GoblintARGLookupResult>> response = new CompletableFuture<>();
+                    server.schedule(() -> response.complete(result), LATENCY_MICROS, TimeUnit.MICROSECONDS);
+                    return response;
+                });
+                String last = "n" + layers + "_0";
+
+                long serialMatching = medianNanos(goblintService, rs -> serialFindMatchingNodes(rs, rs.lookupNode("n0")).size());
+                long batchedMatching = medianNanos(goblintService, rs -> traversal(rs)
+                        .findMatchingNodes(rs.lookupNode("n0"), ARGIndex.EdgeKind.CFG, n -> true).join().size());
+                long serialEntry = medianNanos(goblintService, rs -> serialFindEntryNode(rs, rs.lookupNode(last)));
+                long batchedEntry = medianNanos(goblintService, rs -> traversal(rs).findEntryNode(rs.lookupNode(last)).join());
+
+                System.out.printf("%8d nodes: all nodes one by one %10.3f ms, by frontier %9.3f ms; " +
+                                "entry node recursively %9.3f ms, iteratively %9.3f ms%n",
+                        arg.size(), serialMatching / 1e6, batchedMatching / 1e6, serialEntry / 1e6, batchedEntry / 1e6);
+            }
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the entry nodes of all nodes of a function concurrently, as when assembling the stack traces of the nodes a breakpoint hits.
+     */
+    @Test
+    void benchmarkEntryNodesOfBreakpoint() {
+        ScheduledExecutorService server = standInServer();
+        try {
+            Map<String, GoblintARGLookupResult> arg = syntheticARG(BREAKPOINT_SHAPE[0], BREAKPOINT_SHAPE[1]);
+            GoblintService goblintService = syntheticARGService(arg, result -> {
+                CompletableFuture<List<GoblintARGLookupResult>> response = new CompletableFuture<>();
+                server.schedule(() -> response.complete(result), LATENCY_MICROS, TimeUnit.MICROSECONDS);
+                return response;
+            });
+            List<String> nodeIds = List.copyOf(arg.keySet());
+
+            long separate = medianNanos(goblintService, rs -> CompletableFuture.allOf(
+                    rs.lookupNodes(nodeIds).stream().map(node -> traversal(rs).findEntryNode(node)).toArray(CompletableFuture[]::new)).join());
+            long memoized = medianNanos(goblintService, rs -> {
+                ARGTraversal traversal = traversal(rs);
+                return CompletableFuture.allOf(
+                        rs.lookupNodes(nodeIds).stream().map(traversal::findEntryNode).toArray(CompletableFuture[]::new)).join();
+            });
+
+            System.out.printf("%8d entry nodes: separately %10.3f ms, memoized %9.3f ms%n",
+                    nodeIds.size(), separate / 1e6, memoized / 1e6);
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    private static ARGTraversal traversal(ResultsService resultsService) {
+        return new ARGTraversal(resultsService, ARGTraversal.DEFAULT_MAX_VISITED_NODES);
+    }
+
+    private static long medianNanos(GoblintService goblintService, Function<ResultsService, Object> search) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            search.apply(freshResultsService(goblintService));
+        }
+        long[] times = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            ResultsService fresh = freshResultsService(goblintService);
+            long start = System.nanoTime();
+            search.apply(fresh);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[MEASURED_ROUNDS / 2];
+    }
+
+    private static ResultsService freshResultsService(GoblintService goblintService) {
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        return new ResultsService(goblintService, generation);
+    }
+
+    /**
+     * Depth-first search of all nodes reachable by outgoing CFG edges, waiting for the lookup of each node before the next.
+     */
+    private static List<NodeInfo> serialFindMatchingNodes(ResultsService resultsService, NodeInfo start) {
+        List<NodeInfo> found = new ArrayList<>();
+        Set<String> seenNodes = new HashSet<>();
+        Deque<String> stack = new ArrayDeque<>();
+        stack.push(start.nodeId());
+        while (!stack.isEmpty()) {
+            String nodeId = stack.pop();
+            if (!seenNodes.add(nodeId)) {
+                continue;
+            }
+            NodeInfo node = nodeId.equals(start.nodeId()) ? start : resultsService.lookupNode(nodeId);
+            found.add(node);
+            for (EdgeInfo edge : node.outgoingCFGEdges()) {
+                if (!seenNodes.contains(edge.nodeId())) {
+                    stack.push(edge.nodeId());
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Depth-first search of the entry node by incoming CFG edges, waiting for the lookup of each node before the next.
+     */
+    private static NodeInfo serialFindEntryNode(ResultsService resultsService, NodeInfo start) {
+        Set<String> seenNodes = new HashSet<>();
+        Deque<String> stack = new ArrayDeque<>();
+        stack.push(start.nodeId());
+        while (!stack.isEmpty()) {
+            String nodeId = stack.pop();
+            if (!seenNodes.add(nodeId)) {
+                continue;
+            }
+            NodeInfo node = nodeId.equals(start.nodeId()) ? start : resultsService.lookupNode(nodeId);
+            if (node.incomingCFGEdges().isEmpty()) {
+                return node;
+            }
+            for (EdgeInfo edge : node.incomingCFGEdges()) {
+                if (!seenNodes.contains(edge.nodeId())) {
+                    stack.push(edge.nodeId());
+                }
+            }
+        }
+        throw new IllegalStateException("Failed to find entry node for node " + start.nodeId());
+    }
+
+}
@@ -0,0 +1,160 @@
+import abstractdebugging.ARGIndex;
+import abstractdebugging.ARGTraversal;
+import abstractdebugging.NodeInfo;
+import abstractdebugging.ResultsService;
+import analysis.AnalysisGeneration;
+import api.GoblintService;
+import api.messages.GoblintARGLookupResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ARG traversal test.
+ * <p>
+ * The class is responsible for testing that the ARG is searched iteratively, so that long functions do not overflow the stack,
+ * that the nodes of each frontier are looked up from Goblint together, that the number of visited nodes is limited
+ * and that the entry nodes are memoized.
+ */
+class ARGTraversalTest extends TestHelper {
+
+    private static ResultsService resultsService(GoblintService goblintService) {
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        return new ResultsService(goblintService, generation);
+    }
+
+    /**
+     * Tests that the entry node and all nodes of a function with a very long chain of nodes are found,
+     * both when Goblint answers immediately and asynchronously.
+     */
+    @Test
+    void testLongFunctionIsSearched() {
+        Map<String, GoblintARGLookupResult> arg = syntheticARG(10_000, 1);
+        ExecutorService server = Executors.newSingleThreadExecutor();
+        for (GoblintService goblintService : List.of(
+                syntheticARGService(arg, CompletableFuture::completedFuture),
+                syntheticARGService(arg, result -> CompletableFuture.supplyAsync(() -> result, server)))) {
+            ResultsService resultsService = resultsService(goblintService);
+            ARGTraversal traversal = new ARGTraversal(resultsService, ARGTraversal.DEFAULT_MAX_VISITED_NODES);
+
+            NodeInfo last = resultsService.lookupNode("n10000_0");
+            assertEquals("n0", traversal.findEntryNode(last).join().nodeId());
+            NodeInfo first = resultsService.lookupNode("n0");
+            assertEquals(10_001, traversal.findMatchingNodes(first, ARGIndex.EdgeKind.CFG, n -> true).join().size());
+        }
+        server.shutdown();
+    }
+
+    /**
+     * Tests that the nodes of a frontier are all requested from Goblint before any of them is answered,
+     * so that the search takes one round trip per frontier.
+     */
+    @Test
+    void testFrontiersAreLookedUpTogether() {
+        List<Runnable> pending = new ArrayList<>();
+        Map<String, GoblintARGLookupResult> arg = syntheticARG(5, 10);
+        ResultsService resultsService = resultsService(syntheticARGService(arg, result -> {
+            CompletableFuture<List<GoblintARGLookupResult>> response = new CompletableFuture<>();
+            pending.add(() -> response.complete(result));
+            return response;
+        }));
+        ARGTraversal traversal = new ARGTraversal(resultsService, ARGTraversal.DEFAULT_MAX_VISITED_NODES);
+
+        CompletableFuture<NodeInfo> start = resultsService.lookupNodeAsync("n0");
+        pending.remove(0).run();
+        CompletableFuture<List<NodeInfo>> found = traversal.findMatchingNodes(start.join(), ARGIndex.EdgeKind.CFG, n -> true);
+        int rounds = 0;
+        while (!found.isDone()) {
+            assertEquals(10, pending.size());
+            List<Runnable> round = new ArrayList<>(pending);
+            pending.clear();
+            round.forEach(Runnable::run);
+            rounds++;
+        }
+        assertEquals(5, rounds);
+        List<NodeInfo> nodes = found.join();
+        assertEquals(51, nodes.size());
+        assertEquals("n0", nodes.get(0).nodeId());
+        assertTrue(nodes.get(50).nodeId().startsWith("n5_"));
+    }
+
+    private static void completeAll(List<Runnable> pending) {
+        while (!pending.isEmpty()) {
+            List<Runnable> round = new ArrayList<>(pending);
+            pending.clear();
+            round.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Tests that a search for an entry node that reaches a node visited by a concurrent search uses the result of that search,
+     * that a node visited by a previous search is answered without requests, and that the memo is cleared by a new analysis.
+     */
+    @Test
+    void testEntryNodesAreMemoized() {
+        List<Runnable> pending = new ArrayList<>();
+        AtomicInteger lookups = new AtomicInteger();
+        Map<String, GoblintARGLookupResult> arg = syntheticARG(50, 1);
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        ResultsService resultsService = new ResultsService(syntheticARGService(arg, result -> {
+            lookups.incrementAndGet();
+            CompletableFuture<List<GoblintARGLookupResult>> response = new CompletableFuture<>();
+            pending.add(() -> response.complete(result));
+            return response;
+        }), generation);
+        ARGTraversal traversal = new ARGTraversal(resultsService, ARGTraversal.DEFAULT_MAX_VISITED_NODES);
+
+        CompletableFuture<List<NodeInfo>> start = resultsService.lookupNodesAsync(List.of("n40_0", "n30_0"));
+        completeAll(pending);
+        lookups.set(0);
+        CompletableFuture<NodeInfo> first = traversal.findEntryNode(start.join().get(0));
+        CompletableFuture<NodeInfo> second = traversal.findEntryNode(start.join().get(1));
+        completeAll(pending);
+        assertEquals("n0", first.join().nodeId());
+        assertEquals("n0", second.join().nodeId());
+        // The first search stops at n30_0, which the second search has visited
+        assertEquals(9 + 30, lookups.get());
+
+        CompletableFuture<NodeInfo> visited = traversal.findEntryNode(resultsService.lookupNodeAsync("n35_0").join());
+        assertEquals("n0", visited.join().nodeId());
+        assertEquals(9 + 30, lookups.get());
+
+        generation.advance();
+        CompletableFuture<NodeInfo> node = resultsService.lookupNodeAsync("n2_0");
+        completeAll(pending);
+        CompletableFuture<NodeInfo> afterAnalysis = traversal.findEntryNode(node.join());
+        completeAll(pending);
+        assertEquals("n0", afterAnalysis.join().nodeId());
+        assertEquals(9 + 30 + 3, lookups.get());
+    }
+
+    /**
+     * Tests that a search visiting more nodes than allowed fails, and that a search within the limit succeeds.
+     */
+    @Test
+    void testSearchIsLimited() {
+        Map<String, GoblintARGLookupResult> arg = syntheticARG(5, 10);
+        ResultsService resultsService = resultsService(syntheticARGService(arg, CompletableFuture::completedFuture));
+        NodeInfo start = resultsService.lookupNode("n0");
+
+        ARGTraversal limited = new ARGTraversal(resultsService, 50);
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> limited.findMatchingNodes(start, ARGIndex.EdgeKind.CFG, n -> true).join());
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+
+        ARGTraversal traversal = new ARGTraversal(resultsService, 51);
+        assertEquals(51, traversal.findMatchingNodes(start, ARGIndex.EdgeKind.CFG, n -> true).join().size());
+    }
+
+}
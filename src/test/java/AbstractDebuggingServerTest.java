@@ -0,0 +1,254 @@
+import abstractdebugging.AbstractDebuggingServer;
+import abstractdebugging.ResultsService;
+import abstractdebugging.VariableReferenceStore;
+import analysis.AnalysisGeneration;
+import api.GoblintService;
+import api.messages.EvalIntResult;
+import api.messages.GoblintARGLookupResult;
+import api.messages.GoblintCFGLookupResult;
+import api.messages.GoblintLocation;
+import api.messages.GoblintVarinfo;
+import api.messages.params.EvalIntQueryParams;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.eclipse.lsp4j.debug.*;
+import org.eclipse.lsp4j.debug.services.IDebugProtocolClient;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Abstract debugging server test.
+ * <p>
+ * The class is responsible for testing that the conditions of breakpoints are evaluated concurrently with bounded parallelism,
+ * that an invalid condition is detected on the first node without evaluating it on the others,
+ * that variables are constructed and global states are requested only when the client expands them,
+ * and that variable references are reclaimed when the threads stop.
+ */
+class AbstractDebuggingServerTest {
+
+    private static final int NODES = 200;
+
+    @TempDir
+    Path sourceDir;
+
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService goblint = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void shutdown() {
+        goblint.shutdownNow();
+    }
+
+    private GoblintARGLookupResult lookupResult(String nodeId, String location) {
+        return gson.fromJson("""
+                {"node": "%s", "cfg_node": "cfg1", "context": "c", "path": "p", "function": "main",
+                 "location": {"file": "%s", "line": 3, "column": 3, "endLine": 3, "endColumn": 10},
+                 "prev": [], "next": []}
+                """.formatted(nodeId, location), GoblintARGLookupResult.class);
+    }
+
+    /**
+     * Mocks a Goblint server where the CFG node at line 3 of the source has the given number of ARG nodes.
+     */
+    private GoblintService mockGoblintService(Path source) {
+        GoblintService goblintService = mock(GoblintService.class);
+        when(goblintService.files()).thenReturn(CompletableFuture.completedFuture(Map.of(source.toString(), List.of(source.toString()))));
+        when(goblintService.cfg_lookup(any())).thenReturn(CompletableFuture.completedFuture(
+                new GoblintCFGLookupResult("cfg1", new GoblintLocation(source.toString(), 3, 3, 3, 10))));
+        when(goblintService.arg_lookup(any())).thenReturn(CompletableFuture.completedFuture(
+                IntStream.range(0, NODES).mapToObj(i -> lookupResult("arg" + i, source.toString())).toList()));
+        return goblintService;
+    }
+
+    private Breakpoint setBreakpoint(GoblintService goblintService, Path source, String condition) {
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        AbstractDebuggingServer server = new AbstractDebuggingServer(new ResultsService(goblintService, generation));
+
+        SourceBreakpoint breakpoint = new SourceBreakpoint();
+        breakpoint.setLine(3);
+        breakpoint.setCondition(condition);
+        Source breakpointSource = new Source();
+        breakpointSource.setPath(source.toString());
+        SetBreakpointsArguments args = new SetBreakpointsArguments();
+        args.setSource(breakpointSource);
+        args.setBreakpoints(new SourceBreakpoint[]{breakpoint});
+        return server.setBreakpoints(args).join().getBreakpoints()[0];
+    }
+
+    /**
+     * Tests that the condition is evaluated on every node, with several but not too many evaluations pending at a time.
+     */
+    @Test
+    void testConditionIsEvaluatedConcurrently() {
+        Path source = sourceDir.resolve("main.c");
+        GoblintService goblintService = mockGoblintService(source);
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        when(goblintService.arg_eval_int(any())).thenAnswer(invocation -> {
+            String nodeId = gson.toJsonTree(invocation.getArgument(0, EvalIntQueryParams.class)).getAsJsonObject().get("node").getAsString();
+            maxPending.accumulateAndGet(pending.incrementAndGet(), Math::max);
+            CompletableFuture<EvalIntResult> response = new CompletableFuture<>();
+            goblint.schedule(() -> {
+                pending.decrementAndGet();
+                response.complete(gson.fromJson("{\"raw\": 1, \"bool\": " + nodeId.equals("arg150") + "}", EvalIntResult.class));
+            }, 1, TimeUnit.MILLISECONDS);
+            return response;
+        });
+
+        Breakpoint breakpoint = setBreakpoint(goblintService, source, "x == 1");
+        assertTrue(breakpoint.isVerified());
+        verify(goblintService, times(NODES)).arg_eval_int(any());
+        assertTrue(maxPending.get() > 1);
+        assertTrue(maxPending.get() <= 64);
+    }
+
+    /**
+     * Tests that a condition that fails to evaluate on the first node is reported without evaluating it on the other nodes.
+     */
+    @Test
+    void testInvalidConditionIsEvaluatedOnce() {
+        Path source = sourceDir.resolve("main.c");
+        GoblintService goblintService = mockGoblintService(source);
+        when(goblintService.arg_eval_int(any())).thenReturn(CompletableFuture.failedFuture(
+                new ResponseErrorException(new ResponseError(ResponseErrorCode.RequestFailed, "Unknown variable y", null))));
+
+        Breakpoint breakpoint = setBreakpoint(goblintService, source, "y == 1");
+        assertFalse(breakpoint.isVerified());
+        assertEquals("Error evaluating condition: Unknown variable y", breakpoint.getMessage());
+        verify(goblintService, times(1)).arg_eval_int(any());
+    }
+
+    private static Variable variable(Variable[] variables, String name) {
+        return Arrays.stream(variables).filter(v -> v.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    /**
+     * Mocks a Goblint server where the program has a single ARG node with a global variable g and local variables x and s.
+     */
+    private GoblintService mockStateGoblintService(Path source) {
+        GoblintService goblintService = mock(GoblintService.class);
+        when(goblintService.arg_lookup(any())).thenReturn(CompletableFuture.completedFuture(List.of(lookupResult("arg0", source.toString()))));
+        when(goblintService.arg_state(any())).thenReturn(CompletableFuture.completedFuture(gson.fromJson("""
+                {"base": {"value domain": {"g": "5", "x": ["1"], "s": {"f": "2", "inner": {"h": "3"}}}}}
+                """, JsonObject.class)));
+        when(goblintService.cil_varinfos()).thenReturn(CompletableFuture.completedFuture(List.of(
+                new GoblintVarinfo(1, "g", "g", "global", null, "int", null),
+                new GoblintVarinfo(2, "x", "x", "local", "main", "int", null),
+                new GoblintVarinfo(3, "s", "s", "local", "main", "struct s", null))));
+        when(goblintService.global_state(any())).thenReturn(CompletableFuture.completedFuture(new JsonPrimitive("5")));
+        return goblintService;
+    }
+
+    /**
+     * Launches the debugger, stopping the threads on the entry of the program.
+     */
+    private static void launch(AbstractDebuggingServer server) {
+        CompletableFuture<Void> launched = server.launch(Map.of());
+        server.configurationDone(new ConfigurationDoneArguments());
+        launched.join();
+    }
+
+    private static AbstractDebuggingServer launchedServer(GoblintService goblintService) {
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        AbstractDebuggingServer server = new AbstractDebuggingServer(new ResultsService(goblintService, generation));
+        server.connectClient(mock(IDebugProtocolClient.class));
+        launch(server);
+        return server;
+    }
+
+    private static Scope[] scopes(AbstractDebuggingServer server) {
+        ScopesArguments args = new ScopesArguments();
+        args.setFrameId(0);
+        return server.scopes(args).join().getScopes();
+    }
+
+    /**
+     * Tests that the fields of compound variables are constructed when they are requested, keeping their variable references,
+     * and that the global state is requested from Goblint only when it is expanded.
+     */
+    @Test
+    void testVariablesAreExpandedLazily() {
+        GoblintService goblintService = mockStateGoblintService(sourceDir.resolve("main.c"));
+        AbstractDebuggingServer server = launchedServer(goblintService);
+
+        Scope[] scopes = scopes(server);
+        Variable[] locals = variables(server, scopes[0].getVariablesReference());
+        assertEquals("[1]", variable(locals, "x").getValue());
+        Variable s = variable(locals, "s");
+        assertEquals("{f: 2, inner: …}", s.getValue());
+        Variable inner = variable(variables(server, s.getVariablesReference()), "inner");
+        assertEquals("{h: 3}", inner.getValue());
+        assertEquals(inner.getVariablesReference(), variable(variables(server, s.getVariablesReference()), "inner").getVariablesReference());
+        assertEquals("3", variable(variables(server, inner.getVariablesReference()), "h").getValue());
+
+        Variable globalState = variable(variables(server, scopes[2].getVariablesReference()), "(global-state)");
+        assertEquals("{g: …}", globalState.getValue());
+        verify(goblintService, never()).global_state(any());
+        assertEquals("5", variable(variables(server, globalState.getVariablesReference()), "g").getValue());
+        verify(goblintService, times(1)).global_state(any());
+    }
+
+    /**
+     * Tests that the variable references are reclaimed when the threads stop, that the references from before the stop are not reused,
+     * and that the least recently used references are evicted when too many references are live.
+     */
+    @Test
+    void testVariableReferencesAreReclaimedOnStop() {
+        AbstractDebuggingServer server = launchedServer(mockStateGoblintService(sourceDir.resolve("main.c")));
+
+        Scope[] scopes = scopes(server);
+        Variable s = variable(variables(server, scopes[0].getVariablesReference()), "s");
+        variables(server, s.getVariablesReference());
+        assertSame(scopes, scopes(server));
+        // Local, Global and Raw scopes, s and inner, (local-state) and (global-state)
+        assertEquals(new VariableReferenceStore.Statistics(7, 7, 0, 0, 1), server.variableReferenceStatistics());
+
+        launch(server);
+        assertEquals(new VariableReferenceStore.Statistics(0, 7, 7, 0, 2), server.variableReferenceStatistics());
+        VariablesArguments staleArgs = new VariablesArguments();
+        staleArgs.setVariablesReference(s.getVariablesReference());
+        CompletionException exception = assertThrows(CompletionException.class, () -> server.variables(staleArgs).join());
+        assertInstanceOf(ResponseErrorException.class, exception.getCause());
+        assertTrue(scopes(server)[0].getVariablesReference() > 7);
+
+        VariableReferenceStore store = new VariableReferenceStore(2);
+        int first = store.store(() -> new Variable[0]);
+        int second = store.store(() -> new Variable[0]);
+        store.get(first);
+        int third = store.store(() -> new Variable[0]);
+        assertNotNull(store.get(first));
+        assertNull(store.get(second));
+        assertNotNull(store.get(third));
+        assertEquals(new VariableReferenceStore.Statistics(2, 3, 0, 1, 0), store.statistics());
+    }
+
+    private static Variable[] variables(AbstractDebuggingServer server, int variablesReference) {
+        VariablesArguments args = new VariablesArguments();
+        args.setVariablesReference(variablesReference);
+        return server.variables(args).join().getVariables();
+    }
+
+}
@@ -0,0 +1,110 @@
+import analysis.AnalysisGeneration;
+import api.GoblintService;
+import api.messages.GoblintCFGLookupResult;
+import api.messages.GoblintLocation;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import magpiebridge.AbstractValueHover;
+import org.eclipse.lsp4j.Hover;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Abstract value hover test.
+ * <p>
+ * The class is responsible for testing that the abstract values of the identifier under the cursor are shown,
+ * that the node states are requested from Goblint once per line and analysis,
+ * and that a new hover cancels the request sent to Goblint for the previous one.
+ */
+class AbstractValueHoverTest {
+
+    @TempDir
+    Path sourceDir;
+
+    private static final String TEXT = """
+            int main() {
+              int x = 1;
+              x = x + 1;
+              return x;
+            }
+            """;
+
+    private static final JsonObject STATE = JsonParser.parseString("""
+            {"base": {"value domain": {"x:int": "2", "xs": "?"}}}
+            """).getAsJsonObject();
+
+    private GoblintService mockGoblintService(Path source) {
+        GoblintService goblintService = mock(GoblintService.class);
+        when(goblintService.files()).thenReturn(CompletableFuture.completedFuture(Map.of(source.toString(), List.of(source.toString()))));
+        when(goblintService.cfg_lookup(any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                new GoblintCFGLookupResult("node3", new GoblintLocation(source.toString(), 3, 3, 3, 13))));
+        return goblintService;
+    }
+
+    /**
+     * Tests that the value of the identifier is shown, that hovering over the same line again uses the cached state,
+     * and that the state is requested again after a new analysis.
+     */
+    @Test
+    void testHoverShowsCachedValues() {
+        Path source = sourceDir.resolve("main.c");
+        GoblintService goblintService = mockGoblintService(source);
+        when(goblintService.cfg_state(any())).thenReturn(CompletableFuture.completedFuture(List.of(STATE)));
+        AnalysisGeneration generation = new AnalysisGeneration();
+        AbstractValueHover hoverProvider = new AbstractValueHover(goblintService, generation);
+
+        // Nothing to show before an analysis has completed
+        assertNull(hoverProvider.hover(source.toUri(), TEXT, new Position(2, 2)).join());
+        generation.advance();
+
+        Hover hover = hoverProvider.hover(source.toUri(), TEXT, new Position(2, 2)).join();
+        assertEquals(new Range(new Position(2, 2), new Position(2, 3)), hover.getRange());
+        String markdown = hover.getContents().getRight().getValue();
+        assertTrue(markdown.contains("**x:int** in base › value domain"));
+        assertTrue(markdown.contains("2"));
+        assertFalse(markdown.contains("xs"));
+        assertNotNull(hoverProvider.hover(source.toUri(), TEXT, new Position(2, 7)).join());
+        // Not an identifier
+        assertNull(hoverProvider.hover(source.toUri(), TEXT, new Position(2, 10)).join());
+        verify(goblintService, times(1)).cfg_state(any());
+
+        generation.advance();
+        assertNotNull(hoverProvider.hover(source.toUri(), TEXT, new Position(2, 2)).join());
+        verify(goblintService, times(2)).cfg_state(any());
+    }
+
+    /**
+     * Tests that a new hover cancels the pending request of the previous one, and that cancelling a hover cancels its request.
+     */
+    @Test
+    void testNewHoverCancelsPendingRequest() {
+        Path source = sourceDir.resolve("main.c");
+        GoblintService goblintService = mockGoblintService(source);
+        CompletableFuture<List<JsonObject>> firstRequest = new CompletableFuture<>();
+        CompletableFuture<List<JsonObject>> secondRequest = new CompletableFuture<>();
+        when(goblintService.cfg_state(any())).thenReturn(firstRequest, secondRequest);
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        AbstractValueHover hoverProvider = new AbstractValueHover(goblintService, generation);
+
+        CompletableFuture<Hover> first = hoverProvider.hover(source.toUri(), TEXT, new Position(2, 2));
+        CompletableFuture<Hover> second = hoverProvider.hover(source.toUri(), TEXT, new Position(2, 6));
+        assertTrue(firstRequest.isCancelled());
+        assertNull(first.join());
+
+        second.cancel(true);
+        assertTrue(secondRequest.isCancelled());
+    }
+
+}
@@ -0,0 +1,97 @@
+import analysis.ContextDeduplicator;
+import analysis.GoblintMessagesAnalysisResult;
+import api.json.GoblintMessageJsonHandler;
+import api.messages.GoblintMessagesResult;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.ibm.wala.util.collections.Pair;
+import magpiebridge.core.AnalysisResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Context deduplicator test.
+ * <p>
+ * The class is responsible for testing that Goblint messages that only differ
+ * by their context are folded into a single IDE warning.
+ */
+class ContextDeduplicatorTest extends TestHelper {
+
+    private final Gson gson = new GoblintMessageJsonHandler(new HashMap<>()).getDefaultGsonBuilder().create();
+
+    private final JsonArray messagesJson = new JsonArray();
+
+    private void addMessage(String text, int line, Integer context) {
+        JsonArray tags = new JsonArray();
+        JsonObject categoryTag = new JsonObject();
+        JsonArray categoryNames = new JsonArray();
+        categoryNames.add("Race");
+        categoryTag.add("Category", categoryNames);
+        tags.add(categoryTag);
+        JsonObject loc = new JsonObject();
+        loc.addProperty("file", "a.c");
+        loc.addProperty("line", line);
+        loc.addProperty("column", 1);
+        loc.addProperty("endLine", line);
+        loc.addProperty("endColumn", 10);
+        JsonObject piece = new JsonObject();
+        piece.addProperty("text", text);
+        piece.add("loc", loc);
+        if (context != null) {
+            JsonObject contextJson = new JsonObject();
+            contextJson.addProperty("tag", context);
+            piece.add("context", contextJson);
+        }
+        JsonObject message = new JsonObject();
+        message.add("tags", tags);
+        message.addProperty("severity", "Warning");
+        message.add("multipiece", piece);
+        messagesJson.add(message);
+    }
+
+    private List<GoblintMessagesResult> messages() {
+        return gson.fromJson(messagesJson, new TypeToken<List<GoblintMessagesResult>>() {
+        }.getType());
+    }
+
+    /**
+     * Tests that the messages reported in several contexts are folded into the first of them
+     * and that the other messages are kept in their order.
+     */
+    @Test
+    void testFoldContexts() {
+        addMessage("Race on x", 1, 11);
+        addMessage("Race on y", 2, 11);
+        addMessage("Race on x", 1, 12);
+        addMessage("Race on x", 3, 11);
+        addMessage("Race on x", 1, 13);
+        addMessage("Race on z", 4, null);
+        addMessage("Race on z", 4, null);
+
+        ContextDeduplicator.Result result = ContextDeduplicator.deduplicate(messages());
+        assertEquals(2, result.folded());
+        assertEquals(5, result.messages().size());
+
+        List<AnalysisResult> converted = result.messages().stream()
+                .flatMap(message -> result.convert(message, true).stream())
+                .toList();
+        assertEquals(
+                List.of("[Race] Race on x in 3 contexts", "[Race] Race on y in context 11", "[Race] Race on x in context 11",
+                        "[Race] Race on z", "[Race] Race on z"),
+                converted.stream().map(r -> ((GoblintMessagesAnalysisResult) r).text()).toList());
+        List<String> related = StreamSupport.stream(converted.get(0).related().spliterator(), false)
+                .map(pair -> pair.snd)
+                .toList();
+        assertEquals(List.of("In context 11", "In context 12", "In context 13"), related);
+        Pair<?, String> first = converted.get(0).related().iterator().next();
+        assertEquals(converted.get(0).position(), first.fst);
+    }
+
+}
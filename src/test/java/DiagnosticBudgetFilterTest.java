@@ -0,0 +1,114 @@
+import analysis.DiagnosticBudgetFilter;
+import api.json.GoblintMessageJsonHandler;
+import api.messages.GoblintMessagesResult;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import gobpie.DiagnosticBudget;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Diagnostic budget filter test.
+ * <p>
+ * The class is responsible for testing that Goblint messages are filtered and limited
+ * according to the diagnostic budget before they are converted.
+ */
+class DiagnosticBudgetFilterTest extends TestHelper {
+
+    private final Gson gson = new GoblintMessageJsonHandler(new HashMap<>()).getDefaultGsonBuilder().create();
+
+    private final JsonArray messagesJson = new JsonArray();
+
+    private void addMessage(String severity, List<String> category, Integer cwe, String file, int line) {
+        JsonArray tags = new JsonArray();
+        JsonObject categoryTag = new JsonObject();
+        JsonArray categoryNames = new JsonArray();
+        category.forEach(categoryNames::add);
+        categoryTag.add("Category", categoryNames);
+        tags.add(categoryTag);
+        if (cwe != null) {
+            JsonObject cweTag = new JsonObject();
+            cweTag.addProperty("CWE", cwe);
+            tags.add(cweTag);
+        }
+        JsonObject loc = new JsonObject();
+        loc.addProperty("file", file);
+        loc.addProperty("line", line);
+        loc.addProperty("column", 1);
+        loc.addProperty("endLine", line);
+        loc.addProperty("endColumn", 10);
+        JsonObject piece = new JsonObject();
+        piece.addProperty("text", severity + " in " + file + ":" + line);
+        piece.add("loc", loc);
+        JsonObject message = new JsonObject();
+        message.add("tags", tags);
+        message.addProperty("severity", severity);
+        message.add("multipiece", piece);
+        messagesJson.add(message);
+    }
+
+    private List<GoblintMessagesResult> messages() {
+        return gson.fromJson(messagesJson, new TypeToken<List<GoblintMessagesResult>>() {
+        }.getType());
+    }
+
+    private static List<String> texts(DiagnosticBudgetFilter.Result result) {
+        return result.kept().stream().map(message -> message.multipiece().text()).toList();
+    }
+
+    /**
+     * Tests that messages are filtered by severity, category and CWE.
+     */
+    @Test
+    void testFilters() {
+        addMessage("Warning", List.of("Race"), 362, "a.c", 1);
+        addMessage("Info", List.of("Deadcode"), null, "a.c", 2);
+        addMessage("Warning", List.of("Behavior", "Undefined", "NullPointerDereference"), 476, "a.c", 3);
+        addMessage("Error", List.of("Behavior", "Undefined", "DoubleFree"), 415, "b.c", 4);
+        List<GoblintMessagesResult> messages = messages();
+
+        DiagnosticBudget minSeverity = new DiagnosticBudget(null, null, "Warning", null, null, null);
+        assertEquals(List.of("Warning in a.c:1", "Warning in a.c:3", "Error in b.c:4"), texts(new DiagnosticBudgetFilter(minSeverity).apply(messages)));
+
+        DiagnosticBudget categories = new DiagnosticBudget(null, null, null, List.of("Behavior > Undefined"), List.of("Behavior > Undefined > DoubleFree"), null);
+        DiagnosticBudgetFilter.Result result = new DiagnosticBudgetFilter(categories).apply(messages);
+        assertEquals(List.of("Warning in a.c:3"), texts(result));
+        assertEquals(3, result.filtered());
+
+        DiagnosticBudget cwes = new DiagnosticBudget(null, null, null, null, null, List.of(362, 415));
+        assertEquals(List.of("Warning in a.c:1", "Error in b.c:4"), texts(new DiagnosticBudgetFilter(cwes).apply(messages)));
+    }
+
+    /**
+     * Tests that the most severe messages are kept within the limits
+     * and that the kept messages do not depend on the order Goblint reports them in.
+     */
+    @Test
+    void testLimitsKeepHighestRanked() {
+        addMessage("Info", List.of("Race"), 362, "a.c", 1);
+        addMessage("Warning", List.of("Race"), 362, "a.c", 5);
+        addMessage("Error", List.of("Race"), 362, "a.c", 9);
+        addMessage("Warning", List.of("Race"), 362, "b.c", 2);
+        addMessage("Info", List.of("Race"), 362, "c.c", 3);
+        List<GoblintMessagesResult> messages = messages();
+        DiagnosticBudget budget = new DiagnosticBudget(2, 3, null, null, null, null);
+
+        DiagnosticBudgetFilter.Result result = new DiagnosticBudgetFilter(budget).apply(messages);
+        assertEquals(List.of("Warning in a.c:5", "Error in a.c:9", "Warning in b.c:2"), texts(result));
+        assertEquals(1, result.overPerFileLimit());
+        assertEquals(1, result.overTotalLimit());
+
+        List<GoblintMessagesResult> reversed = new ArrayList<>(messages);
+        Collections.reverse(reversed);
+        assertEquals(List.of("Warning in b.c:2", "Error in a.c:9", "Warning in a.c:5"), texts(new DiagnosticBudgetFilter(budget).apply(reversed)));
+    }
+
+}
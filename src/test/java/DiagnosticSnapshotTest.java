@@ -0,0 +1,96 @@
+import analysis.DiagnosticSnapshot;
+import analysis.GoblintAnalysis;
+import analysis.GoblintCFGAnalysisResult;
+import api.messages.GoblintPosition;
+import magpiebridge.core.AnalysisResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Diagnostic snapshot test.
+ * <p>
+ * The class is responsible for testing that the stored analysis results are read back unchanged
+ * and that outdated snapshots are not used.
+ */
+class DiagnosticSnapshotTest extends TestHelper {
+
+    private static final String GOBLINT_VERSION = "Goblint version: heads/master-0-g0000000";
+
+    @TempDir
+    Path projectDir;
+    Path goblintConf;
+    Path source;
+    DiagnosticSnapshot snapshot;
+    List<AnalysisResult> results;
+
+    @BeforeEach
+    void before() throws IOException {
+        goblintConf = Files.writeString(projectDir.resolve("goblint.json"), "{\"files\": [\"example.c\"]}");
+        source = Files.writeString(projectDir.resolve("example.c"), "int main() { return 0; }");
+        snapshot = new DiagnosticSnapshot(projectDir.resolve(DiagnosticSnapshot.DEFAULT_LOCATION));
+
+        results = new ArrayList<>(GoblintAnalysis.convertInOrder(syntheticMessages(100), msg -> msg.convert(false), Integer.MAX_VALUE));
+        results.add(new GoblintCFGAnalysisResult(new GoblintPosition(1, 1, 1, source.toUri().toURL()), "show cfg", "main"));
+        snapshot.write(DiagnosticSnapshot.Key.of(GOBLINT_VERSION, goblintConf.toString(), List.of(source.toString())), results);
+    }
+
+    /**
+     * Tests that the results read from a valid snapshot are the results that were written.
+     */
+    @Test
+    void testSnapshotRoundTrip() throws IOException {
+        Optional<List<AnalysisResult>> read = snapshot.read(GOBLINT_VERSION, goblintConf.toString());
+        assertTrue(read.isPresent());
+        assertEquals(results, read.get());
+    }
+
+    /**
+     * Tests that a snapshot created by another Goblint version is not used.
+     */
+    @Test
+    void testSnapshotDiscardedOnGoblintVersionChange() throws IOException {
+        assertTrue(snapshot.read("Goblint version: heads/master-0-g1111111", goblintConf.toString()).isEmpty());
+    }
+
+    /**
+     * Tests that a snapshot is not used after the Goblint configuration has changed.
+     */
+    @Test
+    void testSnapshotDiscardedOnGoblintConfChange() throws IOException {
+        Files.writeString(goblintConf, "{\"files\": [\"example.c\"], \"ana\": {\"int\": {\"interval\": true}}}");
+        assertTrue(snapshot.read(GOBLINT_VERSION, goblintConf.toString()).isEmpty());
+    }
+
+    /**
+     * Tests that a snapshot is not used after an analyzed source file has changed.
+     */
+    @Test
+    void testSnapshotDiscardedOnSourceChange() throws IOException {
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 1000));
+        assertTrue(snapshot.read(GOBLINT_VERSION, goblintConf.toString()).isEmpty());
+    }
+
+    /**
+     * Tests that a missing or corrupted snapshot is reported correctly.
+     */
+    @Test
+    void testMissingAndCorruptedSnapshot() throws IOException {
+        Path file = projectDir.resolve(DiagnosticSnapshot.DEFAULT_LOCATION);
+        Files.write(file, new byte[]{0x47, 0x50, 0x44, 0x53, 0, 0, 0, 1, 0x7f});
+        assertThrows(IOException.class, () -> snapshot.read(GOBLINT_VERSION, goblintConf.toString()));
+        snapshot.delete();
+        assertTrue(snapshot.read(GOBLINT_VERSION, goblintConf.toString()).isEmpty());
+    }
+
+}
@@ -0,0 +1,60 @@
+import magpiebridge.core.AnalysisResult;
+import magpiebridge.core.MagpieClient;
+import magpiebridge.core.MagpieServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Benchmark for publishing the diagnostics of Goblint messages through MagpieBridge and directly by GobPie.
+ * <p>
+ * Reports the times for consuming increasingly large synthetic result sets in a fresh server.
+ * <p>
+ * Not run as part of the regular test suite. Run with
+ * {@code mvn test -Dtest=DiagnosticsPublishingBenchmark},
+ * the report is written to the test output in {@code target/surefire-reports}.
+ */
+class DiagnosticsPublishingBenchmark extends TestHelper {
+
+    private static final int[] SIZES = {1_000, 10_000, 50_000, 100_000};
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @TempDir
+    Path sourceDir;
+
+    @Test
+    void benchmarkPublishing() throws IOException {
+        MagpieClient client = mock(MagpieClient.class, withSettings().stubOnly());
+        for (int size : SIZES) {
+            List<AnalysisResult> results = syntheticDiagnosticResults(sourceDir, size);
+            long magpie = medianNanos(() -> new MagpieServerWithClient(client), results);
+            long direct = medianNanos(() -> new GoblintMagpieServerWithClient(client), results);
+            System.out.printf("%8d results: MagpieBridge %10.3f ms, direct %9.3f ms%n", size, magpie / 1e6, direct / 1e6);
+        }
+    }
+
+    private static long medianNanos(Supplier<MagpieServer> server, List<AnalysisResult> results) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            server.get().consume(results, "GobPie");
+        }
+        long[] times = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            MagpieServer fresh = server.get();
+            long start = System.nanoTime();
+            fresh.consume(results, "GobPie");
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[MEASURED_ROUNDS / 2];
+    }
+
+}
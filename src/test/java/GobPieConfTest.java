@@ -1,4 +1,5 @@
 import com.google.gson.Gson;
+import gobpie.DiagnosticBudget;
 import gobpie.GobPieConfReader;
 import gobpie.GobPieConfiguration;
 import gobpie.GobPieException;
@@ -82,6 +83,47 @@ class GobPieConfTest {
         assertEquals(expectedGobPieConfiguration, actualGobPieConfiguration);
     }
 
+    /**
+     * Mock test to ensure @readGobPieConfiguration function
+     * reads the diagnostic budget in GobPie configuration
+     */
+    @Test
+    void testReadDiagnosticBudget() {
+        GobPieConfReader gobPieConfReader = preFileSetup(8);
+        GobPieConfiguration expectedGobPieConfiguration =
+                new GobPieConfiguration.Builder()
+                        .setGoblintConf("goblint.json")
+                        .setIncrementalAnalysis(true)
+                        .setExplodeGroupWarnings(true)
+                        .setDiagnosticBudget(new DiagnosticBudget(100, 1000, "Warning", null, List.of("Deadcode"), List.of(362, 476)))
+                        .createGobPieConfiguration();
+
+        GobPieConfiguration actualGobPieConfiguration = gobPieConfReader.readGobPieConfiguration();
+        assertEquals(expectedGobPieConfiguration, actualGobPieConfiguration);
+    }
+
+    /**
+     * Mock test to ensure @readGobPieConfiguration function
+     * reads the minimum severity of the diagnostic budget ignoring case
+     */
+    @Test
+    void testReadDiagnosticBudgetSeverityIgnoringCase() {
+        GobPieConfReader gobPieConfReader = preFileSetup(9);
+        GobPieConfiguration actualGobPieConfiguration = gobPieConfReader.readGobPieConfiguration();
+        assertEquals("Warning", actualGobPieConfiguration.diagnosticBudget().minSeverity());
+    }
+
+    /**
+     * Mock test to ensure @readGobPieConfiguration function
+     * throws an exception when the minimum severity of the diagnostic budget is unknown
+     */
+    @Test
+    void testReadDiagnosticBudgetWithUnknownSeverity() {
+        GobPieConfReader gobPieConfReader = preFileSetup(10);
+        GobPieException thrown = assertThrows(GobPieException.class, gobPieConfReader::readGobPieConfiguration);
+        assertEquals("There was an unknown minSeverity \"Warnings\" in the diagnosticBudget of the GobPie configuration. It must be one of Error, Warning, Info, Debug and Success.", thrown.getMessage());
+    }
+
     /**
      * Mock test to ensure @readGobPieConfiguration function
      * reads Complete GobPie configuration with different Boolean values
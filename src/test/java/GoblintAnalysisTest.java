@@ -1,3 +1,4 @@
+import analysis.AnalysisRun;
 import analysis.GoblintAnalysis;
 import api.GoblintService;
 import api.messages.GoblintAnalysisResult;
@@ -6,13 +7,17 @@ import com.ibm.wala.classLoader.Module;
 import goblintserver.GoblintConfWatcher;
 import goblintserver.GoblintServer;
 import gobpie.GobPieConfiguration;
+import magpiebridge.GoblintMagpieServer;
 import magpiebridge.core.AnalysisConsumer;
+import magpiebridge.core.AnalysisResult;
 import magpiebridge.core.MagpieServer;
-import org.eclipse.lsp4j.MessageParams;
-import org.eclipse.lsp4j.MessageType;
+import org.eclipse.lsp4j.*;
+import org.eclipse.lsp4j.services.LanguageClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import uk.org.webcompere.systemstubs.jupiter.SystemStub;
@@ -20,12 +25,17 @@ import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
 import uk.org.webcompere.systemstubs.stream.SystemOut;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -285,4 +295,193 @@ class GoblintAnalysisTest extends TestHelper {
         verify(magpieServer).forwardMessageToClient(new MessageParams(MessageType.Info, "GobPie finished analyzing the code."));
     }
 
-}
\ No newline at end of file
+    /**
+     * Mock test to ensure @analyze function
+     * skips the analysis when none of the analyzed files have changed
+     */
+    @Test
+    void analyzeSkippedWhenAnalyzedFilesUnchanged(@TempDir Path projectDir) throws IOException {
+        Path source = Files.writeString(projectDir.resolve("example.c"), "#include \"example.h\"\nint main() { return f(); }");
+        Path header = Files.writeString(projectDir.resolve("example.h"), "int f();");
+        when(gobPieConfiguration.skipUnchangedReanalysis()).thenReturn(true);
+        when(gobPieConfiguration.goblintConf()).thenReturn(projectDir.resolve("goblint.json").toString());
+        // Hash the analyzed files on the calling thread, so that the filter is updated when the analysis returns
+        GoblintAnalysis goblintAnalysis = new GoblintAnalysis(magpieServer, goblintServer, goblintService, gobPieConfiguration, goblintConfWatcher, null, Runnable::run);
+
+        // Mock that the analyses of Goblint have started and completed and which files were analyzed
+        when(goblintService.analyze(new AnalyzeParams(false))).thenReturn(CompletableFuture.completedFuture(new GoblintAnalysisResult(List.of("Success"))));
+        when(goblintService.files()).thenReturn(CompletableFuture.completedFuture(Map.of(source.toString(), List.of(source.toString()))));
+        when(goblintService.pre_files()).thenReturn(CompletableFuture.completedFuture(Map.of(source.toString(), List.of(header.toString()))));
+
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+
+        // Save the source file without changing it
+        Files.writeString(source, Files.readString(source));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 1000));
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+
+        // Change an included file
+        Files.writeString(header, "int f(void);");
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+
+        // Verify that only the analysis after saving without changes was skipped
+        verify(goblintService, times(2)).analyze(new AnalyzeParams(false));
+        assertTrue(systemOut.getLines().anyMatch(line -> line.contains("None of the analyzed files have changed, skipping the analysis (1 analyses skipped so far).")));
+    }
+
+    /**
+     * Mock test to ensure that the results of the last analysis
+     * are published again when saving without changes skips the analysis,
+     * because MagpieBridge removes all results before the analysis of a save
+     */
+    @Test
+    void analyzeSkippedPublishesLastResults(@TempDir Path projectDir) throws IOException {
+        Path source = Files.writeString(projectDir.resolve("example.c"), "int main() { return 0; }");
+        when(gobPieConfiguration.skipUnchangedReanalysis()).thenReturn(true);
+        when(gobPieConfiguration.goblintConf()).thenReturn(projectDir.resolve("goblint.json").toString());
+        GoblintAnalysis goblintAnalysis = new GoblintAnalysis(magpieServer, goblintServer, goblintService, gobPieConfiguration, goblintConfWatcher, null, Runnable::run);
+
+        when(goblintService.analyze(new AnalyzeParams(false))).thenReturn(CompletableFuture.completedFuture(new GoblintAnalysisResult(List.of("Success"))));
+        when(goblintService.messages()).thenReturn(CompletableFuture.completedFuture(syntheticMessages(3)));
+        when(goblintService.files()).thenReturn(CompletableFuture.completedFuture(Map.of(source.toString(), List.of(source.toString()))));
+        when(goblintService.pre_files()).thenReturn(CompletableFuture.completedFuture(Map.of()));
+
+        // Open the project and save twice without changes
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+
+        verify(goblintService, times(1)).analyze(new AnalyzeParams(false));
+        ArgumentCaptor<Collection<AnalysisResult>> published = ArgumentCaptor.forClass(Collection.class);
+        verify(analysisConsumer, times(3)).consume(published.capture(), eq("GobPie"));
+        assertEquals(3, published.getAllValues().get(0).size());
+        assertEquals(published.getAllValues().get(0), published.getAllValues().get(1));
+        assertEquals(published.getAllValues().get(0), published.getAllValues().get(2));
+    }
+
+    /**
+     * Creates an analysis with a server whose client supports work done progress.
+     */
+    private GoblintAnalysis analysisWithProgress(GoblintMagpieServer progressServer, LanguageClient client) {
+        when(progressServer.clientSupportsWorkDoneProgress()).thenReturn(true);
+        when(progressServer.getClient()).thenReturn(client);
+        when(client.createProgress(any())).thenReturn(CompletableFuture.completedFuture(null));
+        return new GoblintAnalysis(progressServer, goblintServer, goblintService, gobPieConfiguration, goblintConfWatcher);
+    }
+
+    private static List<String> progressMessages(LanguageClient client) {
+        ArgumentCaptor<ProgressParams> captor = ArgumentCaptor.forClass(ProgressParams.class);
+        verify(client, atLeastOnce()).notifyProgress(captor.capture());
+        return captor.getAllValues().stream().map(params -> {
+            WorkDoneProgressNotification notification = params.getValue().getLeft();
+            if (notification instanceof WorkDoneProgressBegin begin) {
+                return "begin: " + begin.getTitle();
+            } else if (notification instanceof WorkDoneProgressReport report) {
+                return "report: " + report.getMessage().replaceAll(" \\(.*\\)", "");
+            } else {
+                return "end: " + ((WorkDoneProgressEnd) notification).getMessage().replaceAll(" \\(.*\\)", "");
+            }
+        }).distinct().toList(); // the elapsed time of a long phase is reported repeatedly
+    }
+
+    /**
+     * Mock test to ensure @analyze function
+     * reports the phases of the analysis as work done progress instead of showing messages
+     */
+    @Test
+    void analyzeReportsProgress() {
+        GoblintMagpieServer progressServer = mock(GoblintMagpieServer.class);
+        LanguageClient client = mock(LanguageClient.class);
+        GoblintAnalysis analysis = analysisWithProgress(progressServer, client);
+        when(goblintService.analyze(new AnalyzeParams(false))).thenReturn(CompletableFuture.completedFuture(new GoblintAnalysisResult(List.of("Success"))));
+
+        analysis.analyze(files, analysisConsumer, true);
+
+        assertEquals(List.of(
+                "begin: GobPie analysis",
+                "report: Reading Goblint configuration",
+                "report: Running pre-analysis command",
+                "report: Analyzing",
+                "report: Fetching messages",
+                "report: Converting messages",
+                "report: Publishing results",
+                "end: Finished"), progressMessages(client));
+        verify(progressServer, never()).forwardMessageToClient(new MessageParams(MessageType.Info, "GobPie started analyzing the code."));
+        verify(progressServer, never()).forwardMessageToClient(new MessageParams(MessageType.Info, "GobPie finished analyzing the code."));
+    }
+
+    /**
+     * Mock test to ensure that cancelling the progress
+     * aborts the running analysis
+     */
+    @Test
+    void cancelProgressAbortsAnalysis() throws IOException {
+        GoblintMagpieServer progressServer = mock(GoblintMagpieServer.class);
+        LanguageClient client = mock(LanguageClient.class);
+        GoblintAnalysis analysis = analysisWithProgress(progressServer, client);
+        doNothing().when(goblintServer).abortAnalysis();
+        when(goblintService.analyze(new AnalyzeParams(false))).thenReturn(new CompletableFuture<>());
+
+        analysis.analyze(files, analysisConsumer, true);
+        ArgumentCaptor<Runnable> cancelHandler = ArgumentCaptor.forClass(Runnable.class);
+        verify(progressServer).onProgressCancel(anyString(), cancelHandler.capture());
+        cancelHandler.getValue().run();
+
+        verify(goblintServer).abortAnalysis();
+        assertTrue(systemOut.getLines().anyMatch(line -> line.contains("--------------- This analysis has been aborted -------------")));
+        assertEquals("end: Cancelled", progressMessages(client).get(progressMessages(client).size() - 1));
+    }
+
+    /**
+     * Mock test to ensure that cancelling the progress of an analysis
+     * that has already been replaced by a new analysis does not abort the new analysis
+     */
+    @Test
+    void cancelStaleProgressDoesNotAbortNewAnalysis() throws IOException {
+        when(gobPieConfiguration.analysisHistorySize()).thenReturn(10);
+        GoblintMagpieServer progressServer = mock(GoblintMagpieServer.class);
+        LanguageClient client = mock(LanguageClient.class);
+        GoblintAnalysis analysis = analysisWithProgress(progressServer, client);
+        doNothing().when(goblintServer).abortAnalysis();
+        CompletableFuture<GoblintAnalysisResult> runningProcess = new CompletableFuture<>();
+        when(goblintService.analyze(new AnalyzeParams(false))).thenReturn(new CompletableFuture<>(), runningProcess);
+
+        analysis.analyze(files, analysisConsumer, true);
+        ArgumentCaptor<Runnable> cancelHandler = ArgumentCaptor.forClass(Runnable.class);
+        verify(progressServer).onProgressCancel(anyString(), cancelHandler.capture());
+        Runnable staleCancelHandler = cancelHandler.getValue();
+        analysis.analyze(files, analysisConsumer, true);
+        staleCancelHandler.run();
+
+        // Only the first analysis is aborted, by the second analysis
+        verify(goblintServer, times(1)).abortAnalysis();
+        runningProcess.complete(new GoblintAnalysisResult(List.of("Success")));
+        assertEquals(List.of("Aborted by a new analysis", "Finished"), analysis.history().runs().stream().map(AnalysisRun.Summary::outcome).toList());
+    }
+
+    /**
+     * Mock test to ensure that the analysis runs
+     * are recorded in the analysis history
+     */
+    @Test
+    void analysisHistoryRecordsRuns() throws IOException {
+        when(gobPieConfiguration.analysisHistorySize()).thenReturn(10);
+        GoblintAnalysis analysis = new GoblintAnalysis(magpieServer, goblintServer, goblintService, gobPieConfiguration, goblintConfWatcher);
+        doNothing().when(goblintServer).abortAnalysis();
+        CompletableFuture<GoblintAnalysisResult> runningProcess = new CompletableFuture<>();
+
+        when(goblintService.analyze(new AnalyzeParams(false))).thenReturn(runningProcess);
+        analysis.analyze(files, analysisConsumer, true);
+        when(goblintService.analyze(new AnalyzeParams(false))).thenReturn(CompletableFuture.completedFuture(new GoblintAnalysisResult(List.of("Success"))));
+        analysis.analyze(files, analysisConsumer, true);
+
+        List<AnalysisRun.Summary> runs = analysis.history().runs();
+        assertEquals(List.of("open", "save"), runs.stream().map(AnalysisRun.Summary::trigger).toList());
+        assertEquals(List.of("Aborted by a new analysis", "Finished"), runs.stream().map(AnalysisRun.Summary::outcome).toList());
+        assertEquals(List.of("CONFIG_REFRESH", "PRE_ANALYSIS", "ANALYZE", "MESSAGES_FETCH", "CONVERSION", "PUBLISH"), List.copyOf(runs.get(1).phaseMillis().keySet()));
+        assertEquals(0, runs.get(1).goblintMessages());
+        assertEquals(0, runs.get(1).results());
+        assertTrue(analysis.history().toJson().contains("\"outcome\":\"Finished\""));
+    }
+
+}
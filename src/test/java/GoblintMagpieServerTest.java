@@ -0,0 +1,146 @@
+import analysis.GoblintCFGAnalysisResult;
+import api.messages.GoblintPosition;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import magpiebridge.core.AnalysisResult;
+import magpiebridge.core.MagpieClient;
+import org.eclipse.lsp4j.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Goblint MagpieServer test.
+ * <p>
+ * The class is responsible for testing that the diagnostics GobPie publishes directly
+ * are the same as the ones MagpieBridge publishes, and that the client can pull the diagnostics instead and resolve the code lenses lazily.
+ */
+class GoblintMagpieServerTest extends TestHelper {
+
+    @TempDir
+    Path sourceDir;
+
+    private static List<PublishDiagnosticsParams> published(MagpieClient client) {
+        ArgumentCaptor<PublishDiagnosticsParams> captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+        verify(client, atLeast(0)).publishDiagnostics(captor.capture());
+        List<PublishDiagnosticsParams> published = new ArrayList<>(captor.getAllValues());
+        published.sort(Comparator.comparing(PublishDiagnosticsParams::getUri));
+        return published;
+    }
+
+    /**
+     * Tests that consuming the results publishes the same diagnostics for the same files as MagpieBridge,
+     * including duplicate results being published once, and that the other results are still consumed by MagpieBridge.
+     */
+    @Test
+    void testConsumePublishesSameDiagnosticsAsMagpieBridge() throws IOException {
+        List<AnalysisResult> results = syntheticDiagnosticResults(sourceDir, 1_000);
+        results.addAll(syntheticDiagnosticResults(sourceDir, 10));
+        results.add(new GoblintCFGAnalysisResult(new GoblintPosition(1, 1, 1, sourceDir.resolve("file0.c").toUri().toURL()), "show cfg", "main"));
+
+        MagpieClient magpieClient = mock(MagpieClient.class);
+        new MagpieServerWithClient(magpieClient).consume(results, "GobPie");
+        MagpieClient goblintClient = mock(MagpieClient.class);
+        GoblintMagpieServerWithClient goblintServer = new GoblintMagpieServerWithClient(goblintClient);
+        goblintServer.consume(results, "GobPie");
+
+        List<PublishDiagnosticsParams> expected = published(magpieClient);
+        assertEquals(100, expected.size());
+        assertEquals(expected, published(goblintClient));
+        assertEquals(1, goblintServer.codeLenses(sourceDir.resolve("file0.c")).size());
+    }
+
+    /**
+     * Tests that the CFG code lenses are returned without commands
+     * and that resolving them gives the same command as MagpieBridge would show.
+     */
+    @Test
+    void testCodeLensesAreResolvedLazily() throws IOException {
+        Path source = sourceDir.resolve("main.c");
+        Files.writeString(source, "int main() { return 0; }");
+        GoblintCFGAnalysisResult cfg = new GoblintCFGAnalysisResult(new GoblintPosition(1, 1, 5, source.toUri().toURL()), "show cfg", "main");
+        GoblintMagpieServerWithClient goblintServer = new GoblintMagpieServerWithClient(mock(MagpieClient.class));
+        goblintServer.consume(List.of(cfg), "GobPie");
+
+        List<CodeLens> codeLenses = goblintServer.codeLenses(source);
+        assertEquals(1, codeLenses.size());
+        assertNull(codeLenses.get(0).getCommand());
+        assertEquals(new Range(new Position(0, 1), new Position(0, 5)), codeLenses.get(0).getRange());
+        // The data is sent to the client and back as JSON
+        CodeLens unresolved = new Gson().fromJson(new Gson().toJson(codeLenses.get(0)), CodeLens.class);
+        unresolved.setData(JsonParser.parseString(new Gson().toJson(codeLenses.get(0).getData())));
+        assertEquals(cfg.command().iterator().next(), goblintServer.resolveCodeLens(unresolved).join().getCommand());
+
+        goblintServer.cleanUp();
+        assertTrue(goblintServer.codeLenses(source).isEmpty());
+    }
+
+    /**
+     * Tests that when the client pulls the diagnostics, the diagnostics are not published,
+     * the pulled diagnostics are the same as the published ones would be,
+     * and files whose results are the same after a new analysis are reported as unchanged.
+     */
+    @Test
+    void testPullDiagnostics() throws IOException {
+        List<AnalysisResult> results = syntheticDiagnosticResults(sourceDir, 1_000);
+        MagpieClient magpieClient = mock(MagpieClient.class);
+        new MagpieServerWithClient(magpieClient).consume(results, "GobPie");
+        PublishDiagnosticsParams expected = published(magpieClient).get(0);
+
+        MagpieClient goblintClient = mock(MagpieClient.class);
+        GoblintMagpieServerWithClient goblintServer = new GoblintMagpieServerWithClient(goblintClient);
+        goblintServer.enablePullDiagnostics();
+        goblintServer.configurationDone();
+        ClientCapabilities capabilities = new ClientCapabilities();
+        capabilities.setTextDocument(new TextDocumentClientCapabilities());
+        capabilities.getTextDocument().setDiagnostic(new DiagnosticCapabilities());
+        capabilities.setWorkspace(new WorkspaceClientCapabilities());
+        capabilities.getWorkspace().setDiagnostics(new DiagnosticWorkspaceCapabilities(true));
+        InitializeParams initializeParams = new InitializeParams();
+        initializeParams.setCapabilities(capabilities);
+        initializeParams.setRootUri(sourceDir.toUri().toString());
+        InitializeResult initializeResult = goblintServer.initialize(initializeParams).join();
+        assertTrue(initializeResult.getCapabilities().getDiagnosticProvider().isWorkspaceDiagnostics());
+
+        goblintServer.consume(results, "GobPie");
+        verify(goblintClient, never()).publishDiagnostics(any());
+        verify(goblintClient).refreshDiagnostics();
+
+        DocumentDiagnosticParams params = new DocumentDiagnosticParams(new TextDocumentIdentifier(expected.getUri()));
+        RelatedFullDocumentDiagnosticReport full = goblintServer.documentDiagnostic(params).join().getRelatedFullDocumentDiagnosticReport();
+        assertEquals(expected.getDiagnostics(), full.getItems());
+
+        // The results of the file do not change after a new analysis
+        goblintServer.cleanUp();
+        goblintServer.consume(results, "GobPie");
+        params.setPreviousResultId(full.getResultId());
+        assertTrue(goblintServer.documentDiagnostic(params).join().isRelatedUnchangedDocumentDiagnosticReport());
+
+        WorkspaceDiagnosticReport workspace = goblintServer.workspaceDiagnostic(new WorkspaceDiagnosticParams(List.of())).join();
+        assertEquals(100, workspace.getItems().size());
+        List<PreviousResultId> previousResultIds = workspace.getItems().stream()
+                .map(item -> item.isWorkspaceFullDocumentDiagnosticReport()
+                        ? new PreviousResultId(item.getWorkspaceFullDocumentDiagnosticReport().getUri(), item.getWorkspaceFullDocumentDiagnosticReport().getResultId())
+                        : new PreviousResultId(item.getWorkspaceUnchangedDocumentDiagnosticReport().getUri(), item.getWorkspaceUnchangedDocumentDiagnosticReport().getResultId()))
+                .toList();
+
+        // After a new analysis without results, all files are reported once as empty
+        goblintServer.cleanUp();
+        goblintServer.consume(List.of(), "GobPie");
+        workspace = goblintServer.workspaceDiagnostic(new WorkspaceDiagnosticParams(previousResultIds)).join();
+        assertEquals(100, workspace.getItems().size());
+        assertTrue(workspace.getItems().stream().allMatch(item -> item.getWorkspaceFullDocumentDiagnosticReport().getItems().isEmpty()));
+        assertTrue(goblintServer.workspaceDiagnostic(new WorkspaceDiagnosticParams(List.of())).join().getItems().isEmpty());
+    }
+
+}
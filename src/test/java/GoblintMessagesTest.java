@@ -20,6 +20,7 @@ import magpiebridge.core.AnalysisResult;
 import magpiebridge.core.MagpieServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Spy;
 
@@ -32,6 +33,7 @@ import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 /**
@@ -293,6 +295,9 @@ public class GoblintMessagesTest extends TestHelper {
     public void testConvertFunctionsFromJson() throws IOException {
         List<GoblintFunctionsResult> goblintFunctionsResults = readGoblintResponseJson("functionsResponse.json", functionsTypeToken);
         when(goblintService.functions()).thenReturn(CompletableFuture.completedFuture(goblintFunctionsResults));
+        when(goblintService.files()).thenReturn(CompletableFuture.completedFuture(Map.of("src/example.c", List.of("src/example.c"))));
+        when(goblintService.pre_files()).thenReturn(CompletableFuture.completedFuture(Map.of()));
+        when(gobPieConfiguration.goblintConf()).thenReturn("goblint.json");
         when(gobPieConfiguration.showCfg()).thenReturn(true);
         when(goblintService.messages()).thenReturn(CompletableFuture.completedFuture(new ArrayList<>()));
         goblintAnalysis.analyze(files, analysisConsumer, true);
@@ -325,4 +330,90 @@ public class GoblintMessagesTest extends TestHelper {
         verify(analysisConsumer).consume(response, "GobPie");
     }
 
-}
\ No newline at end of file
+    /**
+     * Test to ensure that converting Goblint warnings in parallel
+     * gives the same results in the same order as converting them sequentially.
+     */
+    @Test
+    public void testParallelConversionPreservesOrder() {
+        List<GoblintMessagesResult> goblintMessagesResults = syntheticMessages(5_000);
+        List<AnalysisResult> sequential = GoblintAnalysis.convertInOrder(goblintMessagesResults, msg -> msg.convert(true), Integer.MAX_VALUE);
+        List<AnalysisResult> parallel = GoblintAnalysis.convertInOrder(goblintMessagesResults, msg -> msg.convert(true), 0);
+        assertEquals(sequential, parallel);
+    }
+
+    /**
+     * Test to ensure that equal converted Goblint warnings have equal hash codes,
+     * so that duplicates are removed when the results are collected into a hash set.
+     */
+    @Test
+    public void testEqualMessagesHaveEqualHashCodes() {
+        List<GoblintMessagesResult> goblintMessagesResults = syntheticMessages(1_000);
+        List<AnalysisResult> first = GoblintAnalysis.convertInOrder(goblintMessagesResults, msg -> msg.convert(true), Integer.MAX_VALUE);
+        List<AnalysisResult> second = GoblintAnalysis.convertInOrder(goblintMessagesResults, msg -> msg.convert(true), Integer.MAX_VALUE);
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i), second.get(i));
+            assertEquals(first.get(i).hashCode(), second.get(i).hashCode());
+        }
+        Set<AnalysisResult> deduplicated = new HashSet<>(first);
+        deduplicated.addAll(second);
+        assertEquals(new HashSet<>(first).size(), deduplicated.size());
+    }
+
+    /**
+     * Mock test to ensure that the Goblint functions are not requested again
+     * when the analyzed files have not changed since the previous analysis
+     * and that the cached code lenses are passed to {@link MagpieServer} instead.
+     *
+     * @throws IOException when reading functionsResponse.json from resources fails.
+     */
+    @Test
+    public void testFunctionsReusedWhenFilesUnchanged() throws IOException {
+        List<GoblintFunctionsResult> goblintFunctionsResults = readGoblintResponseJson("functionsResponse.json", functionsTypeToken);
+        when(goblintService.functions()).thenReturn(CompletableFuture.completedFuture(goblintFunctionsResults));
+        when(goblintService.files()).thenReturn(CompletableFuture.completedFuture(Map.of("src/example.c", List.of("src/example.c"))));
+        when(goblintService.pre_files()).thenReturn(CompletableFuture.completedFuture(Map.of()));
+        when(gobPieConfiguration.goblintConf()).thenReturn("goblint.json");
+        when(gobPieConfiguration.showCfg()).thenReturn(true);
+        when(goblintService.messages()).thenReturn(CompletableFuture.completedFuture(new ArrayList<>()));
+
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+
+        URL exampleUrl = new File("src/example.c").toURI().toURL();
+        List<AnalysisResult> response = List.of(
+                new GoblintCFGAnalysisResult(new GoblintPosition(8, 13, 0, 0, exampleUrl), "show cfg", "t_fun"),
+                new GoblintCFGAnalysisResult(new GoblintPosition(15, 23, 0, 0, exampleUrl), "show arg", "<arg>"),
+                new GoblintCFGAnalysisResult(new GoblintPosition(15, 23, 0, 0, exampleUrl), "show cfg", "main")
+        );
+        verify(goblintService, times(2)).files();
+        verify(goblintService, times(1)).functions();
+        verify(analysisConsumer, times(2)).consume(response, "GobPie");
+    }
+
+    /**
+     * Mock test to ensure that the Goblint functions are requested again
+     * when a file included by the analyzed files has changed since the previous analysis,
+     * because functions may also be defined in headers.
+     *
+     * @throws IOException when reading functionsResponse.json from resources fails.
+     */
+    @Test
+    public void testFunctionsRequestedAgainWhenHeaderChanged(@TempDir Path projectDir) throws IOException {
+        Path header = Files.writeString(projectDir.resolve("example.h"), "int f();");
+        List<GoblintFunctionsResult> goblintFunctionsResults = readGoblintResponseJson("functionsResponse.json", functionsTypeToken);
+        when(goblintService.functions()).thenReturn(CompletableFuture.completedFuture(goblintFunctionsResults));
+        when(goblintService.files()).thenReturn(CompletableFuture.completedFuture(Map.of("src/example.c", List.of("src/example.c"))));
+        when(goblintService.pre_files()).thenReturn(CompletableFuture.completedFuture(Map.of("src/example.c", List.of(header.toString()))));
+        when(gobPieConfiguration.goblintConf()).thenReturn("goblint.json");
+        when(gobPieConfiguration.showCfg()).thenReturn(true);
+        when(goblintService.messages()).thenReturn(CompletableFuture.completedFuture(new ArrayList<>()));
+
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+        Files.writeString(header, "int f(void);\nint g(void);");
+        goblintAnalysis.analyze(files, analysisConsumer, true);
+
+        verify(goblintService, times(2)).functions();
+    }
+
+}
@@ -0,0 +1,134 @@
+import goblintserver.IncrementalDataStore;
+import goblintserver.IncrementalDataStore.Generation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Incremental data store test.
+ * <p>
+ * The class is responsible for testing that Goblint's incremental analysis data
+ * is resumed from the right generation and that outdated generations are evicted.
+ */
+class IncrementalDataStoreTest {
+
+    private static final String GOBLINT_VERSION = "Goblint version: heads/master-0-g0000000";
+
+    @TempDir
+    Path projectDir;
+
+    private IncrementalDataStore createStore(int maxGenerations, long maxSize) {
+        return new IncrementalDataStore(projectDir.resolve(IncrementalDataStore.DEFAULT_LOCATION), maxGenerations, maxSize, Duration.ofDays(14));
+    }
+
+    /**
+     * Simulates a run of the Goblint server that saves its data after a successful analysis.
+     */
+    private Generation runAndSave(IncrementalDataStore store, String goblintVersion, String branch, int dataSize) throws IOException {
+        Generation generation = store.open(goblintVersion, branch);
+        Files.createDirectories(generation.saveDir());
+        Files.write(generation.saveDir().resolve("solver_data"), new byte[dataSize]);
+        store.markSaved(generation);
+        return generation;
+    }
+
+    private long savedGenerationCount(String branch) throws IOException {
+        try (Stream<Path> generations = Files.list(projectDir.resolve(IncrementalDataStore.DEFAULT_LOCATION).resolve(branch))) {
+            return generations.count();
+        }
+    }
+
+    /**
+     * Tests that the data saved in the previous run is loaded on the same branch with the same Goblint version.
+     */
+    @Test
+    void testResumeFromPreviousGeneration() throws IOException {
+        IncrementalDataStore store = createStore(3, Long.MAX_VALUE);
+        Generation first = runAndSave(store, GOBLINT_VERSION, "master", 10);
+        assertNull(first.loadDir());
+
+        Generation second = store.open(GOBLINT_VERSION, "master");
+        assertEquals(first.saveDir(), second.loadDir());
+        assertNotEquals(first.saveDir(), second.saveDir());
+    }
+
+    /**
+     * Tests that nothing is loaded for another Goblint version or another branch.
+     */
+    @Test
+    void testNoResumeOnVersionOrBranchMismatch() throws IOException {
+        IncrementalDataStore store = createStore(3, Long.MAX_VALUE);
+        runAndSave(store, GOBLINT_VERSION, "master", 10);
+
+        assertNull(store.open("Goblint version: heads/master-0-g1111111", "master").loadDir());
+        assertNull(store.open(GOBLINT_VERSION, "feature").loadDir());
+    }
+
+    /**
+     * Tests that only the configured number of generations is kept per branch.
+     */
+    @Test
+    void testGenerationLimit() throws IOException {
+        IncrementalDataStore store = createStore(2, Long.MAX_VALUE);
+        Generation last = null;
+        for (int i = 0; i < 5; i++) {
+            last = runAndSave(store, GOBLINT_VERSION, "master", 10);
+        }
+        // The two newest saved generations and the one created by the last open are left
+        assertEquals(3, savedGenerationCount("master"));
+        assertEquals(last.saveDir(), store.open(GOBLINT_VERSION, "master").loadDir());
+    }
+
+    /**
+     * Tests that the oldest generations are evicted when the store exceeds its size limit.
+     */
+    @Test
+    void testSizeLimit() throws IOException {
+        IncrementalDataStore store = createStore(10, 2500);
+        Generation old = runAndSave(store, GOBLINT_VERSION, "feature", 1000);
+        runAndSave(store, GOBLINT_VERSION, "master", 1000);
+        runAndSave(store, GOBLINT_VERSION, "master", 1000);
+
+        store.open(GOBLINT_VERSION, "master");
+        assertFalse(Files.exists(old.saveDir()));
+        assertNull(store.open(GOBLINT_VERSION, "feature").loadDir());
+    }
+
+    /**
+     * Tests that a generation is discarded if analysing never succeeded after loading it.
+     */
+    @Test
+    void testDiscardUnloadableGeneration() throws IOException {
+        IncrementalDataStore store = createStore(3, Long.MAX_VALUE);
+        Generation saved = runAndSave(store, GOBLINT_VERSION, "master", 10);
+
+        // Two runs in which Goblint did not manage to analyse after loading
+        assertEquals(saved.saveDir(), store.open(GOBLINT_VERSION, "master").loadDir());
+        assertEquals(saved.saveDir(), store.open(GOBLINT_VERSION, "master").loadDir());
+        assertNull(store.open(GOBLINT_VERSION, "master").loadDir());
+        assertFalse(Files.exists(saved.saveDir()));
+    }
+
+    /**
+     * Tests that the branch is read from the git repository of the project.
+     */
+    @Test
+    void testBranchKey() throws IOException {
+        assertEquals("default", IncrementalDataStore.branchKey(projectDir));
+
+        Files.createDirectories(projectDir.resolve(".git"));
+        Files.writeString(projectDir.resolve(".git").resolve("HEAD"), "ref: refs/heads/feature/incremental\n");
+        assertEquals("feature_incremental", IncrementalDataStore.branchKey(projectDir));
+
+        Files.writeString(projectDir.resolve(".git").resolve("HEAD"), "3f1c2b0e9a7d4c5b8e6f1a2b3c4d5e6f7a8b9c0d\n");
+        assertEquals("3f1c2b0e9a7d4c5b8e6f1a2b3c4d5e6f7a8b9c0d", IncrementalDataStore.branchKey(projectDir));
+    }
+
+}
@@ -0,0 +1,71 @@
+import analysis.GoblintAnalysis;
+import api.messages.GoblintMessagesResult;
+import magpiebridge.core.AnalysisResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark for converting Goblint messages sequentially and in parallel.
+ * <p>
+ * Reports the conversion times for increasingly large synthetic message sets
+ * and the smallest set size for which the parallel conversion is faster,
+ * which is a good value for the {@code parallelConversionThreshold} option on the measuring machine.
+ * <p>
+ * Not run as part of the regular test suite. Run with
+ * {@code mvn test -Dtest=MessageConversionBenchmark},
+ * the report is written to the test output in {@code target/surefire-reports}.
+ */
+class MessageConversionBenchmark extends TestHelper {
+
+    private static final int[] SIZES = {100, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000};
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Test
+    void benchmarkConversionCrossover() {
+        Function<GoblintMessagesResult, List<AnalysisResult>> converter = msg -> msg.convert(true);
+        Integer crossover = null;
+        for (int size : SIZES) {
+            List<GoblintMessagesResult> messages = syntheticMessages(size);
+
+            long sequential = medianNanos(() -> GoblintAnalysis.convertInOrder(messages, converter, Integer.MAX_VALUE));
+            long parallel = medianNanos(() -> GoblintAnalysis.convertInOrder(messages, converter, 0));
+            // Both ways of converting must give exactly the same results in the same order
+            assertEquals(
+                    GoblintAnalysis.convertInOrder(messages, converter, Integer.MAX_VALUE),
+                    GoblintAnalysis.convertInOrder(messages, converter, 0)
+            );
+
+            System.out.printf("%8d messages: sequential %9.3f ms, parallel %9.3f ms%n", size, sequential / 1e6, parallel / 1e6);
+            if (parallel < sequential && crossover == null) {
+                crossover = size;
+            } else if (parallel >= sequential) {
+                crossover = null;
+            }
+        }
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        System.out.println(crossover == null
+                ? "Parallel conversion was not faster for the largest measured size."
+                : "Parallel conversion is faster from " + crossover + " messages on.");
+    }
+
+    private static long medianNanos(Runnable task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        long[] times = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[MEASURED_ROUNDS / 2];
+    }
+
+}
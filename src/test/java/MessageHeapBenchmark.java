@@ -0,0 +1,84 @@
+import analysis.GoblintAnalysis;
+import analysis.GoblintMessagesAnalysisResult;
+import api.messages.GoblintPosition;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.util.collections.Pair;
+import magpiebridge.core.AnalysisResult;
+import org.junit.jupiter.api.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark for the heap retained by converted Goblint messages.
+ * <p>
+ * Compares the compact results (shared tag prefixes, file URLs and related lists, texts built when needed)
+ * with results that hold their full texts, their own related lists and their own file URLs,
+ * like before the results were made compact.
+ * <p>
+ * Not run as part of the regular test suite. Run with
+ * {@code mvn test -Dtest=MessageHeapBenchmark},
+ * the report is written to the test output in {@code target/surefire-reports}.
+ */
+class MessageHeapBenchmark extends TestHelper {
+
+    private static final int[] SIZES = {10_000, 100_000};
+
+    @Test
+    void benchmarkRetainedHeap() throws InterruptedException {
+        for (boolean explode : new boolean[]{true, false}) {
+            for (int size : SIZES) {
+                // Only the converted results are retained, like in GobPie after the conversion
+                long baseline = usedHeap();
+                List<AnalysisResult> eager = convert(size, explode).stream().map(MessageHeapBenchmark::eager).toList();
+                long eagerBytes = usedHeap() - baseline;
+
+                baseline = usedHeap();
+                List<AnalysisResult> compact = convert(size, explode);
+                long compactBytes = usedHeap() - baseline;
+
+                // Both representations must show exactly the same warnings
+                assertEquals(eager, compact);
+                System.out.printf("%7d messages (explode %5s, %7d warnings): full texts %8.2f MB, compact %8.2f MB (%.0f%%)%n",
+                        size, explode, compact.size(), eagerBytes / 1e6, compactBytes / 1e6, 100.0 * compactBytes / eagerBytes);
+            }
+        }
+    }
+
+    private static List<AnalysisResult> convert(int size, boolean explode) {
+        return GoblintAnalysis.convertInOrder(syntheticMessages(size), msg -> msg.convert(explode), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Copies the result into a result holding its full text, its own list of related warnings and its own file URLs.
+     */
+    private static AnalysisResult eager(AnalysisResult result) {
+        GoblintMessagesAnalysisResult message = (GoblintMessagesAnalysisResult) result;
+        List<Pair<Position, String>> related = new ArrayList<>();
+        message.related().forEach(pair -> related.add(Pair.make(copy(pair.fst), new String(pair.snd))));
+        return new GoblintMessagesAnalysisResult(copy(message.position()), new String(message.text()), message.severityStr(), related);
+    }
+
+    private static Position copy(Position position) {
+        try {
+            return new GoblintPosition(position.getFirstLine(), position.getLastLine(), position.getFirstCol(), position.getLastCol(),
+                    new URL(position.getURL().toString()));
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,325 @@
+import abstractdebugging.ARGIndex;
+import abstractdebugging.ARGNodeCache;
+import abstractdebugging.ConditionalExpression;
+import abstractdebugging.ExpressionResultCache;
+import abstractdebugging.NodeInfo;
+import abstractdebugging.RequestFailedException;
+import abstractdebugging.ResultsService;
+import analysis.AnalysisGeneration;
+import api.GoblintService;
+import api.messages.EvalIntResult;
+import api.messages.GoblintARGLookupResult;
+import api.messages.GoblintVarinfo;
+import api.messages.params.GlobalStateParams;
+import api.messages.params.LookupParams;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Results service test.
+ * <p>
+ * The class is responsible for testing that the ARG nodes looked up by the abstract debugger
+ * are cached until a new analysis completes, that independent lookups are sent to Goblint concurrently,
+ * that the ARG can be indexed for walking it locally without delaying lookups and that the results of expressions are cached.
+ */
+class ResultsServiceTest extends TestHelper {
+
+    private final Gson gson = new Gson();
+
+    private GoblintARGLookupResult lookupResult(String nodeId, String cfgNodeId) {
+        return gson.fromJson("""
+                {"node": "%s", "cfg_node": "%s", "context": "c", "path": "p", "function": "main",
+                 "location": {"file": "main.c", "line": 1, "column": 1, "endLine": 1, "endColumn": 10},
+                 "prev": [], "next": []}
+                """.formatted(nodeId, cfgNodeId), GoblintARGLookupResult.class);
+    }
+
+    /**
+     * Mocks the ARG of two nodes with the same CFG node.
+     */
+    private GoblintService mockGoblintService() {
+        GoblintService goblintService = mock(GoblintService.class);
+        when(goblintService.arg_lookup(any())).thenAnswer(invocation -> {
+            JsonObject params = gson.toJsonTree(invocation.getArgument(0, LookupParams.class)).getAsJsonObject();
+            List<GoblintARGLookupResult> results = params.has("node")
+                    ? List.of(lookupResult(params.get("node").getAsString(), "cfg1"))
+                    : List.of(lookupResult("arg1", "cfg1"), lookupResult("arg2", "cfg1"));
+            return CompletableFuture.completedFuture(results);
+        });
+        return goblintService;
+    }
+
+    /**
+     * Tests that nodes are looked up from Goblint once, also when they were found by their CFG node,
+     * and that the cache is invalidated by a new analysis.
+     */
+    @Test
+    void testNodesAreCachedUntilNewAnalysis() {
+        GoblintService goblintService = mockGoblintService();
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        ResultsService resultsService = new ResultsService(goblintService, generation);
+
+        List<NodeInfo> nodes = resultsService.lookupNodesOfCFGNode("cfg1");
+        assertEquals(List.of("arg1", "arg2"), nodes.stream().map(NodeInfo::nodeId).toList());
+        assertSame(nodes, resultsService.lookupNodesOfCFGNode("cfg1"));
+        assertSame(nodes.get(1), resultsService.lookupNode("arg2"));
+        NodeInfo node = resultsService.lookupNode("arg3");
+        assertSame(node, resultsService.lookupNode("arg3"));
+        verify(goblintService, times(2)).arg_lookup(any());
+        assertEquals(new ARGNodeCache.Statistics(3, 2, 0, 4), resultsService.nodeCacheStatistics());
+
+        generation.advance();
+        assertNotSame(node, resultsService.lookupNode("arg3"));
+        verify(goblintService, times(3)).arg_lookup(any());
+        assertEquals(1, resultsService.nodeCacheStatistics().invalidations());
+    }
+
+    /**
+     * Tests that the lookups of several nodes are all sent to Goblint before any of them is answered,
+     * and that the nodes are returned in the requested order.
+     */
+    @Test
+    void testNodesAreLookedUpConcurrently() {
+        GoblintService goblintService = mock(GoblintService.class);
+        List<CompletableFuture<List<GoblintARGLookupResult>>> requests = new ArrayList<>();
+        when(goblintService.arg_lookup(any())).thenAnswer(invocation -> {
+            CompletableFuture<List<GoblintARGLookupResult>> request = new CompletableFuture<>();
+            requests.add(request);
+            return request;
+        });
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        ResultsService resultsService = new ResultsService(goblintService, generation);
+
+        CompletableFuture<List<NodeInfo>> nodes = resultsService.lookupNodesAsync(List.of("arg1", "arg2", "arg3"));
+        assertEquals(3, requests.size());
+        assertFalse(nodes.isDone());
+        for (int i = requests.size() - 1; i >= 0; i--) {
+            requests.get(i).complete(List.of(lookupResult("arg" + (i + 1), "cfg1")));
+        }
+        assertEquals(List.of("arg1", "arg2", "arg3"), nodes.join().stream().map(NodeInfo::nodeId).toList());
+    }
+
+    private static String edge(String kind, String nodeId) {
+        String properties = kind.equals("cfg") ? "{\"string\": \"" + nodeId + "\", \"lval\": null}" : "{\"function\": \"f\", \"args\": []}";
+        return """
+                {"edge": {"%s": %s}, "node": "%s", "cfg_node": "c%s", "context": "c", "path": "p"}
+                """.formatted(kind, properties, nodeId, nodeId);
+    }
+
+    private GoblintARGLookupResult node(String nodeId, List<String> prev, List<String> next) {
+        return gson.fromJson("""
+                {"node": "%s", "cfg_node": "c%s", "context": "c", "path": "p", "function": "%s",
+                 "location": {"file": "main.c", "line": 1, "column": 1, "endLine": 1, "endColumn": 10},
+                 "prev": [%s], "next": [%s]}
+                """.formatted(nodeId, nodeId, nodeId.startsWith("m") ? "main" : "f", String.join(",", prev), String.join(",", next)),
+                GoblintARGLookupResult.class);
+    }
+
+    /**
+     * Mocks the ARG of main calling f: m0 -> m1 -> m2, where m1 enters f0 -> f1, which returns to m2.
+     */
+    private GoblintService mockGoblintServiceWithCall() {
+        Map<String, GoblintARGLookupResult> arg = Map.of(
+                "m0", node("m0", List.of(), List.of(edge("cfg", "m1"))),
+                "m1", node("m1", List.of(edge("cfg", "m0")), List.of(edge("cfg", "m2"), edge("entry", "f0"))),
+                "m2", node("m2", List.of(edge("cfg", "m1"), edge("return", "f1")), List.of()),
+                "f0", node("f0", List.of(edge("entry", "m1")), List.of(edge("cfg", "f1"))),
+                "f1", node("f1", List.of(edge("cfg", "f0")), List.of(edge("return", "m2")))
+        );
+        GoblintService goblintService = mock(GoblintService.class);
+        when(goblintService.arg_lookup(any())).thenAnswer(invocation -> {
+            JsonObject params = gson.toJsonTree(invocation.getArgument(0, LookupParams.class)).getAsJsonObject();
+            String nodeId = params.has("node") ? params.get("node").getAsString() : "m0";
+            return CompletableFuture.completedFuture(List.of(arg.get(nodeId)));
+        });
+        return goblintService;
+    }
+
+    /**
+     * Tests that the whole ARG is downloaded into the index, that the ARG is then walked without requests to Goblint,
+     * and that an ARG with more nodes than allowed is not indexed.
+     */
+    @Test
+    void testARGIsIndexed() {
+        GoblintService goblintService = mockGoblintServiceWithCall();
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        ResultsService resultsService = new ResultsService(goblintService, generation, 100);
+
+        ARGIndex index = resultsService.argIndexAsync().join().orElseThrow();
+        assertEquals(5, index.size());
+        clearInvocations(goblintService);
+        assertEquals("f1", resultsService.lookupNode("f1").nodeId());
+        assertEquals(List.of("m2"), resultsService.lookupNodesOfCFGNode("cm2").stream().map(NodeInfo::nodeId).toList());
+        assertEquals("f0", index.entryNode("f1").nodeId());
+        assertEquals("m0", index.entryNode("m2").nodeId());
+        assertEquals(List.of("m0", "m1", "m2"), index.findMatchingNodes("m0", ARGIndex.EdgeKind.CFG, n -> true).stream().map(NodeInfo::nodeId).toList());
+        assertEquals(List.of("f0"), index.findMatchingNodes("m1", ARGIndex.EdgeKind.ENTRY, n -> n.function().equals("f")).stream().map(NodeInfo::nodeId).toList());
+        verifyNoInteractions(goblintService);
+
+        ResultsService limitedResultsService = new ResultsService(goblintService, generation, 3);
+        assertTrue(limitedResultsService.argIndexAsync().join().isEmpty());
+        assertEquals("f1", limitedResultsService.lookupNode("f1").nodeId());
+    }
+
+    /**
+     * Tests that the ARG is downloaded with a bounded number of lookups pending at a time,
+     * and that nodes are looked up from Goblint until the download has completed.
+     */
+    @Test
+    void testARGDownloadIsBoundedAndDoesNotDelayLookups() {
+        List<Runnable> pending = new ArrayList<>();
+        Map<String, GoblintARGLookupResult> arg = syntheticARG(2, 200);
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        ResultsService resultsService = new ResultsService(syntheticARGService(arg, result -> {
+            CompletableFuture<List<GoblintARGLookupResult>> response = new CompletableFuture<>();
+            pending.add(() -> response.complete(result));
+            return response;
+        }), generation, 1_000);
+
+        CompletableFuture<Optional<ARGIndex>> index = resultsService.argIndexAsync();
+        pending.remove(0).run();
+        assertEquals(64, pending.size());
+
+        CompletableFuture<NodeInfo> node = resultsService.lookupNodeAsync("n2_5");
+        assertEquals(65, pending.size());
+        pending.remove(64).run();
+        assertEquals("n2_5", node.join().nodeId());
+        assertTrue(resultsService.completedArgIndex().isEmpty());
+
+        int maxPending = 0;
+        while (!pending.isEmpty()) {
+            maxPending = Math.max(maxPending, pending.size());
+            List<Runnable> round = new ArrayList<>(pending);
+            pending.clear();
+            round.forEach(Runnable::run);
+        }
+        assertEquals(64, maxPending);
+        assertEquals(401, index.join().orElseThrow().size());
+        assertEquals("n2_7", resultsService.lookupNodeAsync("n2_7").join().nodeId());
+        assertTrue(pending.isEmpty());
+    }
+
+    /**
+     * Tests that downloading the ARG stops when another analysis completes during the download,
+     * instead of looking up the rest of the outdated ARG.
+     */
+    @Test
+    void testARGDownloadStopsWhenAnalysisCompletes() {
+        List<Runnable> pending = new ArrayList<>();
+        Map<String, GoblintARGLookupResult> arg = syntheticARG(2, 200);
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        ResultsService resultsService = new ResultsService(syntheticARGService(arg, result -> {
+            CompletableFuture<List<GoblintARGLookupResult>> response = new CompletableFuture<>();
+            pending.add(() -> response.complete(result));
+            return response;
+        }), generation, 1_000);
+
+        CompletableFuture<Optional<ARGIndex>> index = resultsService.argIndexAsync();
+        pending.remove(0).run();
+        generation.advance();
+
+        int requests = 1;
+        while (!pending.isEmpty()) {
+            requests += pending.size();
+            List<Runnable> round = new ArrayList<>(pending);
+            pending.clear();
+            round.forEach(Runnable::run);
+        }
+        assertTrue(index.join().isEmpty());
+        assertTrue(requests < arg.size());
+    }
+
+    /**
+     * Tests that the results of conditions and expressions are cached by the node, the expression ignoring whitespace and the mode,
+     * that invalid expressions are cached, and that the results are evaluated again after a new analysis.
+     */
+    @Test
+    void testExpressionResultsAreCachedUntilNewAnalysis() {
+        GoblintService goblintService = mock(GoblintService.class);
+        when(goblintService.arg_eval_int(any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                gson.fromJson("{\"raw\": \"top\"}", EvalIntResult.class)));
+        when(goblintService.arg_eval(any())).thenAnswer(invocation -> CompletableFuture.completedFuture(new JsonPrimitive(1)));
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        ResultsService resultsService = new ResultsService(goblintService, generation);
+
+        assertTrue(resultsService.evaluateConditionAsync("arg1", ConditionalExpression.fromString("x == 1", true)).join());
+        assertTrue(resultsService.evaluateConditionAsync("arg1", ConditionalExpression.fromString("  x  ==\t1 ", true)).join());
+        assertTrue(resultsService.evaluateConditionAsync("arg1", ConditionalExpression.fromString("\\may x == 1", true)).join());
+        assertFalse(resultsService.evaluateConditionAsync("arg1", ConditionalExpression.fromString("\\must x == 1", true)).join());
+        assertTrue(resultsService.evaluateConditionAsync("arg2", ConditionalExpression.fromString("x == 1", true)).join());
+        verify(goblintService, times(3)).arg_eval_int(any());
+
+        assertEquals(new JsonPrimitive(1), resultsService.evaluateExpression("arg1", "x + 1"));
+        assertEquals(new JsonPrimitive(1), resultsService.evaluateExpression("arg1", "x  +  1"));
+        assertEquals(new JsonPrimitive(1), resultsService.evaluateExpression("arg1", "x == 1"));
+        verify(goblintService, times(2)).arg_eval(any());
+
+        when(goblintService.arg_eval(any())).thenReturn(CompletableFuture.failedFuture(
+                new ResponseErrorException(new ResponseError(ResponseErrorCode.RequestFailed, "Unknown variable y", null))));
+        assertThrows(RequestFailedException.class, () -> resultsService.evaluateExpression("arg1", "y"));
+        assertThrows(RequestFailedException.class, () -> resultsService.evaluateExpression("arg1", "y"));
+        verify(goblintService, times(3)).arg_eval(any());
+        assertEquals(new ExpressionResultCache.Statistics(4, 6, 0, 6), resultsService.expressionCacheStatistics());
+
+        generation.advance();
+        assertTrue(resultsService.evaluateConditionAsync("arg1", ConditionalExpression.fromString("x == 1", true)).join());
+        verify(goblintService, times(4)).arg_eval_int(any());
+        assertEquals(1, resultsService.expressionCacheStatistics().invalidations());
+    }
+
+    /**
+     * Tests that the varinfos are requested once per analysis and filtered by the function they are visible in,
+     * and that the global state is requested by vid and cached until the next analysis.
+     */
+    @Test
+    void testVarinfosAndGlobalStatesAreCachedUntilNewAnalysis() {
+        GoblintService goblintService = mock(GoblintService.class);
+        when(goblintService.cil_varinfos()).thenAnswer(invocation -> CompletableFuture.completedFuture(List.of(
+                new GoblintVarinfo(1, "g", "g", "global", null, "int", null),
+                new GoblintVarinfo(2, "main", "main", "function", null, "int ()", null),
+                new GoblintVarinfo(3, "x", "x", "local", "main", "int", null),
+                new GoblintVarinfo(4, "y", "y", "local", "f", "int", null))));
+        when(goblintService.global_state(any())).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                gson.toJsonTree(invocation.getArgument(0, GlobalStateParams.class)).getAsJsonObject().get("vid")));
+        AnalysisGeneration generation = new AnalysisGeneration();
+        generation.advance();
+        ResultsService resultsService = new ResultsService(goblintService, generation);
+
+        assertEquals(List.of("g", "x"), resultsService.getVisibleVarinfos("main").stream().map(GoblintVarinfo::name).toList());
+        assertEquals(List.of("g", "y"), resultsService.getVisibleVarinfos("f").stream().map(GoblintVarinfo::name).toList());
+        assertEquals(4, resultsService.getVarinfos().size());
+        verify(goblintService, times(1)).cil_varinfos();
+
+        assertEquals(new JsonPrimitive(1), resultsService.lookupGlobalState(1));
+        assertEquals(new JsonPrimitive(1), resultsService.lookupGlobalState(1));
+        verify(goblintService, times(1)).global_state(any());
+
+        generation.advance();
+        assertEquals(List.of("g", "x"), resultsService.getVisibleVarinfos("main").stream().map(GoblintVarinfo::name).toList());
+        assertEquals(new JsonPrimitive(1), resultsService.lookupGlobalState(1));
+        verify(goblintService, times(2)).cil_varinfos();
+        verify(goblintService, times(2)).global_state(any());
+    }
+
+}
@@ -1,8 +1,38 @@
+import analysis.GoblintMessagesAnalysisResult;
+import api.GoblintService;
+import api.json.GoblintMessageJsonHandler;
+import api.messages.GoblintARGLookupResult;
+import api.messages.GoblintMessagesResult;
+import api.messages.GoblintPosition;
+import api.messages.params.LookupParams;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.util.collections.Pair;
 import goblintserver.GoblintConfWatcher;
 import goblintserver.GoblintServer;
+import magpiebridge.GoblintMagpieServer;
+import magpiebridge.GoblintServerConfiguration;
+import magpiebridge.core.AnalysisResult;
+import magpiebridge.core.MagpieClient;
+import magpiebridge.core.MagpieServer;
+import org.eclipse.lsp4j.CodeLens;
 
-import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 public class TestHelper {
 
@@ -13,4 +43,219 @@ public class TestHelper {
         doReturn(true).when(goblintServer).isAlive();
         when(goblintConfWatcher.refreshGoblintConfig()).thenReturn(true);
     }
+
+    /**
+     * Generates a synthetic Goblint messages response in the shape of a large race warning set.
+     * Every tenth message is a group warning with two pieces, the rest are single warnings spread over 100 files.
+     * The result is deterministic for a given count.
+     */
+    static JsonArray syntheticMessagesJson(int count) {
+        JsonArray messages = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            JsonObject category = new JsonObject();
+            JsonArray categoryNames = new JsonArray();
+            categoryNames.add("Race");
+            category.add("Category", categoryNames);
+            JsonObject cwe = new JsonObject();
+            cwe.addProperty("CWE", 362);
+            JsonArray tags = new JsonArray();
+            tags.add(category);
+            tags.add(cwe);
+
+            JsonObject message = new JsonObject();
+            message.add("tags", tags);
+            message.addProperty("severity", i % 3 == 0 ? "Warning" : "Info");
+            if (i % 10 == 0) {
+                JsonObject group = new JsonObject();
+                group.addProperty("group_text", "Memory location global" + i + " (race with conf. 110)");
+                group.add("group_loc", syntheticLocation(i));
+                JsonArray pieces = new JsonArray();
+                pieces.add(syntheticPiece("write with [lock:{mutex1}] (conf. 110)", i + 1, null));
+                pieces.add(syntheticPiece("read with [lock:{mutex2}] (conf. 110)", i + 2, null));
+                group.add("pieces", pieces);
+                message.add("multipiece", group);
+            } else {
+                message.add("multipiece", syntheticPiece("May dereference NULL pointer " + i, i, i % 7));
+            }
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * Deserializes a synthetic Goblint messages response the same way responses from Goblint are deserialized.
+     */
+    static List<GoblintMessagesResult> syntheticMessages(int count) {
+        Gson gson = new GoblintMessageJsonHandler(new HashMap<>()).getDefaultGsonBuilder().create();
+        return gson.fromJson(syntheticMessagesJson(count), new TypeToken<List<GoblintMessagesResult>>() {
+        }.getType());
+    }
+
+    private static JsonObject syntheticPiece(String text, int i, Integer context) {
+        JsonObject piece = new JsonObject();
+        piece.addProperty("text", text);
+        piece.add("loc", syntheticLocation(i));
+        if (context != null) {
+            JsonObject contextObject = new JsonObject();
+            contextObject.addProperty("tag", context);
+            piece.add("context", contextObject);
+        }
+        return piece;
+    }
+
+    private static JsonObject syntheticLocation(int i) {
+        JsonObject loc = new JsonObject();
+        loc.addProperty("file", "src/file" + (i % 100) + ".c");
+        loc.addProperty("line", i % 5000 + 1);
+        loc.addProperty("column", 3);
+        loc.addProperty("endLine", i % 5000 + 1);
+        loc.addProperty("endColumn", 20);
+        return loc;
+    }
+
+    /**
+     * Generates converted Goblint message results in the shape of a large race warning set,
+     * spread over 100 source files that are created in the given directory.
+     * Every tenth result is a group warning with two related pieces. The result is deterministic for a given count.
+     */
+    static List<AnalysisResult> syntheticDiagnosticResults(Path dir, int count) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            files.add(Files.writeString(dir.resolve("file" + i + ".c"), "int main() { return 0; }"));
+        }
+        List<AnalysisResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String severity = i % 3 == 0 ? "Warning" : "Info";
+            if (i % 10 == 0) {
+                List<Pair<Position, String>> related = List.of(
+                        Pair.make(syntheticPosition(files, i + 1), "write with [lock:{mutex1}] (conf. 110)"),
+                        Pair.make(syntheticPosition(files, i + 2), "read with [lock:{mutex2}] (conf. 110)")
+                );
+                results.add(new GoblintMessagesAnalysisResult(syntheticPosition(files, i), "[Race] Memory location global" + i + " (race with conf. 110)", severity, related));
+            } else {
+                results.add(new GoblintMessagesAnalysisResult(syntheticPosition(files, i), "[Behavior > Undefined > NullPointerDereference][CWE-476] May dereference NULL pointer " + i, severity));
+            }
+        }
+        return results;
+    }
+
+    private static GoblintPosition syntheticPosition(List<Path> files, int i) throws MalformedURLException {
+        return new GoblintPosition(i % 5000 + 1, i % 5000 + 1, 3, 20, files.get(i % files.size()).toUri().toURL());
+    }
+
+    /**
+     * Generates the ARG of a single function in a single context: an entry node followed by the given number of layers of nodes.
+     * Each node has CFG edges from two nodes of the previous layer (or from the entry node), so the ARG branches and joins like a function with many paths.
+     * The ARG has {@code 1 + layers * width} nodes. The node IDs are {@code n0} for the entry node and {@code n<layer>_<index>} for the others.
+     */
+    static Map<String, GoblintARGLookupResult> syntheticARG(int layers, int width) {
+        Gson gson = new Gson();
+        Map<String, GoblintARGLookupResult> arg = new HashMap<>();
+        for (int layer = 0; layer <= layers; layer++) {
+            for (int i = 0; i < (layer == 0 ? 1 : width); i++) {
+                JsonArray prev = new JsonArray();
+                JsonArray next = new JsonArray();
+                if (layer == 1) {
+                    prev.add(syntheticCFGEdge("n0"));
+                } else if (layer > 1) {
+                    prev.add(syntheticCFGEdge(syntheticNodeId(layer - 1, i)));
+                    if (width > 1) {
+                        prev.add(syntheticCFGEdge(syntheticNodeId(layer - 1, (i + 1) % width)));
+                    }
+                }
+                if (layer == 0) {
+                    for (int j = 0; j < width && layers > 0; j++) {
+                        next.add(syntheticCFGEdge(syntheticNodeId(1, j)));
+                    }
+                } else if (layer < layers) {
+                    next.add(syntheticCFGEdge(syntheticNodeId(layer + 1, i)));
+                    if (width > 1) {
+                        next.add(syntheticCFGEdge(syntheticNodeId(layer + 1, (i - 1 + width) % width)));
+                    }
+                }
+                String nodeId = layer == 0 ? "n0" : syntheticNodeId(layer, i);
+                JsonObject node = syntheticARGNodeRef(nodeId);
+                node.addProperty("function", "main");
+                JsonObject location = new JsonObject();
+                location.addProperty("file", "main.c");
+                location.addProperty("line", layer + 1);
+                location.addProperty("column", 1);
+                location.addProperty("endLine", layer + 1);
+                location.addProperty("endColumn", 10);
+                node.add("location", location);
+                node.add("prev", prev);
+                node.add("next", next);
+                arg.put(nodeId, gson.fromJson(node, GoblintARGLookupResult.class));
+            }
+        }
+        return arg;
+    }
+
+    private static String syntheticNodeId(int layer, int i) {
+        return "n" + layer + "_" + i;
+    }
+
+    private static JsonObject syntheticARGNodeRef(String nodeId) {
+        JsonObject node = new JsonObject();
+        node.addProperty("node", nodeId);
+        node.addProperty("cfg_node", "c" + nodeId);
+        node.addProperty("context", "c");
+        node.addProperty("path", "p");
+        return node;
+    }
+
+    private static JsonObject syntheticCFGEdge(String nodeId) {
+        JsonObject cfg = new JsonObject();
+        cfg.addProperty("string", "x = " + nodeId);
+        cfg.add("lval", null);
+        JsonObject properties = new JsonObject();
+        properties.add("cfg", cfg);
+        JsonObject edge = syntheticARGNodeRef(nodeId);
+        edge.add("edge", properties);
+        return edge;
+    }
+
+    /**
+     * Mocks a Goblint server that answers the ARG lookups of the abstract debugger from the given ARG.
+     * The entry point lookup returns the node {@code n0}.
+     *
+     * @param respond completes the response to a lookup, e.g. immediately or after a simulated latency
+     */
+    static GoblintService syntheticARGService(Map<String, GoblintARGLookupResult> arg,
+                                              Function<List<GoblintARGLookupResult>, CompletableFuture<List<GoblintARGLookupResult>>> respond) {
+        Gson gson = new Gson();
+        GoblintService goblintService = mock(GoblintService.class, withSettings().stubOnly());
+        when(goblintService.arg_lookup(any())).thenAnswer(invocation -> {
+            JsonObject params = gson.toJsonTree(invocation.getArgument(0, LookupParams.class)).getAsJsonObject();
+            String nodeId = params.has("node") ? params.get("node").getAsString() : "n0";
+            GoblintARGLookupResult node = arg.get(nodeId);
+            return respond.apply(node == null ? List.of() : List.of(node));
+        });
+        return goblintService;
+    }
+
+    /**
+     * MagpieServer that publishes the diagnostics to the given client without connecting to it.
+     */
+    static class MagpieServerWithClient extends MagpieServer {
+        MagpieServerWithClient(MagpieClient client) {
+            super(new GoblintServerConfiguration());
+            this.client = client;
+        }
+    }
+
+    /**
+     * GoblintMagpieServer that publishes the diagnostics to the given client without connecting to it.
+     */
+    static class GoblintMagpieServerWithClient extends GoblintMagpieServer {
+        GoblintMagpieServerWithClient(MagpieClient client) {
+            super(new GoblintServerConfiguration());
+            this.client = client;
+        }
+
+        List<CodeLens> codeLenses(Path file) {
+            return findCodeLenses(file.toUri());
+        }
+    }
+
 }
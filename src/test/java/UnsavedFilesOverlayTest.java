@@ -0,0 +1,139 @@
+import api.messages.GoblintLocation;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import goblintserver.UnsavedFilesOverlay;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unsaved files overlay test.
+ * <p>
+ * The class is responsible for testing that the unsaved contents of files are mirrored into shadow copies
+ * that Goblint analyzes through the overlay configuration, that the results are mapped back to the original files,
+ * and that closing a file with unsaved changes analyzes the saved file again.
+ */
+class UnsavedFilesOverlayTest {
+
+    @TempDir
+    Path projectDir;
+
+    private Path writeProject() throws IOException {
+        Path source = Files.writeString(projectDir.resolve("main.c"), "int main() { return 0; }");
+        JsonObject entry = new JsonObject();
+        entry.addProperty("directory", projectDir.toString());
+        entry.addProperty("file", "main.c");
+        entry.addProperty("command", "gcc -c main.c -o main.o");
+        JsonArray database = new JsonArray();
+        database.add(entry);
+        Files.writeString(projectDir.resolve("compile_commands.json"), database.toString());
+        JsonObject conf = new JsonObject();
+        JsonArray files = new JsonArray();
+        files.add(projectDir.resolve("compile_commands.json").toString());
+        conf.add("files", files);
+        conf.addProperty("warn.imprecise", false);
+        Files.writeString(projectDir.resolve("goblint.json"), conf.toString());
+        return source;
+    }
+
+    private static JsonObject readJson(Path path) throws IOException {
+        return JsonParser.parseString(Files.readString(path)).getAsJsonObject();
+    }
+
+    /**
+     * Tests that the compilation database in the overlay configuration points to the shadow copy of an unsaved file,
+     * that an analysis is requested after the delay and that positions in the shadow copy are mapped back.
+     */
+    @Test
+    void testOverlayUnsavedFile() throws IOException, InterruptedException {
+        Path source = writeProject();
+        CountDownLatch analyzed = new CountDownLatch(1);
+        UnsavedFilesOverlay overlay = new UnsavedFilesOverlay(projectDir.resolve(UnsavedFilesOverlay.DEFAULT_LOCATION), projectDir.resolve("goblint.json"), 10, analyzed::countDown);
+        assertTrue(overlay.config().isEmpty());
+
+        overlay.changed(source, "int main() { return 1; }");
+        assertTrue(analyzed.await(5, TimeUnit.SECONDS));
+        assertTrue(overlay.takePendingChanges());
+        assertFalse(overlay.takePendingChanges());
+
+        JsonObject conf = readJson(overlay.config().orElseThrow());
+        assertFalse(conf.get("warn.imprecise").getAsBoolean());
+        Path database = Path.of(conf.getAsJsonArray("files").get(0).getAsString());
+        JsonObject entry = JsonParser.parseString(Files.readString(database)).getAsJsonArray().get(0).getAsJsonObject();
+        Path shadow = Path.of(entry.get("file").getAsString());
+        assertNotEquals(source.toAbsolutePath(), shadow);
+        assertEquals("int main() { return 1; }", Files.readString(shadow));
+        assertEquals("gcc -c " + shadow + " -o main.o -iquote" + projectDir.toAbsolutePath(), entry.get("command").getAsString());
+        assertEquals(source.toUri().toURL(), new GoblintLocation(shadow.toString(), 1, 1, 1, 10).toPosition().getURL());
+
+        // After saving, the original files are analyzed again
+        overlay.discard(source);
+        assertFalse(Files.exists(shadow));
+        assertTrue(overlay.config().isEmpty());
+    }
+
+    /**
+     * Tests that the unsaved contents are only written into the shadow copy once the analysis is requested,
+     * so that typing does not write the whole file on every change.
+     */
+    @Test
+    void testUnsavedChangesWrittenBeforeAnalysis() throws IOException, InterruptedException {
+        Path source = writeProject();
+        Path overlayRoot = projectDir.resolve(UnsavedFilesOverlay.DEFAULT_LOCATION);
+        CountDownLatch analyzed = new CountDownLatch(1);
+        UnsavedFilesOverlay overlay = new UnsavedFilesOverlay(overlayRoot, projectDir.resolve("goblint.json"), 200, analyzed::countDown);
+
+        overlay.changed(source, "int main() { return 1; }");
+        overlay.changed(source, "int main() { return 2; }");
+        assertFalse(Files.exists(overlayRoot));
+        assertTrue(overlay.config().isEmpty());
+
+        assertTrue(analyzed.await(5, TimeUnit.SECONDS));
+        JsonObject conf = readJson(overlay.config().orElseThrow());
+        Path database = Path.of(conf.getAsJsonArray("files").get(0).getAsString());
+        Path shadow = Path.of(JsonParser.parseString(Files.readString(database)).getAsJsonArray().get(0).getAsJsonObject().get("file").getAsString());
+        assertEquals("int main() { return 2; }", Files.readString(shadow));
+    }
+
+    /**
+     * Tests that closing a file with unsaved changes removes its shadow copy and alias and schedules an analysis of the saved file,
+     * and that the shadow copy is mapped back to the original file also after it has been removed.
+     */
+    @Test
+    void testCloseUnsavedFile() throws IOException, InterruptedException {
+        Path source = writeProject();
+        Semaphore analyses = new Semaphore(0);
+        UnsavedFilesOverlay overlay = new UnsavedFilesOverlay(projectDir.resolve(UnsavedFilesOverlay.DEFAULT_LOCATION), projectDir.resolve("goblint.json"), 10, analyses::release);
+
+        overlay.changed(source, "int main() { return 1; }");
+        assertTrue(analyses.tryAcquire(5, TimeUnit.SECONDS));
+        assertTrue(overlay.takePendingChanges());
+        JsonObject conf = readJson(overlay.config().orElseThrow());
+        Path database = Path.of(conf.getAsJsonArray("files").get(0).getAsString());
+        Path shadow = Path.of(JsonParser.parseString(Files.readString(database)).getAsJsonArray().get(0).getAsJsonObject().get("file").getAsString());
+        assertEquals(source.toAbsolutePath().toString(), overlay.originalFile(shadow.toString()));
+
+        overlay.close(source);
+        assertTrue(analyses.tryAcquire(5, TimeUnit.SECONDS));
+        assertTrue(overlay.takePendingChanges());
+        assertFalse(Files.exists(shadow));
+        assertTrue(overlay.config().isEmpty());
+        assertEquals(shadow.toUri().toURL(), new GoblintLocation(shadow.toString(), 1, 1, 1, 10).toPosition().getURL());
+        assertEquals(source.toAbsolutePath().toString(), overlay.originalFile(shadow.toString()));
+        assertEquals(source.toString(), overlay.originalFile(source.toString()));
+
+        // Closing a file without unsaved changes does not analyze again
+        overlay.close(source);
+        assertFalse(analyses.tryAcquire(200, TimeUnit.MILLISECONDS));
+    }
+
+}